@@ -0,0 +1,134 @@
+package com.springbootcicdplayground.customer;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpInputMessage;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.GenericHttpMessageConverter;
+import org.springframework.http.converter.cbor.MappingJackson2CborHttpMessageConverter;
+import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
+import org.springframework.http.converter.smile.MappingJackson2SmileHttpMessageConverter;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Encodes and decodes a {@code GET /api/v1/customer} body in every format the API negotiates, through the
+ * same message converters the controller uses, without the network.
+ * <p>
+ * Bytes on the wire do not change between runs, so each trial prints them once for its format and list
+ * size instead of measuring them.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class CustomerCodecBenchmark {
+
+    private static final Type CUSTOMER_LIST = new ParameterizedTypeReference<List<Customer>>() {
+    }.getType();
+
+    @Param({"json", "cbor", "smile", "protobuf"})
+    public String format;
+
+    @Param({"1000", "100000"})
+    public int rows;
+
+    private GenericHttpMessageConverter<Object> converter;
+    private MediaType mediaType;
+    private List<Customer> customers;
+    private byte[] encoded;
+    private final ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+
+    @Setup(Level.Trial)
+    public void encodeOnce() throws IOException {
+        converter = switch (format) {
+            case "json" -> new MappingJackson2HttpMessageConverter();
+            case "cbor" -> new MappingJackson2CborHttpMessageConverter();
+            case "smile" -> new MappingJackson2SmileHttpMessageConverter();
+            case "protobuf" -> new CustomerProtobufHttpMessageConverter();
+            default -> throw new IllegalArgumentException("Unknown format: " + format);
+        };
+        mediaType = converter.getSupportedMediaTypes().get(0);
+
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        customers = new ArrayList<>(rows);
+        for (long id = 1; id <= rows; id++) {
+            customers.add(new Customer(
+                    id,
+                    "Customer " + Long.toHexString(random.nextLong()),
+                    "customer" + id + "@example.com",
+                    random.nextInt(18, 100)
+            ));
+        }
+
+        encoded = encode().toByteArray();
+        System.out.printf("%n%s, %d rows: %d bytes (%.1f per row)%n",
+                format, rows, encoded.length, (double) encoded.length / rows);
+    }
+
+    @Benchmark
+    public ByteArrayOutputStream encode() throws IOException {
+        buffer.reset();
+        converter.write(customers, CUSTOMER_LIST, mediaType, new BufferOutputMessage(buffer));
+        return buffer;
+    }
+
+    @Benchmark
+    public Object decode() throws IOException {
+        return converter.read(CUSTOMER_LIST, null, new BufferInputMessage(encoded));
+    }
+
+    private record BufferOutputMessage(OutputStream body, HttpHeaders headers) implements HttpOutputMessage {
+
+        BufferOutputMessage(OutputStream body) {
+            this(body, new HttpHeaders());
+        }
+
+        @Override
+        public OutputStream getBody() {
+            return body;
+        }
+
+        @Override
+        public HttpHeaders getHeaders() {
+            return headers;
+        }
+    }
+
+    private record BufferInputMessage(byte[] body) implements HttpInputMessage {
+
+        @Override
+        public InputStream getBody() {
+            return new ByteArrayInputStream(body);
+        }
+
+        @Override
+        public HttpHeaders getHeaders() {
+            return HttpHeaders.EMPTY;
+        }
+    }
+}
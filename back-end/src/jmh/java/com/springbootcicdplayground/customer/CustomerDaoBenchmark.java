@@ -0,0 +1,192 @@
+package com.springbootcicdplayground.customer;
+
+import com.springbootcicdplayground.Main;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.testcontainers.containers.PostgreSQLContainer;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Runs every {@link CustomerDao} through the same operations at several table sizes.
+ * <p>
+ * Each trial starts the application context against Postgres and fills the customer table (or the
+ * in-memory store) through the DAO under test. Postgres is a Testcontainers instance unless
+ * {@code BENCHMARK_DATASOURCE_URL} (with {@code BENCHMARK_DATASOURCE_USERNAME} and
+ * {@code BENCHMARK_DATASOURCE_PASSWORD}) points at a running database, whose customer table is truncated.
+ * <p>
+ * {@code insert} adds rows for the whole trial, so the table ends a trial somewhat larger than
+ * {@code tableSize}.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class CustomerDaoBenchmark {
+
+    private static final int SEED_BATCH_SIZE = 1000;
+
+    @Param({"jpa", "jdbc", "list", "columnar"})
+    public String dao;
+
+    @Param({"1000", "100000"})
+    public int tableSize;
+
+    private PostgreSQLContainer<?> postgreSQLContainer;
+    private ConfigurableApplicationContext context;
+    private CustomerDao customerDao;
+    private long[] ids;
+    private String[] emails;
+    private final AtomicLong sequence = new AtomicLong();
+    private final String runId = UUID.randomUUID().toString();
+
+    @Setup(Level.Trial)
+    public void startApplication() {
+        String url = System.getenv("BENCHMARK_DATASOURCE_URL");
+        String username = System.getenv("BENCHMARK_DATASOURCE_USERNAME");
+        String password = System.getenv("BENCHMARK_DATASOURCE_PASSWORD");
+        if (url == null) {
+            postgreSQLContainer = new PostgreSQLContainer<>("postgres:latest")
+                    .withDatabaseName("customer-dao-benchmark")
+                    .withUsername("root")
+                    .withPassword("root");
+            postgreSQLContainer.start();
+            url = postgreSQLContainer.getJdbcUrl();
+            username = postgreSQLContainer.getUsername();
+            password = postgreSQLContainer.getPassword();
+        }
+
+        context = new SpringApplicationBuilder(Main.class)
+                .web(WebApplicationType.NONE)
+                .properties(
+                        "spring.datasource.url=" + url,
+                        "spring.datasource.username=" + username,
+                        "spring.datasource.password=" + password,
+                        "spring.jpa.show-sql=false",
+                        "logging.level.root=WARN"
+                )
+                .run();
+        context.getBean(JdbcTemplate.class).execute("TRUNCATE customer");
+        customerDao = context.getBean(dao, CustomerDao.class);
+        seed();
+    }
+
+    @TearDown(Level.Trial)
+    public void stopApplication() {
+        context.close();
+        if (postgreSQLContainer != null) {
+            postgreSQLContainer.stop();
+        }
+    }
+
+    @Benchmark
+    public Optional<Customer> selectById() {
+        return customerDao.selectCustomerById(ids[randomRow()]);
+    }
+
+    @Benchmark
+    public List<Customer> selectAll() {
+        return customerDao.selectAllCustomers();
+    }
+
+    /**
+     * Searches for the number in a seeded email, such as {@code -123-}, which only a few customers
+     * resemble. The trigram indexes find them without a scan, except in the columnar store.
+     */
+    @Benchmark
+    public List<Customer> search() {
+        String email = emails[randomRow()];
+        int start = email.indexOf('-');
+        return customerDao.searchCustomers(email.substring(start, email.indexOf('-', start + 1) + 1), 20);
+    }
+
+    @Benchmark
+    public Customer insert() {
+        return customerDao.insertCustomer(newCustomer());
+    }
+
+    @Benchmark
+    public boolean existsByEmail() {
+        return customerDao.existsCustomerWithEmail(emails[randomRow()]);
+    }
+
+    @Benchmark
+    public CustomerUpdateOutcome update() {
+        int row = randomRow();
+        return customerDao.updateCustomer(new Customer(
+                ids[row],
+                "Updated " + row,
+                emails[row],
+                ThreadLocalRandom.current().nextInt(18, 100)
+        ));
+    }
+
+    /**
+     * Each invocation deletes a row inserted just before it, outside the measured time. Per-invocation
+     * setup adds timing noise that matters for the in-memory stores, so compare those with care.
+     */
+    @Benchmark
+    public boolean delete(Victim victim) {
+        return customerDao.deleteCustomerById(victim.id);
+    }
+
+    @State(Scope.Thread)
+    public static class Victim {
+
+        long id;
+
+        @Setup(Level.Invocation)
+        public void insert(CustomerDaoBenchmark benchmark) {
+            id = benchmark.customerDao.insertCustomer(benchmark.newCustomer()).getId();
+        }
+    }
+
+    private void seed() {
+        ids = new long[tableSize];
+        emails = new String[tableSize];
+        int seeded = 0;
+        while (seeded < tableSize) {
+            List<Customer> batch = new ArrayList<>(SEED_BATCH_SIZE);
+            for (int i = 0; i < SEED_BATCH_SIZE && seeded + batch.size() < tableSize; i++) {
+                batch.add(newCustomer());
+            }
+            for (Customer customer : customerDao.insertCustomers(batch)) {
+                ids[seeded] = customer.getId();
+                emails[seeded] = customer.getEmail();
+                seeded++;
+            }
+        }
+    }
+
+    private Customer newCustomer() {
+        long n = sequence.incrementAndGet();
+        return new Customer("Customer " + n, "customer-" + n + "-" + runId + "@example.com", 30);
+    }
+
+    private int randomRow() {
+        return ThreadLocalRandom.current().nextInt(tableSize);
+    }
+}
@@ -0,0 +1,92 @@
+package com.springbootcicdplayground.customer;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.GenericHttpMessageConverter;
+import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Writes a {@code GET /api/v1/customer} body as JSON through Jackson's converter and through
+ * {@link CustomerJsonHttpMessageConverter}. Both write to a stream that discards the bytes, so the
+ * numbers are serialization alone. Run it with the GC profiler to compare allocation per list.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class CustomerJsonBenchmark {
+
+    private static final Type CUSTOMER_LIST = new ParameterizedTypeReference<List<Customer>>() {
+    }.getType();
+
+    @Param({"jackson", "customer"})
+    public String converter;
+
+    @Param({"1", "1000", "100000"})
+    public int rows;
+
+    private GenericHttpMessageConverter<Object> underTest;
+    private List<Customer> customers;
+    private final HttpOutputMessage discarding = new HttpOutputMessage() {
+        private final HttpHeaders headers = new HttpHeaders();
+
+        @Override
+        public OutputStream getBody() {
+            return OutputStream.nullOutputStream();
+        }
+
+        @Override
+        public HttpHeaders getHeaders() {
+            return headers;
+        }
+    };
+
+    @Setup(Level.Trial)
+    public void createCustomers() {
+        underTest = converter.equals("jackson")
+                ? new MappingJackson2HttpMessageConverter()
+                : new CustomerJsonHttpMessageConverter();
+
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        customers = new ArrayList<>(rows);
+        for (long id = 1; id <= rows; id++) {
+            customers.add(new Customer(
+                    id,
+                    "Customer " + Long.toHexString(random.nextLong()),
+                    "customer" + id + "@example.com",
+                    random.nextInt(18, 100)
+            ));
+        }
+    }
+
+    @Benchmark
+    public HttpOutputMessage writeList() throws IOException {
+        discarding.getHeaders().clear();
+        underTest.write(customers, CUSTOMER_LIST, MediaType.APPLICATION_JSON, discarding);
+        return discarding;
+    }
+}
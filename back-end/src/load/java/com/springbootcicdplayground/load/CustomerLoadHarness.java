@@ -0,0 +1,302 @@
+package com.springbootcicdplayground.load;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.springbootcicdplayground.load.LoadHarnessConfig.Operation;
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.MediaType;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Mono;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
+
+import java.io.IOException;
+import java.net.URI;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Open-model load generator for the customer API.
+ * <p>
+ * Requests are started on a fixed schedule at {@code load.rate} per second, whether or not earlier ones
+ * have completed, and the operation for each slot is drawn from the {@code load.mix} weights. Latency is
+ * measured from the moment a request was <em>scheduled</em> to start, not from when it was sent, so
+ * time spent behind a stalled server or a backed-up client counts against the endpoint. This corrects
+ * for coordinated omission.
+ * <p>
+ * The run seeds {@code load.seed-customers} customers through the batch endpoint, discards the
+ * {@code load.warmup} period, and prints p50/p99/p99.9/max per endpoint. It writes the report to
+ * {@code load.report}. When {@code load.baseline} names an earlier report, the check fails if any
+ * percentile is more than {@code load.tolerance} slower.
+ * <p>
+ * With {@code load.clients} set, a closed model of that many concurrent clients replaces the fixed rate.
+ * <p>
+ * Deletes only remove customers registered during the run. When none are left, the slot registers a
+ * customer instead.
+ */
+public final class CustomerLoadHarness {
+
+    private static final String CUSTOMER_URI = "/api/v1/customer";
+    private static final int SEED_BATCH_SIZE = 500;
+    private static final Duration DRAIN_TIMEOUT = Duration.ofSeconds(30);
+
+    private final LoadHarnessConfig config;
+    private final Map<Operation, Histogram> histograms = new EnumMap<>(Operation.class);
+    private final Map<Operation, LongAdder> errors = new EnumMap<>(Operation.class);
+    private final List<Long> seededIds = new ArrayList<>();
+    private final Queue<Long> deletableIds = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicLong sequence = new AtomicLong();
+    private final String runId = UUID.randomUUID().toString();
+    private final Operation[] operations;
+    private final int[] cumulativeWeights;
+
+    CustomerLoadHarness(LoadHarnessConfig config) {
+        this.config = config;
+        for (Operation operation : Operation.values()) {
+            histograms.put(operation, new ConcurrentHistogram(3));
+            errors.put(operation, new LongAdder());
+        }
+        operations = config.mix().keySet().toArray(Operation[]::new);
+        cumulativeWeights = new int[operations.length];
+        int total = 0;
+        for (int i = 0; i < operations.length; i++) {
+            total += config.mix().get(operations[i]);
+            cumulativeWeights[i] = total;
+        }
+    }
+
+    /**
+     * Runs the load and writes the report, or with the {@code check} argument compares an existing report
+     * with the baseline. The build keeps these apart so a regression fails {@code verify} only after the
+     * application has been stopped.
+     */
+    public static void main(String[] args) throws Exception {
+        LoadHarnessConfig config = LoadHarnessConfig.fromSystemProperties();
+        if (args.length > 0 && args[0].equals("check")) {
+            checkAgainstBaseline(config);
+            return;
+        }
+
+        LatencyReport report = new CustomerLoadHarness(config).run();
+        System.out.print(report.toTable());
+        report.write(config.report());
+        System.out.println("Report written to " + config.report().toAbsolutePath());
+    }
+
+    private static void checkAgainstBaseline(LoadHarnessConfig config) throws IOException {
+        Path baseline = config.baseline();
+        if (baseline == null) {
+            return;
+        }
+        List<String> regressions = LatencyReport.read(config.report())
+                .regressionsAgainst(LatencyReport.read(baseline), config.tolerance());
+        if (!regressions.isEmpty()) {
+            String separator = System.lineSeparator() + "  ";
+            throw new IllegalStateException(
+                    "Latency regressions against " + baseline + ":" + separator + String.join(separator, regressions)
+            );
+        }
+        System.out.println("No latency regressions against " + baseline);
+    }
+
+    LatencyReport run() {
+        ConnectionProvider connections = ConnectionProvider.builder("customer-load")
+                .maxConnections(config.connections())
+                .pendingAcquireMaxCount(-1)
+                .build();
+        try {
+            WebClient webClient = WebClient.builder()
+                    .baseUrl(config.baseUrl())
+                    .clientConnector(new ReactorClientHttpConnector(HttpClient.create(connections)))
+                    .build();
+            seed(webClient);
+            drive(webClient);
+        } finally {
+            connections.dispose();
+        }
+
+        Map<String, LatencyReport.EndpointLatency> endpoints = new LinkedHashMap<>();
+        for (Operation operation : operations) {
+            endpoints.put(operation.endpoint(), LatencyReport.EndpointLatency.of(
+                    histograms.get(operation), errors.get(operation).sum()
+            ));
+        }
+        long completed = endpoints.values().stream().mapToLong(LatencyReport.EndpointLatency::count).sum();
+        return new LatencyReport(
+                config.requestsPerSecond(),
+                config.clients(),
+                config.duration().toSeconds(),
+                completed / (double) config.duration().toSeconds(),
+                endpoints
+        );
+    }
+
+    private void seed(WebClient webClient) {
+        for (int seeded = 0; seeded < config.seedCustomers(); seeded += SEED_BATCH_SIZE) {
+            List<Map<String, Object>> batch = new ArrayList<>(SEED_BATCH_SIZE);
+            for (int i = 0; i < Math.min(SEED_BATCH_SIZE, config.seedCustomers() - seeded); i++) {
+                batch.add(newCustomer());
+            }
+            JsonNode results = webClient.post()
+                    .uri(CUSTOMER_URI + "/batch")
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .bodyValue(batch)
+                    .retrieve()
+                    .bodyToMono(JsonNode.class)
+                    .block();
+            for (JsonNode result : results) {
+                if (result.hasNonNull("id")) {
+                    seededIds.add(result.get("id").asLong());
+                }
+            }
+        }
+        if (seededIds.isEmpty()) {
+            throw new IllegalStateException("Seeding registered no customers at " + config.baseUrl());
+        }
+    }
+
+    private void drive(WebClient webClient) {
+        long start = System.nanoTime();
+        long measureFrom = start + config.warmup().toNanos();
+        long end = measureFrom + config.duration().toNanos();
+        if (config.clients() > 0) {
+            driveClients(webClient, measureFrom, end);
+            return;
+        }
+        for (long slot = 0; ; slot++) {
+            long scheduled = start + slot * TimeUnit.SECONDS.toNanos(1) / config.requestsPerSecond();
+            if (scheduled >= end) {
+                break;
+            }
+            long wait;
+            while ((wait = scheduled - System.nanoTime()) > 0) {
+                LockSupport.parkNanos(wait);
+            }
+            send(webClient, nextOperation(), scheduled, scheduled >= measureFrom).subscribe();
+        }
+
+        long drainDeadline = System.nanoTime() + DRAIN_TIMEOUT.toNanos();
+        while (inFlight.get() > 0 && System.nanoTime() < drainDeadline) {
+            LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(10));
+        }
+        if (inFlight.get() > 0) {
+            System.out.printf("%d requests still in flight after %s were not recorded%n", inFlight.get(), DRAIN_TIMEOUT);
+        }
+    }
+
+    /**
+     * Closed model: {@code load.clients} virtual threads each send a request, wait for the response and
+     * send the next one. This measures how many concurrent clients the server sustains rather than how it
+     * copes with a fixed arrival rate, and its latencies are service times that coordinated omission
+     * can flatter.
+     */
+    private void driveClients(WebClient webClient, long measureFrom, long end) {
+        try (ExecutorService clients = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < config.clients(); i++) {
+                clients.submit(() -> {
+                    long sent;
+                    while ((sent = System.nanoTime()) < end) {
+                        send(webClient, nextOperation(), sent, sent >= measureFrom).block();
+                    }
+                });
+            }
+        }
+    }
+
+    private Mono<Void> send(WebClient webClient, Operation operation, long scheduled, boolean measured) {
+        Long deletableId = null;
+        if (operation == Operation.DELETE) {
+            deletableId = deletableIds.poll();
+            if (deletableId == null) {
+                operation = Operation.REGISTER;
+            }
+        }
+        Operation sent = operation;
+        inFlight.incrementAndGet();
+        return request(webClient, operation, deletableId)
+                .doOnNext(response -> {
+                    if (sent == Operation.REGISTER && response.location() != null) {
+                        String path = response.location().getPath();
+                        deletableIds.add(Long.parseLong(path.substring(path.lastIndexOf('/') + 1)));
+                    }
+                    complete(sent, scheduled, measured, response.status().isError());
+                })
+                .doOnError(error -> complete(sent, scheduled, measured, true))
+                .onErrorComplete()
+                .then();
+    }
+
+    private Mono<Response> request(WebClient webClient, Operation operation, Long deletableId) {
+        WebClient.RequestHeadersSpec<?> request = switch (operation) {
+            case GET -> webClient.get().uri(CUSTOMER_URI + "/{id}", randomSeededId());
+            case PAGE -> webClient.get().uri(CUSTOMER_URI + "?limit=50");
+            case REGISTER -> webClient.post()
+                    .uri(CUSTOMER_URI)
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .bodyValue(newCustomer());
+            case UPDATE -> webClient.put()
+                    .uri(CUSTOMER_URI + "/{id}", randomSeededId())
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .bodyValue(Map.of("name", "Load update " + sequence.incrementAndGet()));
+            case DELETE -> webClient.delete().uri(CUSTOMER_URI + "/{id}", deletableId);
+        };
+        return request.exchangeToMono(response -> response.releaseBody().thenReturn(
+                new Response(response.statusCode(), response.headers().asHttpHeaders().getLocation())
+        ));
+    }
+
+    private void complete(Operation operation, long scheduled, boolean measured, boolean failed) {
+        if (measured) {
+            histograms.get(operation).recordValue(System.nanoTime() - scheduled);
+            if (failed) {
+                errors.get(operation).increment();
+            }
+        }
+        inFlight.decrementAndGet();
+    }
+
+    private Operation nextOperation() {
+        int pick = ThreadLocalRandom.current().nextInt(cumulativeWeights[cumulativeWeights.length - 1]);
+        for (int i = 0; i < cumulativeWeights.length; i++) {
+            if (pick < cumulativeWeights[i]) {
+                return operations[i];
+            }
+        }
+        throw new IllegalStateException("Unreachable");
+    }
+
+    private long randomSeededId() {
+        return seededIds.get(ThreadLocalRandom.current().nextInt(seededIds.size()));
+    }
+
+    private Map<String, Object> newCustomer() {
+        long n = sequence.incrementAndGet();
+        return Map.of(
+                "name", "Load " + n,
+                "email", "load-" + n + "-" + runId + "@example.com",
+                "age", 30
+        );
+    }
+
+    private record Response(HttpStatusCode status, URI location) {
+    }
+}
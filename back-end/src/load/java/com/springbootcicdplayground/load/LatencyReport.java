@@ -0,0 +1,95 @@
+package com.springbootcicdplayground.load;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.HdrHistogram.Histogram;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-endpoint latency percentiles of one load run, in milliseconds. Written as JSON so a run can be
+ * kept as the baseline for later ones.
+ */
+record LatencyReport(
+        int requestsPerSecond,
+        int clients,
+        long durationSeconds,
+        double throughput,
+        Map<String, EndpointLatency> endpoints
+) {
+
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT);
+
+    record EndpointLatency(long count, long errors, double p50, double p99, double p999, double max) {
+
+        static EndpointLatency of(Histogram histogram, long errors) {
+            return new EndpointLatency(
+                    histogram.getTotalCount(),
+                    errors,
+                    millis(histogram.getValueAtPercentile(50)),
+                    millis(histogram.getValueAtPercentile(99)),
+                    millis(histogram.getValueAtPercentile(99.9)),
+                    millis(histogram.getMaxValue())
+            );
+        }
+
+        private static double millis(long nanos) {
+            return nanos / (double) TimeUnit.MILLISECONDS.toNanos(1);
+        }
+    }
+
+    static LatencyReport read(Path path) throws IOException {
+        return OBJECT_MAPPER.readValue(path.toFile(), LatencyReport.class);
+    }
+
+    void write(Path path) throws IOException {
+        if (path.getParent() != null) {
+            Files.createDirectories(path.getParent());
+        }
+        OBJECT_MAPPER.writeValue(path.toFile(), this);
+    }
+
+    /**
+     * Lists each endpoint percentile that is more than {@code tolerance} (a fraction) slower than in the
+     * baseline. The maximum is left out: a single sample is too noisy to gate on.
+     */
+    List<String> regressionsAgainst(LatencyReport baseline, double tolerance) {
+        List<String> regressions = new ArrayList<>();
+        baseline.endpoints().forEach((endpoint, before) -> {
+            EndpointLatency after = endpoints.get(endpoint);
+            if (after == null) {
+                return;
+            }
+            compare(regressions, endpoint, "p50", before.p50(), after.p50(), tolerance);
+            compare(regressions, endpoint, "p99", before.p99(), after.p99(), tolerance);
+            compare(regressions, endpoint, "p99.9", before.p999(), after.p999(), tolerance);
+        });
+        return regressions;
+    }
+
+    String toTable() {
+        StringBuilder table = new StringBuilder("%-30s %8s %7s %10s %10s %10s %10s%n".formatted(
+                "endpoint", "count", "errors", "p50 ms", "p99 ms", "p99.9 ms", "max ms"
+        ));
+        endpoints.forEach((endpoint, latency) -> table.append("%-30s %8d %7d %10.2f %10.2f %10.2f %10.2f%n".formatted(
+                endpoint, latency.count(), latency.errors(), latency.p50(), latency.p99(), latency.p999(), latency.max()
+        )));
+        table.append("throughput: %.1f requests/s%n".formatted(throughput));
+        return table.toString();
+    }
+
+    private static void compare(List<String> regressions, String endpoint, String percentile,
+                                double before, double after, double tolerance) {
+        if (after > before * (1 + tolerance)) {
+            regressions.add("%s %s: %.2f ms -> %.2f ms (+%.0f%%)".formatted(
+                    endpoint, percentile, before, after, (after / before - 1) * 100
+            ));
+        }
+    }
+}
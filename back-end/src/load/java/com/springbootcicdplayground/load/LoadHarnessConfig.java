@@ -0,0 +1,83 @@
+package com.springbootcicdplayground.load;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Load harness settings, read from {@code load.*} system properties.
+ */
+record LoadHarnessConfig(
+        String baseUrl,
+        int requestsPerSecond,
+        int clients,
+        int connections,
+        Duration warmup,
+        Duration duration,
+        Map<Operation, Integer> mix,
+        int seedCustomers,
+        Path report,
+        Path baseline,
+        double tolerance
+) {
+
+    static LoadHarnessConfig fromSystemProperties() {
+        String baseline = System.getProperty("load.baseline", "");
+        int clients = Integer.getInteger("load.clients", 0);
+        return new LoadHarnessConfig(
+                System.getProperty("load.base-url", "http://localhost:8080"),
+                Integer.getInteger("load.rate", 200),
+                clients,
+                // A closed-model client holds its connection while it waits, so give each one its own.
+                Integer.getInteger("load.connections", Math.max(256, clients)),
+                Duration.parse(System.getProperty("load.warmup", "PT10S")),
+                Duration.parse(System.getProperty("load.duration", "PT60S")),
+                parseMix(System.getProperty("load.mix", "get:60,page:10,register:15,update:10,delete:5")),
+                Integer.getInteger("load.seed-customers", 1000),
+                Path.of(System.getProperty("load.report", "target/load-report.json")),
+                baseline.isBlank() ? null : Path.of(baseline),
+                Double.parseDouble(System.getProperty("load.tolerance", "0.10"))
+        );
+    }
+
+    /**
+     * Parses weights such as {@code get:80,register:20}. Operations left out get no traffic.
+     */
+    static Map<Operation, Integer> parseMix(String mix) {
+        Map<Operation, Integer> weights = new LinkedHashMap<>();
+        for (String entry : mix.split(",")) {
+            String[] parts = entry.trim().split(":");
+            if (parts.length != 2) {
+                throw new IllegalArgumentException("Invalid mix entry [%s], expected operation:weight".formatted(entry));
+            }
+            int weight = Integer.parseInt(parts[1].trim());
+            if (weight < 0) {
+                throw new IllegalArgumentException("Mix weight for [%s] must not be negative".formatted(parts[0]));
+            }
+            weights.put(Operation.valueOf(parts[0].trim().toUpperCase()), weight);
+        }
+        if (weights.values().stream().mapToInt(Integer::intValue).sum() == 0) {
+            throw new IllegalArgumentException("Mix [%s] has no traffic".formatted(mix));
+        }
+        return weights;
+    }
+
+    enum Operation {
+        GET("GET /api/v1/customer/{id}"),
+        PAGE("GET /api/v1/customer?limit"),
+        REGISTER("POST /api/v1/customer"),
+        UPDATE("PUT /api/v1/customer/{id}"),
+        DELETE("DELETE /api/v1/customer/{id}");
+
+        private final String endpoint;
+
+        Operation(String endpoint) {
+            this.endpoint = endpoint;
+        }
+
+        String endpoint() {
+            return endpoint;
+        }
+    }
+}
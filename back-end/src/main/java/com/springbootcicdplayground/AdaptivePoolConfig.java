@@ -0,0 +1,43 @@
+package com.springbootcicdplayground;
+
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import javax.sql.DataSource;
+import java.sql.SQLException;
+import java.time.Duration;
+
+/**
+ * Lets {@link AdaptivePoolSizer} size the JDBC pool between {@code datasource.adaptive-pool.min-size}
+ * and {@code max-size}, starting from {@code spring.datasource.hikari.maximum-pool-size}.
+ */
+@Configuration(proxyBeanMethods = false)
+@ConditionalOnProperty(name = "datasource.adaptive-pool.enabled", havingValue = "true")
+public class AdaptivePoolConfig {
+
+    @Bean(destroyMethod = "close")
+    public AdaptivePoolSizer adaptivePoolSizer(
+            DataSource dataSource,
+            MeterRegistry meterRegistry,
+            @Value("${datasource.adaptive-pool.min-size:5}") int minSize,
+            @Value("${datasource.adaptive-pool.max-size:40}") int maxSize,
+            @Value("${datasource.adaptive-pool.interval:1s}") Duration interval,
+            @Value("${datasource.adaptive-pool.acquire-target:5ms}") Duration acquireTarget,
+            @Value("${datasource.adaptive-pool.latency-tolerance:2.0}") double latencyTolerance,
+            @Value("${datasource.adaptive-pool.decrease-factor:0.75}") double decreaseFactor) throws SQLException {
+        HikariDataSource hikariDataSource = dataSource.unwrap(HikariDataSource.class);
+        AimdPoolLimit poolLimit = new AimdPoolLimit(
+                hikariDataSource.getMaximumPoolSize(),
+                minSize,
+                maxSize,
+                acquireTarget.toNanos() / 1_000_000.0,
+                latencyTolerance,
+                decreaseFactor
+        );
+        return new AdaptivePoolSizer(hikariDataSource, meterRegistry, poolLimit, interval);
+    }
+}
@@ -0,0 +1,126 @@
+package com.springbootcicdplayground;
+
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.TimeGauge;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Resizes the Hikari pool behind every JDBC and JPA DAO from what the pool observes, so it does not
+ * have to be tuned per environment. Each interval it reads the {@code hikaricp.connections.acquire}
+ * (wait) and {@code hikaricp.connections.usage} (hold) timers and the active and pending counts,
+ * asks {@link AimdPoolLimit} for a new maximum and applies it through Hikari's config MXBean.
+ * <p>
+ * Growth takes effect at once, since Hikari opens connections on demand up to the current maximum.
+ * A shrink only stops new connections from being opened: connections above the maximum are retired
+ * once idle for {@code spring.datasource.hikari.idle-timeout}.
+ * <p>
+ * The current limit is published as {@code jdbc.pool.adaptive.limit}, the baseline hold time as
+ * {@code jdbc.pool.adaptive.baseline.usage} and every change as {@code jdbc.pool.adaptive.adjustments},
+ * tagged with its direction.
+ */
+public class AdaptivePoolSizer implements AutoCloseable {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(AdaptivePoolSizer.class);
+
+    private final HikariDataSource dataSource;
+    private final MeterRegistry meterRegistry;
+    private final AimdPoolLimit poolLimit;
+    private final Counter increases;
+    private final Counter decreases;
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(
+            Thread.ofPlatform().name("adaptive-pool-sizer").daemon().factory()
+    );
+
+    private long lastAcquisitions;
+    private double lastAcquireMillis;
+    private long lastUsages;
+    private double lastUsageMillis;
+
+    public AdaptivePoolSizer(HikariDataSource dataSource, MeterRegistry meterRegistry,
+                             AimdPoolLimit poolLimit, Duration interval) {
+        this.dataSource = dataSource;
+        this.meterRegistry = meterRegistry;
+        this.poolLimit = poolLimit;
+        this.increases = adjustments(meterRegistry, "increase");
+        this.decreases = adjustments(meterRegistry, "decrease");
+        Gauge.builder("jdbc.pool.adaptive.limit", poolLimit, AimdPoolLimit::limit)
+                .description("Maximum pool size chosen by the adaptive sizer")
+                .register(meterRegistry);
+        TimeGauge.builder("jdbc.pool.adaptive.baseline.usage", poolLimit, TimeUnit.MILLISECONDS,
+                        AimdPoolLimit::baselineUsageMillis)
+                .description("Lowest recent connection hold time, which the sizer treats as unloaded")
+                .register(meterRegistry);
+
+        dataSource.getHikariConfigMXBean().setMaximumPoolSize(poolLimit.limit());
+        scheduler.scheduleWithFixedDelay(this::adjust, interval.toMillis(), interval.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    private static Counter adjustments(MeterRegistry meterRegistry, String direction) {
+        return Counter.builder("jdbc.pool.adaptive.adjustments")
+                .description("Changes the adaptive sizer made to the maximum pool size")
+                .tag("direction", direction)
+                .register(meterRegistry);
+    }
+
+    private void adjust() {
+        try {
+            HikariPoolMXBean pool = dataSource.getHikariPoolMXBean();
+            Timer acquire = poolTimer("hikaricp.connections.acquire");
+            Timer usage = poolTimer("hikaricp.connections.usage");
+            if (pool == null || acquire == null || usage == null) {
+                return;
+            }
+
+            long acquisitions = acquire.count();
+            double acquireMillis = acquire.totalTime(TimeUnit.MILLISECONDS);
+            long usages = usage.count();
+            double usageMillis = usage.totalTime(TimeUnit.MILLISECONDS);
+            AimdPoolLimit.Sample sample = new AimdPoolLimit.Sample(
+                    acquisitions - lastAcquisitions,
+                    mean(acquireMillis - lastAcquireMillis, acquisitions - lastAcquisitions),
+                    mean(usageMillis - lastUsageMillis, usages - lastUsages),
+                    pool.getActiveConnections(),
+                    pool.getThreadsAwaitingConnection()
+            );
+            lastAcquisitions = acquisitions;
+            lastAcquireMillis = acquireMillis;
+            lastUsages = usages;
+            lastUsageMillis = usageMillis;
+
+            int before = poolLimit.limit();
+            int after = poolLimit.update(sample);
+            if (after != before) {
+                dataSource.getHikariConfigMXBean().setMaximumPoolSize(after);
+                (after > before ? increases : decreases).increment();
+                LOGGER.debug("Pool size {} -> {} after {}", before, after, sample);
+            }
+        } catch (RuntimeException exception) {
+            // A failed sample must not cancel the schedule.
+            LOGGER.warn("Adaptive pool sizing failed", exception);
+        }
+    }
+
+    private Timer poolTimer(String name) {
+        return meterRegistry.find(name).tag("pool", dataSource.getPoolName()).timer();
+    }
+
+    private static double mean(double totalMillis, long count) {
+        return count == 0 ? 0 : totalMillis / count;
+    }
+
+    @Override
+    public void close() {
+        scheduler.shutdownNow();
+    }
+}
@@ -0,0 +1,82 @@
+package com.springbootcicdplayground;
+
+/**
+ * Additive-increase / multiplicative-decrease policy for the connection pool's maximum size.
+ * <p>
+ * The pool grows by one connection per sample while callers queue for a connection and every
+ * connection is busy. It shrinks by {@code decreaseFactor} as soon as connections are held much longer
+ * than the baseline, the lowest recent hold time, because longer holds at the same load mean the
+ * database itself has saturated and more connections would only add to its queue. The baseline creeps
+ * up by {@link #BASELINE_DRIFT} per sample so that a lasting change in the workload is eventually
+ * accepted as the new normal.
+ * <p>
+ * Not thread-safe; {@link AdaptivePoolSizer} calls it from a single thread.
+ */
+class AimdPoolLimit {
+
+    static final double BASELINE_DRIFT = 0.01;
+
+    private final int minSize;
+    private final int maxSize;
+    private final double acquireTargetMillis;
+    private final double latencyTolerance;
+    private final double decreaseFactor;
+
+    private int limit;
+    private double baselineUsageMillis;
+
+    AimdPoolLimit(int initialSize, int minSize, int maxSize,
+                  double acquireTargetMillis, double latencyTolerance, double decreaseFactor) {
+        if (minSize < 1 || maxSize < minSize) {
+            throw new IllegalArgumentException(
+                    "Pool bounds must satisfy 1 <= min [%s] <= max [%s]".formatted(minSize, maxSize)
+            );
+        }
+        if (latencyTolerance <= 1 || decreaseFactor <= 0 || decreaseFactor >= 1) {
+            throw new IllegalArgumentException("Latency tolerance must be > 1 and decrease factor in (0, 1)");
+        }
+        this.minSize = minSize;
+        this.maxSize = maxSize;
+        this.acquireTargetMillis = acquireTargetMillis;
+        this.latencyTolerance = latencyTolerance;
+        this.decreaseFactor = decreaseFactor;
+        this.limit = Math.clamp(initialSize, minSize, maxSize);
+    }
+
+    /**
+     * One observation interval of the pool.
+     *
+     * @param acquisitions       connections handed out during the interval
+     * @param meanAcquireMillis  mean time callers waited for a connection
+     * @param meanUsageMillis    mean time a connection was held, i.e. the query and transaction latency
+     * @param active             connections in use at the end of the interval
+     * @param pending            callers waiting for a connection at the end of the interval
+     */
+    record Sample(long acquisitions, double meanAcquireMillis, double meanUsageMillis, int active, int pending) {
+    }
+
+    int update(Sample sample) {
+        if (sample.acquisitions() == 0) {
+            return limit;
+        }
+        baselineUsageMillis = baselineUsageMillis == 0
+                ? sample.meanUsageMillis()
+                : Math.min(sample.meanUsageMillis(), baselineUsageMillis * (1 + BASELINE_DRIFT));
+
+        if (sample.meanUsageMillis() > baselineUsageMillis * latencyTolerance) {
+            limit = Math.max(minSize, (int) (limit * decreaseFactor));
+        } else if ((sample.pending() > 0 || sample.meanAcquireMillis() > acquireTargetMillis)
+                && sample.active() >= limit) {
+            limit = Math.min(maxSize, limit + 1);
+        }
+        return limit;
+    }
+
+    int limit() {
+        return limit;
+    }
+
+    double baselineUsageMillis() {
+        return baselineUsageMillis;
+    }
+}
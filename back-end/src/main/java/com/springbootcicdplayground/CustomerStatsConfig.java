@@ -0,0 +1,29 @@
+package com.springbootcicdplayground;
+
+import com.springbootcicdplayground.customer.CustomerDao;
+import com.springbootcicdplayground.customer.CustomerStatistics;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * Keeps {@link CustomerStatistics} for {@code GET /api/v1/customer/stats}, reconciled through the same JPA DAO
+ * the customer service writes with, every {@code customer.stats.reconcile-interval}.
+ */
+@Configuration(proxyBeanMethods = false)
+public class CustomerStatsConfig {
+
+    @Bean(destroyMethod = "close")
+    public CustomerStatistics customerStatistics(
+            @Qualifier("jpa") CustomerDao customerDao,
+            MeterRegistry meterRegistry,
+            @Value("${customer.stats.age-buckets:18,25,35,45,55,65}") List<Integer> ageBuckets,
+            @Value("${customer.stats.reconcile-interval:1m}") Duration reconcileInterval) {
+        return new CustomerStatistics(customerDao, meterRegistry, ageBuckets, reconcileInterval);
+    }
+}
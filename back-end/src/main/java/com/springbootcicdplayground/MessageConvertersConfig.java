@@ -0,0 +1,53 @@
+package com.springbootcicdplayground;
+
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.springbootcicdplayground.customer.CustomerJsonHttpMessageConverter;
+import com.springbootcicdplayground.customer.CustomerProtobufHttpMessageConverter;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.converter.cbor.MappingJackson2CborHttpMessageConverter;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.http.converter.smile.MappingJackson2SmileHttpMessageConverter;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import java.util.List;
+
+/**
+ * Lets the servlet API read and write CBOR ({@code application/cbor}), Smile
+ * ({@code application/x-jackson-smile}) and Protobuf ({@code application/x-protobuf}) besides JSON, picked
+ * by the {@code Accept} and {@code Content-Type} headers.
+ * <p>
+ * The CBOR and Smile mappers come from Spring Boot's builder, so they follow the same
+ * {@code spring.jackson.*} settings as JSON. Protobuf is appended after every other converter, so that
+ * JSON stays the answer for clients that accept anything.
+ * <p>
+ * Customer responses in JSON skip Jackson and go through the {@link CustomerJsonHttpMessageConverter}, which
+ * Spring Boot puts ahead of the default converters.
+ */
+@Configuration(proxyBeanMethods = false)
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+public class MessageConvertersConfig implements WebMvcConfigurer {
+
+    @Bean
+    public CustomerJsonHttpMessageConverter customerJsonHttpMessageConverter() {
+        return new CustomerJsonHttpMessageConverter();
+    }
+
+    @Bean
+    public MappingJackson2CborHttpMessageConverter cborHttpMessageConverter(Jackson2ObjectMapperBuilder builder) {
+        return new MappingJackson2CborHttpMessageConverter(builder.factory(new CBORFactory()).build());
+    }
+
+    @Bean
+    public MappingJackson2SmileHttpMessageConverter smileHttpMessageConverter(Jackson2ObjectMapperBuilder builder) {
+        return new MappingJackson2SmileHttpMessageConverter(builder.factory(new SmileFactory()).build());
+    }
+
+    @Override
+    public void extendMessageConverters(List<HttpMessageConverter<?>> converters) {
+        converters.add(new CustomerProtobufHttpMessageConverter());
+    }
+}
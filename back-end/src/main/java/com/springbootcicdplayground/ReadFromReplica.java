@@ -0,0 +1,18 @@
+package com.springbootcicdplayground;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks a read that may be served by a replica when {@code datasource.replicas.urls} is set. Reads
+ * inside a read-write transaction, and requests pinned by {@link ReadYourWritesFilter}, still go to
+ * the primary. Without replicas the annotation has no effect.
+ */
+@Documented
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface ReadFromReplica {
+}
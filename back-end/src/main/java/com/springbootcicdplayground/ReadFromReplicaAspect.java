@@ -0,0 +1,20 @@
+package com.springbootcicdplayground;
+
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+
+/**
+ * Opens a {@link ReplicaRoutingDataSource#routeToReplica()} scope around every {@link ReadFromReplica}
+ * method.
+ */
+@Aspect
+public class ReadFromReplicaAspect {
+
+    @Around("@annotation(com.springbootcicdplayground.ReadFromReplica)")
+    public Object routeToReplica(ProceedingJoinPoint joinPoint) throws Throwable {
+        try (ReplicaRoutingDataSource.Scope ignored = ReplicaRoutingDataSource.routeToReplica()) {
+            return joinPoint.proceed();
+        }
+    }
+}
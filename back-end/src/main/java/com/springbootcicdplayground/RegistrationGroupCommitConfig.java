@@ -0,0 +1,33 @@
+package com.springbootcicdplayground;
+
+import com.springbootcicdplayground.customer.CustomerDao;
+import com.springbootcicdplayground.customer.CustomerRegistrationBuffer;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+/**
+ * Sends single registrations through a {@link CustomerRegistrationBuffer}, which commits them in batches of
+ * up to {@code customer.registration.group-commit.max-batch-size}. The buffer writes through the JDBC DAO:
+ * its multi-row insert skips each taken email on its own, while the JPA one would fail the whole batch.
+ */
+@Configuration(proxyBeanMethods = false)
+@ConditionalOnProperty(name = "customer.registration.group-commit.enabled", havingValue = "true")
+public class RegistrationGroupCommitConfig {
+
+    @Bean(destroyMethod = "close")
+    public CustomerRegistrationBuffer customerRegistrationBuffer(
+            @Qualifier("jdbc") CustomerDao customerDao,
+            MeterRegistry meterRegistry,
+            @Value("${customer.registration.group-commit.max-batch-size:500}") int maxBatchSize,
+            @Value("${customer.registration.group-commit.max-delay:5ms}") Duration maxDelay,
+            @Value("${customer.registration.group-commit.capacity:10000}") int capacity,
+            @Value("${customer.registration.group-commit.enqueue-timeout:1s}") Duration enqueueTimeout) {
+        return new CustomerRegistrationBuffer(customerDao, meterRegistry, maxBatchSize, maxDelay, capacity, enqueueTimeout);
+    }
+}
@@ -0,0 +1,278 @@
+package com.springbootcicdplayground;
+
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.TimeGauge;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.datasource.AbstractDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Sends {@link ReadFromReplica} reads to a replica and everything else to the primary.
+ * <p>
+ * The route is chosen when a connection is taken, from a thread-local scope opened by
+ * {@link ReadFromReplicaAspect} or {@link ReadYourWritesFilter}. A read that joins a read-write
+ * transaction stays on the primary, so it sees that transaction's own writes. Replicas are picked
+ * round-robin or by fewest active connections.
+ * <p>
+ * A replica leaves the rotation as soon as taking a connection from it fails, or when a health check
+ * fails, finds it more than {@code maxLag} behind, or finds it is not streaming from the primary. It
+ * rejoins once a later check passes. With no replica available, reads fall back to the primary.
+ * <p>
+ * {@link #unwrap(Class)} resolves to the primary, so pool metrics and the adaptive pool sizer keep
+ * working on the primary pool.
+ */
+public class ReplicaRoutingDataSource extends AbstractDataSource implements AutoCloseable {
+
+    public enum Strategy {
+        ROUND_ROBIN,
+        LEAST_LOADED
+    }
+
+    /**
+     * Zero when the replica streams from the primary and has replayed everything it received, otherwise
+     * the age of the last replayed transaction. Null on a server that is not a standby, on a standby
+     * whose WAL receiver is not streaming, which would otherwise look caught up however stale it gets,
+     * and on one that has not replayed a transaction yet. Without {@code pg_read_all_stats} the
+     * receiver's status reads as null, and a running receiver is taken to be streaming.
+     */
+    static final String LAG_QUERY = """
+            SELECT CASE
+                       WHEN NOT pg_is_in_recovery()
+                           OR NOT EXISTS (SELECT
+                                          FROM pg_stat_wal_receiver
+                                          WHERE coalesce(status, 'streaming') = 'streaming') THEN NULL
+                       WHEN pg_last_wal_receive_lsn() = pg_last_wal_replay_lsn() THEN 0
+                       ELSE extract(EPOCH FROM now() - pg_last_xact_replay_timestamp()) * 1000
+                   END
+            """;
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ReplicaRoutingDataSource.class);
+    private static final ThreadLocal<Route> ROUTE = new ThreadLocal<>();
+
+    private enum Route {
+        REPLICA,
+        PRIMARY
+    }
+
+    /**
+     * Restores the route that was in effect before the scope was opened.
+     */
+    public interface Scope extends AutoCloseable {
+        @Override
+        void close();
+    }
+
+    private final DataSource primary;
+    private final List<Replica> replicas;
+    private final Strategy strategy;
+    private final long maxLagMillis;
+    private final Counter primaryConnections;
+    private final AtomicInteger nextReplica = new AtomicInteger();
+    private final ScheduledExecutorService healthCheck = Executors.newSingleThreadScheduledExecutor(
+            Thread.ofPlatform().name("replica-health-check").daemon().factory()
+    );
+
+    public ReplicaRoutingDataSource(DataSource primary, List<DataSource> replicas, Strategy strategy,
+                                    Duration maxLag, Duration healthCheckInterval, MeterRegistry meterRegistry) {
+        this.primary = primary;
+        this.strategy = strategy;
+        this.maxLagMillis = maxLag.toMillis();
+        this.primaryConnections = connections(meterRegistry, "primary");
+        this.replicas = new ArrayList<>(replicas.size());
+        for (int i = 0; i < replicas.size(); i++) {
+            this.replicas.add(new Replica("replica-" + (i + 1), replicas.get(i), meterRegistry));
+        }
+        // Replicas start in rotation; a failed connection takes one out before the first check would.
+        long interval = healthCheckInterval.toMillis();
+        healthCheck.scheduleWithFixedDelay(this::checkReplicas, interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    private static Counter connections(MeterRegistry meterRegistry, String target) {
+        return Counter.builder("jdbc.routing.connections")
+                .description("Connections handed out by the replica router")
+                .tag("target", target)
+                .register(meterRegistry);
+    }
+
+    /**
+     * Routes connections taken on this thread to a replica until the scope is closed, unless the
+     * thread is already pinned to the primary.
+     */
+    public static Scope routeToReplica() {
+        return enter(Route.REPLICA, false);
+    }
+
+    /**
+     * Routes connections taken on this thread to the primary until the scope is closed, even for
+     * {@link ReadFromReplica} reads.
+     */
+    public static Scope pinToPrimary() {
+        return enter(Route.PRIMARY, true);
+    }
+
+    private static Scope enter(Route route, boolean override) {
+        Route previous = ROUTE.get();
+        if (previous == null || override) {
+            ROUTE.set(route);
+        }
+        return () -> {
+            if (previous == null) {
+                ROUTE.remove();
+            } else {
+                ROUTE.set(previous);
+            }
+        };
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        if (readsFromReplica()) {
+            for (Replica replica : availableReplicas()) {
+                try {
+                    Connection connection = replica.dataSource.getConnection();
+                    replica.connections.increment();
+                    return connection;
+                } catch (SQLException exception) {
+                    replica.markDown(exception);
+                }
+            }
+        }
+        primaryConnections.increment();
+        return primary.getConnection();
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        primaryConnections.increment();
+        return primary.getConnection(username, password);
+    }
+
+    private static boolean readsFromReplica() {
+        if (ROUTE.get() != Route.REPLICA) {
+            return false;
+        }
+        return !TransactionSynchronizationManager.isActualTransactionActive()
+                || TransactionSynchronizationManager.isCurrentTransactionReadOnly();
+    }
+
+    private List<Replica> availableReplicas() {
+        List<Replica> available = new ArrayList<>(replicas.size());
+        for (Replica replica : replicas) {
+            if (replica.up && replica.lagMillis <= maxLagMillis) {
+                available.add(replica);
+            }
+        }
+        if (available.size() > 1) {
+            if (strategy == Strategy.LEAST_LOADED) {
+                available.sort(Comparator.comparingInt(Replica::activeConnections));
+            } else {
+                int first = Math.floorMod(nextReplica.getAndIncrement(), available.size());
+                List<Replica> rotated = new ArrayList<>(available.subList(first, available.size()));
+                rotated.addAll(available.subList(0, first));
+                available = rotated;
+            }
+        }
+        return available;
+    }
+
+    void checkReplicas() {
+        for (Replica replica : replicas) {
+            try (Connection connection = replica.dataSource.getConnection();
+                 Statement statement = connection.createStatement();
+                 ResultSet lag = statement.executeQuery(LAG_QUERY)) {
+                lag.next();
+                double lagMillis = lag.getDouble(1);
+                if (lag.wasNull()) {
+                    throw new SQLException("not a streaming standby");
+                }
+                replica.lagMillis = (long) lagMillis;
+                if (!replica.up) {
+                    LOGGER.info("Replica {} is back in rotation", replica.name);
+                }
+                replica.up = true;
+            } catch (SQLException | RuntimeException exception) {
+                replica.markDown(exception);
+            }
+        }
+    }
+
+    @Override
+    public <T> T unwrap(Class<T> iface) throws SQLException {
+        return iface.isInstance(this) ? iface.cast(this) : primary.unwrap(iface);
+    }
+
+    @Override
+    public boolean isWrapperFor(Class<?> iface) throws SQLException {
+        return iface.isInstance(this) || primary.isWrapperFor(iface);
+    }
+
+    @Override
+    public void close() throws Exception {
+        healthCheck.shutdownNow();
+        for (Replica replica : replicas) {
+            if (replica.dataSource instanceof AutoCloseable closeable) {
+                closeable.close();
+            }
+        }
+        if (primary instanceof AutoCloseable closeable) {
+            closeable.close();
+        }
+    }
+
+    private static final class Replica {
+
+        private final String name;
+        private final DataSource dataSource;
+        private final Counter connections;
+        private volatile boolean up = true;
+        private volatile long lagMillis;
+
+        private Replica(String name, DataSource dataSource, MeterRegistry meterRegistry) {
+            this.name = name;
+            this.dataSource = dataSource;
+            this.connections = ReplicaRoutingDataSource.connections(meterRegistry, name);
+            Gauge.builder("jdbc.replica.available", this, replica -> replica.up ? 1 : 0)
+                    .description("Whether the replica is up, regardless of its lag")
+                    .tag("replica", name)
+                    .register(meterRegistry);
+            TimeGauge.builder("jdbc.replica.lag", this, TimeUnit.MILLISECONDS, replica -> replica.lagMillis)
+                    .description("Replication lag measured by the last health check")
+                    .tag("replica", name)
+                    .register(meterRegistry);
+        }
+
+        private void markDown(Exception exception) {
+            if (up) {
+                LOGGER.warn("Replica {} taken out of rotation: {}", name, exception.getMessage());
+            }
+            up = false;
+        }
+
+        private int activeConnections() {
+            if (dataSource instanceof HikariDataSource hikari) {
+                HikariPoolMXBean pool = hikari.getHikariPoolMXBean();
+                return pool == null ? 0 : pool.getActiveConnections();
+            }
+            return 0;
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package com.springbootcicdplayground;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordedFrame;
+import jdk.jfr.consumer.RecordingStream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+/**
+ * Streams the JFR {@code jdk.VirtualThreadPinned} event, which the JVM emits when a virtual thread
+ * blocks while pinned to its carrier (inside {@code synchronized} or a native frame) for longer than
+ * the threshold.
+ * <p>
+ * Every event is recorded in the {@code jvm.threads.virtual.pinned} timer. The first event from each
+ * distinct call site is also logged with its stack, so the offending code can be found without a
+ * recording.
+ */
+public class VirtualThreadPinningMonitor implements AutoCloseable {
+
+    static final String EVENT_NAME = "jdk.VirtualThreadPinned";
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(VirtualThreadPinningMonitor.class);
+    private static final int LOGGED_FRAMES = 8;
+
+    private final RecordingStream recordingStream = new RecordingStream();
+    private final Timer pinned;
+    private final Set<String> reportedStacks = ConcurrentHashMap.newKeySet();
+
+    public VirtualThreadPinningMonitor(MeterRegistry meterRegistry, Duration threshold) {
+        this.pinned = Timer.builder("jvm.threads.virtual.pinned")
+                .description("Time virtual threads spent blocked while pinned to their carrier")
+                .register(meterRegistry);
+        recordingStream.enable(EVENT_NAME).withThreshold(threshold).withStackTrace();
+        recordingStream.onEvent(EVENT_NAME, this::onPinned);
+        recordingStream.startAsync();
+    }
+
+    private void onPinned(RecordedEvent event) {
+        pinned.record(event.getDuration());
+        if (event.getStackTrace() == null) {
+            return;
+        }
+        List<RecordedFrame> frames = event.getStackTrace().getFrames();
+        String stack = frames.stream()
+                .limit(LOGGED_FRAMES)
+                .map(frame -> "%s.%s:%d".formatted(
+                        frame.getMethod().getType().getName(), frame.getMethod().getName(), frame.getLineNumber()
+                ))
+                .collect(Collectors.joining(System.lineSeparator() + "\tat "));
+        if (reportedStacks.add(stack)) {
+            LOGGER.warn("Virtual thread pinned for {} ms{}\tat {}",
+                    event.getDuration().toMillis(), System.lineSeparator(), stack);
+        }
+    }
+
+    @Override
+    public void close() {
+        recordingStream.close();
+    }
+}
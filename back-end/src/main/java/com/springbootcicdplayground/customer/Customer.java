@@ -1,5 +1,6 @@
 package com.springbootcicdplayground.customer;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import jakarta.persistence.*;
 
 import java.util.Objects;
@@ -20,7 +21,7 @@ public class Customer {
     @SequenceGenerator(
             name = "customer_id_seq",
             sequenceName = "customer_id_seq",
-            allocationSize = 1
+            allocationSize = CustomerIdAllocator.ALLOCATION_SIZE
     )
     @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "customer_id_seq")
     private Long id;
@@ -34,6 +35,14 @@ public class Customer {
     @Column(nullable = false)
     private Integer age;
 
+    /**
+     * Bumped by every update. It is sent as the ETag rather than in the body. New customers start at the
+     * column default.
+     */
+    @JsonIgnore
+    @Column(nullable = false)
+    private Long version = 0L;
+
     public Long getId() {
         return id;
     }
@@ -66,6 +75,15 @@ public class Customer {
         this.age = age;
     }
 
+    @JsonIgnore
+    public Long getVersion() {
+        return version;
+    }
+
+    public void setVersion(Long version) {
+        this.version = version;
+    }
+
     public Customer(Long id, String name, String email, Integer age) {
         this.id = id;
         this.name = name;
@@ -73,6 +91,11 @@ public class Customer {
         this.age = age;
     }
 
+    public Customer(Long id, String name, String email, Integer age, Long version) {
+        this(id, name, email, age);
+        this.version = version;
+    }
+
     public Customer(String name, String email, int age) {
         this.name = name;
         this.email = email;
@@ -89,6 +112,7 @@ public class Customer {
                 ", name='" + name + '\'' +
                 ", email='" + email + '\'' +
                 ", age='" + age + '\'' +
+                ", version=" + version +
                 '}';
     }
 
@@ -100,12 +124,13 @@ public class Customer {
         return Objects.equals(age, customer.age) &&
                 id.equals(customer.id) &&
                 name.equals(customer.name) &&
-                email.equals(customer.email);
+                email.equals(customer.email) &&
+                Objects.equals(version, customer.version);
     }
 
     @Override
     public int hashCode() {
-        return Objects.hash(id, name, email, age);
+        return Objects.hash(id, name, email, age, version);
     }
 
 }
@@ -0,0 +1,143 @@
+package com.springbootcicdplayground.customer;
+
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Function;
+
+/**
+ * Read-through cache of customers by id. Caffeine bounds it by size with a frequency-aware
+ * (W-TinyLFU) admission policy and expires entries after a fixed time to live.
+ * <p>
+ * A miss installs an incomplete future under the key, and the caller that installed it loads the
+ * customer outside the cache's locks. Concurrent callers for the same id wait on that future rather
+ * than loading again. No monitor is held across the database call, so a load neither blocks other
+ * keys in its hash bin nor pins a virtual thread to its carrier.
+ * <p>
+ * {@link #invalidate(Long)} removes an in-flight load together with cached values. The callers
+ * already waiting still get the loaded value, but it is never kept, so invalidating after a write has
+ * committed never leaves a value read before that write in the cache.
+ * <p>
+ * It also remembers invalidated ids for {@code customer.cache.write-settle-time}. While
+ * {@link #recentlyWritten(Long)} holds, a load must read the primary: a replica that has not replayed
+ * the write yet would put the old value back for a whole time to live.
+ */
+@Component
+public class CustomerCache implements MeterBinder {
+
+    private final AsyncCache<Long, Customer> cache;
+    private final Cache<Long, Boolean> recentWrites;
+
+    public CustomerCache(long maximumSize, Duration timeToLive) {
+        this(maximumSize, timeToLive, Duration.ofSeconds(5));
+    }
+
+    @Autowired
+    public CustomerCache(@Value("${customer.cache.maximum-size:10000}") long maximumSize,
+                         @Value("${customer.cache.time-to-live:10m}") Duration timeToLive,
+                         @Value("${customer.cache.write-settle-time:5s}") Duration writeSettleTime) {
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(timeToLive)
+                .recordStats()
+                .buildAsync();
+        this.recentWrites = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(writeSettleTime)
+                .build();
+    }
+
+    public Optional<Customer> get(Long id, Function<Long, Optional<Customer>> loader) {
+        CompletableFuture<Customer> load = new CompletableFuture<>();
+        CompletableFuture<Customer> cached = cache.get(id, (key, executor) -> load);
+        if (cached == load) {
+            try {
+                load.complete(loader.apply(id).orElse(null));
+            } catch (RuntimeException | Error exception) {
+                load.completeExceptionally(exception);
+                throw exception;
+            }
+        }
+        return Optional.ofNullable(join(cached));
+    }
+
+    /**
+     * Bulk variant of {@link #get(Long, Function)}. The ids that are neither cached nor loading are
+     * handed to the loader together, once, on the calling thread. Ids it returns no customer for are
+     * left out of the result and are not cached.
+     */
+    public Map<Long, Customer> getAll(Collection<Long> ids, Function<Set<Long>, Map<Long, Customer>> loader) {
+        return join(cache.getAll(ids, (keys, executor) -> {
+            try {
+                return CompletableFuture.completedFuture(loader.apply(Collections.unmodifiableSet(keys)));
+            } catch (RuntimeException exception) {
+                return CompletableFuture.failedFuture(exception);
+            }
+        }));
+    }
+
+    private static <T> T join(CompletableFuture<T> future) {
+        try {
+            return future.join();
+        } catch (CompletionException exception) {
+            // Another caller's load failed; surface its exception as if this caller had loaded.
+            if (exception.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw exception;
+        }
+    }
+
+    /**
+     * Non-blocking variant of {@link #get(Long, Function)}. The loader only starts the load and
+     * returns its future, which completes with {@code null} for a missing customer.
+     */
+    public CompletableFuture<Customer> getAsync(Long id, Function<Long, CompletableFuture<Customer>> loader) {
+        return cache.get(id, (key, executor) -> loader.apply(key));
+    }
+
+    public void put(Customer customer) {
+        cache.put(customer.getId(), CompletableFuture.completedFuture(customer));
+    }
+
+    public void invalidate(Long id) {
+        recentWrites.put(id, Boolean.TRUE);
+        cache.synchronous().invalidate(id);
+    }
+
+    public boolean recentlyWritten(Long id) {
+        return recentWrites.getIfPresent(id) != null;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        CaffeineCacheMetrics.monitor(registry, cache, "customers");
+    }
+
+    public CustomerCacheStats stats() {
+        CacheStats stats = cache.synchronous().stats();
+        return new CustomerCacheStats(
+                stats.hitCount(),
+                stats.missCount(),
+                stats.evictionCount(),
+                stats.hitRate(),
+                cache.synchronous().estimatedSize()
+        );
+    }
+}
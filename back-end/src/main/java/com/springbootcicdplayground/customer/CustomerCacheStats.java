@@ -0,0 +1,10 @@
+package com.springbootcicdplayground.customer;
+
+public record CustomerCacheStats(
+        long hitCount,
+        long missCount,
+        long evictionCount,
+        double hitRate,
+        long size
+) {
+}
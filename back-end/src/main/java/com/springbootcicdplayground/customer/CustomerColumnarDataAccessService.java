@@ -0,0 +1,482 @@
+package com.springbootcicdplayground.customer;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.BaseUnits;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.stereotype.Repository;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import java.util.stream.IntStream;
+
+/**
+ * Compact in-memory store for tens of millions of customers.
+ * <p>
+ * Each customer is a row across primitive columns: {@code long} ids, {@code int} ages and versions, and {@code long}
+ * references to names and emails held as UTF-8 in an {@link OffHeapStringArena}. Ids and emails are
+ * indexed by {@link RowHashIndex} tables of row numbers, so neither index boxes its keys. {@link Customer}
+ * objects are only built when rows leave the store.
+ * <p>
+ * Rows are append-only: a delete marks the row dead, and an update that changes a name or email appends
+ * the new string. Once dead rows outnumber live ones, or dead string bytes outweigh live ones, the next
+ * write compacts the store: live rows are copied into right-sized columns and a new arena, and both
+ * indexes are rebuilt. The old arena's buffers are freed when the garbage collector clears them. A
+ * compaction holds the write lock for a pass over the live rows, but it only follows at least as many
+ * dead rows or bytes as there are live ones, so its cost per write stays constant. Reads share a read
+ * lock and writes take the write lock.
+ * <p>
+ * The memory use is reported in the {@code customer.columnar.*} metrics and by {@link #footprint()}.
+ */
+@Repository("columnar")
+public class CustomerColumnarDataAccessService implements CustomerDao, MeterBinder {
+
+    static final int STREAM_PAGE_SIZE = 1000;
+    // Below these, dead space is not worth a pass over the store.
+    static final int COMPACTION_MIN_DEAD_ROWS = 1024;
+    static final long COMPACTION_MIN_DEAD_STRING_BYTES = 64 * 1024;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private OffHeapStringArena strings;
+    private RowHashIndex idIndex;
+    private RowHashIndex emailIndex;
+    private BitSet deletedRows = new BitSet();
+
+    private long[] ids;
+    private int[] ages;
+    private int[] versions;
+    private long[] nameRefs;
+    private long[] emailRefs;
+    private int rowCount;
+    private int liveRows;
+    private long liveStringBytes;
+    private long lastId;
+    private volatile int compactions;
+    // Stays true while rows are appended in id order, which lets paging binary-search the id column.
+    private boolean idsAscending = true;
+
+    @Autowired
+    public CustomerColumnarDataAccessService(
+            @Value("${customer.columnar.initial-capacity:1024}") int initialCapacity) {
+        this(initialCapacity, new OffHeapStringArena());
+    }
+
+    CustomerColumnarDataAccessService(int initialCapacity, OffHeapStringArena strings) {
+        int capacity = Math.max(initialCapacity, 16);
+        this.strings = strings;
+        this.ids = new long[capacity];
+        this.ages = new int[capacity];
+        this.versions = new int[capacity];
+        this.nameRefs = new long[capacity];
+        this.emailRefs = new long[capacity];
+        this.idIndex = newIdIndex(capacity);
+        this.emailIndex = newEmailIndex(capacity);
+    }
+
+    @Override
+    public List<Customer> selectAllCustomers() {
+        List<Customer> customers = new ArrayList<>();
+        streamAllCustomers(customers::add);
+        return customers;
+    }
+
+    @Override
+    public List<Customer> selectCustomersAfterId(Long afterId, int limit) {
+        return read(() -> {
+            List<Customer> page = new ArrayList<>(Math.min(limit, liveRows));
+            if (idsAscending) {
+                int from = Arrays.binarySearch(ids, 0, rowCount, afterId);
+                from = from >= 0 ? from + 1 : -from - 1;
+                for (int row = from; row < rowCount && page.size() < limit; row++) {
+                    if (!deletedRows.get(row)) {
+                        page.add(materialize(row));
+                    }
+                }
+                return page;
+            }
+            List<Integer> rows = new ArrayList<>();
+            for (int row = 0; row < rowCount; row++) {
+                if (!deletedRows.get(row) && ids[row] > afterId) {
+                    rows.add(row);
+                }
+            }
+            rows.stream()
+                    .sorted(Comparator.comparingLong(row -> ids[row]))
+                    .limit(limit)
+                    .forEach(row -> page.add(materialize(row)));
+            return page;
+        });
+    }
+
+    /**
+     * Hands out keyset pages so the read lock is never held while the caller consumes rows.
+     */
+    @Override
+    public void streamAllCustomers(Consumer<Customer> action) {
+        long afterId = 0L;
+        List<Customer> page;
+        do {
+            page = selectCustomersAfterId(afterId, STREAM_PAGE_SIZE);
+            for (Customer customer : page) {
+                action.accept(customer);
+                afterId = customer.getId();
+            }
+        } while (page.size() == STREAM_PAGE_SIZE);
+    }
+
+    @Override
+    public Optional<Customer> selectCustomerById(Long id) {
+        return read(() -> {
+            int row = findRowById(id);
+            return row < 0 ? Optional.empty() : Optional.of(materialize(row));
+        });
+    }
+
+    @Override
+    public List<Customer> selectCustomersByIds(Collection<Long> ids) {
+        return read(() -> {
+            List<Customer> customers = new ArrayList<>(ids.size());
+            for (Long id : ids) {
+                int row = findRowById(id);
+                if (row >= 0) {
+                    customers.add(materialize(row));
+                }
+            }
+            return customers;
+        });
+    }
+
+    @Override
+    public Customer insertCustomer(Customer customer) {
+        return insertCustomerIfEmailAvailable(customer)
+                .orElseThrow(() -> new DuplicateKeyException(
+                        "Email [%s] already taken".formatted(customer.getEmail())
+                ));
+    }
+
+    @Override
+    public Optional<Customer> insertCustomerIfEmailAvailable(Customer customer) {
+        return write(() -> Optional.ofNullable(append(customer)));
+    }
+
+    @Override
+    public List<Customer> insertCustomers(List<Customer> newCustomers) {
+        return write(() -> {
+            List<Customer> inserted = new ArrayList<>(newCustomers.size());
+            for (Customer customer : newCustomers) {
+                Customer stored = append(customer);
+                if (stored != null) {
+                    inserted.add(stored);
+                }
+            }
+            return inserted;
+        });
+    }
+
+    /**
+     * Scans the live rows, building a customer from each. The store keeps no trigram index, which would
+     * take more memory than its columns.
+     */
+    @Override
+    public List<Customer> searchCustomers(String query, int limit) {
+        return read(() -> CustomerTrigramIndex.rank(
+                query,
+                () -> IntStream.range(0, rowCount)
+                        .filter(row -> !deletedRows.get(row))
+                        .mapToObj(this::materialize)
+                        .iterator(),
+                limit
+        ));
+    }
+
+    @Override
+    public Map<Integer, Long> countCustomersByAge() {
+        return read(() -> {
+            Map<Integer, Long> counts = new HashMap<>();
+            for (int row = 0; row < rowCount; row++) {
+                if (!deletedRows.get(row)) {
+                    counts.merge(ages[row], 1L, Long::sum);
+                }
+            }
+            return counts;
+        });
+    }
+
+    @Override
+    public boolean existsCustomerWithEmail(String email) {
+        byte[] encoded = email.getBytes(StandardCharsets.UTF_8);
+        return read(() -> findRowByEmail(encoded) >= 0);
+    }
+
+    @Override
+    public Optional<Customer> deleteCustomer(Long id, Long expectedVersion) {
+        return write(() -> {
+            int row = findRowById(id);
+            if (row < 0 || expectedVersion != null && expectedVersion != versions[row]) {
+                return Optional.empty();
+            }
+            Customer deleted = materialize(row);
+            idIndex.remove(row);
+            emailIndex.remove(row);
+            deletedRows.set(row);
+            liveRows--;
+            liveStringBytes -= OffHeapStringArena.length(nameRefs[row]) + OffHeapStringArena.length(emailRefs[row]);
+            // The row's columns stay in place, only marked deleted, until the store is compacted.
+            compactIfMostlyDead();
+            return Optional.of(deleted);
+        });
+    }
+
+    @Override
+    public CustomerUpdateResult updateCustomerReturningPrevious(Customer changes, Long expectedVersion) {
+        byte[] email = changes.getEmail() == null ? null : changes.getEmail().getBytes(StandardCharsets.UTF_8);
+        byte[] name = changes.getName() == null ? null : changes.getName().getBytes(StandardCharsets.UTF_8);
+        return write(() -> {
+            int row = findRowById(changes.getId());
+            if (row < 0) {
+                return CustomerUpdateResult.notUpdated(CustomerUpdateOutcome.NOT_FOUND);
+            }
+            if (expectedVersion != null && expectedVersion != versions[row]) {
+                return CustomerUpdateResult.notUpdated(CustomerUpdateOutcome.VERSION_MISMATCH);
+            }
+            boolean emailChanged = email != null && !strings.matches(emailRefs[row], email);
+            if (emailChanged && findRowByEmail(email) >= 0) {
+                throw new DuplicateKeyException(
+                        "Email [%s] already taken".formatted(changes.getEmail())
+                );
+            }
+            boolean nameChanged = name != null && !strings.matches(nameRefs[row], name);
+            boolean ageChanged = changes.getAge() != null && changes.getAge() != ages[row];
+            if (!emailChanged && !nameChanged && !ageChanged) {
+                return CustomerUpdateResult.notUpdated(CustomerUpdateOutcome.UNCHANGED);
+            }
+            Customer previous = materialize(row);
+            if (emailChanged) {
+                emailIndex.remove(row);
+                liveStringBytes += email.length - OffHeapStringArena.length(emailRefs[row]);
+                emailRefs[row] = strings.append(email);
+                emailIndex.add(row);
+            }
+            if (nameChanged) {
+                liveStringBytes += name.length - OffHeapStringArena.length(nameRefs[row]);
+                nameRefs[row] = strings.append(name);
+            }
+            if (ageChanged) {
+                ages[row] = changes.getAge();
+            }
+            versions[row]++;
+            compactIfMostlyDead();
+            return CustomerUpdateResult.updated(previous);
+        });
+    }
+
+    /**
+     * Reports how much memory the store uses. Bytes per row count the reserved column and index
+     * capacity plus the string bytes written, dead or alive, divided by the number of live customers.
+     */
+    public CustomerStoreFootprint footprint() {
+        return read(() -> {
+            long heapBytes = (long) ids.length * (Long.BYTES * 3 + Integer.BYTES * 2)
+                    + deletedRows.size() / Byte.SIZE
+                    + idIndex.sizeInBytes()
+                    + emailIndex.sizeInBytes();
+            double bytesPerRow = liveRows == 0 ? 0 : (double) (heapBytes + strings.usedBytes()) / liveRows;
+            return new CustomerStoreFootprint(
+                    liveRows,
+                    rowCount - liveRows,
+                    heapBytes,
+                    strings.usedBytes(),
+                    strings.usedBytes() - liveStringBytes,
+                    strings.allocatedBytes(),
+                    bytesPerRow
+            );
+        });
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("customer.columnar.rows", this, store -> store.footprint().rows())
+                .description("Live customers in the columnar store")
+                .register(registry);
+        Gauge.builder("customer.columnar.dead.rows", this, store -> store.footprint().deadRows())
+                .description("Deleted rows the next compaction drops")
+                .register(registry);
+        Gauge.builder("customer.columnar.memory.used", this, store -> store.footprint().heapBytes())
+                .description("Column and index capacity of the columnar store")
+                .baseUnit(BaseUnits.BYTES)
+                .tag("area", "heap")
+                .register(registry);
+        Gauge.builder("customer.columnar.memory.used", this, store -> store.footprint().offHeapUsedBytes())
+                .description("String bytes written to the columnar store, dead or alive")
+                .baseUnit(BaseUnits.BYTES)
+                .tag("area", "off-heap")
+                .register(registry);
+        Gauge.builder("customer.columnar.memory.dead", this, store -> store.footprint().offHeapDeadBytes())
+                .description("String bytes of deleted rows and replaced values")
+                .baseUnit(BaseUnits.BYTES)
+                .tag("area", "off-heap")
+                .register(registry);
+        Gauge.builder("customer.columnar.memory.allocated", this, store -> store.footprint().offHeapAllocatedBytes())
+                .description("Off-heap bytes reserved for strings")
+                .baseUnit(BaseUnits.BYTES)
+                .tag("area", "off-heap")
+                .register(registry);
+        Gauge.builder("customer.columnar.bytes.per.row", this, store -> store.footprint().bytesPerRow())
+                .description("Heap and off-heap bytes used per live customer")
+                .baseUnit(BaseUnits.BYTES)
+                .register(registry);
+        FunctionCounter.builder("customer.columnar.compactions", this, store -> store.compactions)
+                .description("Compactions that reclaimed dead rows and strings")
+                .register(registry);
+    }
+
+    /**
+     * @return the stored customer, or {@code null} when the email is taken
+     */
+    private Customer append(Customer customer) {
+        byte[] email = customer.getEmail().getBytes(StandardCharsets.UTF_8);
+        if (findRowByEmail(email) >= 0) {
+            return null;
+        }
+        long id = customer.getId() != null ? customer.getId() : lastId + 1;
+        if (findRowById(id) >= 0) {
+            throw new DuplicateKeyException("Customer with id [%s] already exists".formatted(id));
+        }
+        if (rowCount == ids.length) {
+            grow();
+        }
+        int row = rowCount;
+        ids[row] = id;
+        ages[row] = customer.getAge();
+        versions[row] = 0;
+        byte[] name = customer.getName().getBytes(StandardCharsets.UTF_8);
+        nameRefs[row] = strings.append(name);
+        emailRefs[row] = strings.append(email);
+        rowCount++;
+        liveRows++;
+        liveStringBytes += name.length + email.length;
+        idIndex.add(row);
+        emailIndex.add(row);
+        if (row > 0 && id <= ids[row - 1]) {
+            idsAscending = false;
+        }
+        lastId = Math.max(lastId, id);
+        return materialize(row);
+    }
+
+    private void grow() {
+        int capacity = ids.length + (ids.length >> 1);
+        ids = Arrays.copyOf(ids, capacity);
+        ages = Arrays.copyOf(ages, capacity);
+        versions = Arrays.copyOf(versions, capacity);
+        nameRefs = Arrays.copyOf(nameRefs, capacity);
+        emailRefs = Arrays.copyOf(emailRefs, capacity);
+    }
+
+    private void compactIfMostlyDead() {
+        int deadRows = rowCount - liveRows;
+        long deadStringBytes = strings.usedBytes() - liveStringBytes;
+        if (deadRows >= COMPACTION_MIN_DEAD_ROWS && deadRows >= liveRows
+                || deadStringBytes >= COMPACTION_MIN_DEAD_STRING_BYTES && deadStringBytes >= liveStringBytes) {
+            compact();
+        }
+    }
+
+    /**
+     * Copies the live rows, in their current order, into new columns and a new arena, and rebuilds the
+     * indexes over the new row numbers. Must hold the write lock.
+     */
+    private void compact() {
+        int capacity = Math.max(liveRows + (liveRows >> 1), 16);
+        OffHeapStringArena liveStrings = new OffHeapStringArena(strings.chunkSize());
+        long[] liveIds = new long[capacity];
+        int[] liveAges = new int[capacity];
+        int[] liveVersions = new int[capacity];
+        long[] liveNameRefs = new long[capacity];
+        long[] liveEmailRefs = new long[capacity];
+        int live = 0;
+        for (int row = deletedRows.nextClearBit(0); row < rowCount; row = deletedRows.nextClearBit(row + 1)) {
+            liveIds[live] = ids[row];
+            liveAges[live] = ages[row];
+            liveVersions[live] = versions[row];
+            liveNameRefs[live] = strings.copyTo(nameRefs[row], liveStrings);
+            liveEmailRefs[live] = strings.copyTo(emailRefs[row], liveStrings);
+            live++;
+        }
+        strings = liveStrings;
+        ids = liveIds;
+        ages = liveAges;
+        versions = liveVersions;
+        nameRefs = liveNameRefs;
+        emailRefs = liveEmailRefs;
+        rowCount = live;
+        deletedRows = new BitSet();
+        idIndex = newIdIndex(capacity);
+        emailIndex = newEmailIndex(capacity);
+        for (int row = 0; row < rowCount; row++) {
+            idIndex.add(row);
+            emailIndex.add(row);
+        }
+        compactions++;
+    }
+
+    private RowHashIndex newIdIndex(int capacity) {
+        return new RowHashIndex(capacity, row -> Long.hashCode(ids[row]));
+    }
+
+    private RowHashIndex newEmailIndex(int capacity) {
+        return new RowHashIndex(capacity, row -> strings.hash(emailRefs[row]));
+    }
+
+    private int findRowById(long id) {
+        return idIndex.find(Long.hashCode(id), row -> ids[row] == id);
+    }
+
+    private int findRowByEmail(byte[] email) {
+        return emailIndex.find(OffHeapStringArena.hash(email), row -> strings.matches(emailRefs[row], email));
+    }
+
+    private Customer materialize(int row) {
+        return new Customer(
+                ids[row],
+                strings.read(nameRefs[row]),
+                strings.read(emailRefs[row]),
+                ages[row],
+                (long) versions[row]
+        );
+    }
+
+    private <T> T read(Supplier<T> action) {
+        return locked(lock.readLock(), action);
+    }
+
+    private <T> T write(Supplier<T> action) {
+        return locked(lock.writeLock(), action);
+    }
+
+    private static <T> T locked(Lock lock, Supplier<T> action) {
+        lock.lock();
+        try {
+            return action.get();
+        } finally {
+            lock.unlock();
+        }
+    }
+}
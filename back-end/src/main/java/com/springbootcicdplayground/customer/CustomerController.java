@@ -1,19 +1,43 @@
 package com.springbootcicdplayground.customer;
 
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.springbootcicdplayground.exception.RequestValidationException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.net.URI;
+import java.util.ArrayList;
 import java.util.List;
 
 @RestController
 @RequestMapping("api/v1/customer")
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
 public class CustomerController {
+    static final String APPLICATION_NDJSON_VALUE = "application/x-ndjson";
+    static final int EXPORT_FLUSH_INTERVAL = 1000;
+    static final int REGISTRATION_BATCH_SIZE = 500;
+
     private final CustomerService customerService;
+    private final CustomerCsvImportService customerCsvImportService;
+    private final ObjectMapper objectMapper;
 
-    public CustomerController(CustomerService customerService) {
+    public CustomerController(CustomerService customerService,
+                              CustomerCsvImportService customerCsvImportService,
+                              ObjectMapper objectMapper) {
         this.customerService = customerService;
+        this.customerCsvImportService = customerCsvImportService;
+        this.objectMapper = objectMapper;
     }
 
     @GetMapping
@@ -21,9 +45,85 @@ public class CustomerController {
         return customerService.getAllCustomer();
     }
 
+    @GetMapping(params = "limit")
+    public CustomerPage getCustomerPage(@RequestParam("limit") int limit,
+                                        @RequestParam(value = "after", required = false) String after) {
+        return customerService.getCustomerPage(limit, after);
+    }
+
+    /**
+     * Returns the customers with the given ids, in one round trip for the ids that are not cached, and
+     * lists the ids that do not exist.
+     */
+    @GetMapping(params = "ids")
+    public CustomerLookupResult getCustomersByIds(@RequestParam("ids") List<Long> ids) {
+        return customerService.getCustomers(ids);
+    }
+
+    /**
+     * Same as {@link #getCustomersByIds(List)} for lists of ids too long for a URL.
+     */
+    @PostMapping(value = "lookup", consumes = MediaType.APPLICATION_JSON_VALUE)
+    public CustomerLookupResult lookupCustomers(@RequestBody CustomerLookupRequest customerLookupRequest) {
+        return customerService.getCustomers(customerLookupRequest.ids());
+    }
+
+    @GetMapping("search")
+    public List<Customer> searchCustomers(@RequestParam("q") String query,
+                                          @RequestParam(value = "limit", defaultValue = "20") int limit) {
+        return customerService.searchCustomers(query, limit);
+    }
+
+    /**
+     * Streams every customer as newline-delimited JSON on the request thread. Writes block once
+     * the socket buffer is full, which in turn stalls the database cursor, so a slow client
+     * holds back the export instead of letting rows pile up in memory.
+     */
+    @GetMapping(value = "export", produces = APPLICATION_NDJSON_VALUE)
+    public void exportCustomers(HttpServletResponse response) throws IOException {
+        response.setContentType(APPLICATION_NDJSON_VALUE);
+
+        try (CustomerJsonWriter writer = new CustomerJsonWriter(response.getOutputStream())) {
+            int[] written = {0};
+
+            customerService.exportCustomers(customer -> {
+                try {
+                    writer.writeCustomer(customer);
+                    writer.writeByte('\n');
+                    if (++written[0] % EXPORT_FLUSH_INTERVAL == 0) {
+                        writer.flush();
+                    }
+                } catch (IOException exception) {
+                    throw new UncheckedIOException(exception);
+                }
+            });
+        }
+    }
+
+    /**
+     * Served from in-memory aggregates, without a query.
+     */
+    @GetMapping("stats")
+    public CustomerStats getStats() {
+        return customerService.getStats();
+    }
+
+    @GetMapping("cache/stats")
+    public CustomerCacheStats getCacheStats() {
+        return customerService.getCacheStats();
+    }
+
+    /**
+     * Answers a matching {@code If-None-Match} with 304 and no body. A cached customer is checked
+     * without touching the database.
+     */
     @GetMapping("{id}")
-    public Customer getCustomer(@PathVariable("id") Long id) {
-        return customerService.getCustomer(id);
+    public Customer getCustomer(@PathVariable("id") Long id, WebRequest request) {
+        Customer customer = customerService.getCustomer(id);
+        if (request.checkNotModified(CustomerETags.of(customer))) {
+            return null;
+        }
+        return customer;
     }
 
     @PostMapping
@@ -39,13 +139,52 @@ public class CustomerController {
         return ResponseEntity.created(location).build();
     }
 
+    /**
+     * Reads the JSON array element by element and registers it in chunks, so only one chunk
+     * of requests is held in memory at a time.
+     */
+    @PostMapping(value = "batch", consumes = MediaType.APPLICATION_JSON_VALUE)
+    public List<CustomerRegistrationResult> registerCustomers(HttpServletRequest request) throws IOException {
+        List<CustomerRegistrationResult> results = new ArrayList<>();
+        List<CustomerRegistrationRequest> chunk = new ArrayList<>(REGISTRATION_BATCH_SIZE);
+
+        try (MappingIterator<CustomerRegistrationRequest> requests = objectMapper
+                .readerFor(CustomerRegistrationRequest.class)
+                .readValues(request.getInputStream())) {
+            while (requests.hasNextValue()) {
+                chunk.add(requests.nextValue());
+                if (chunk.size() == REGISTRATION_BATCH_SIZE) {
+                    results.addAll(customerService.addCustomers(chunk));
+                    chunk.clear();
+                }
+            }
+        } catch (JsonProcessingException exception) {
+            throw new RequestValidationException("Malformed customer batch: " + exception.getOriginalMessage());
+        }
+
+        if (!chunk.isEmpty()) {
+            results.addAll(customerService.addCustomers(chunk));
+        }
+        return results;
+    }
+
+    @PostMapping(value = "import", consumes = "text/csv")
+    public CustomerImportResult importCustomers(HttpServletRequest request,
+                                                @RequestParam(value = "header", defaultValue = "true") boolean header)
+            throws IOException {
+        return customerCsvImportService.importCustomers(request.getInputStream(), header);
+    }
+
     @PutMapping("{id}")
-    public void updateCustomer(@PathVariable("id") Long id, @RequestBody CustomerUpdateRequest customerUpdateRequest) {
-        customerService.updateCustomer(id, customerUpdateRequest);
+    public void updateCustomer(@PathVariable("id") Long id,
+                               @RequestBody CustomerUpdateRequest customerUpdateRequest,
+                               @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        customerService.updateCustomer(id, customerUpdateRequest, CustomerETags.expectedVersion(ifMatch));
     }
 
     @DeleteMapping("{id}")
-    public void deleteCustomer(@PathVariable("id") Long id) {
-        customerService.deleteCustomer(id);
+    public void deleteCustomer(@PathVariable("id") Long id,
+                               @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        customerService.deleteCustomer(id, CustomerETags.expectedVersion(ifMatch));
     }
 }
@@ -0,0 +1,97 @@
+package com.springbootcicdplayground.customer;
+
+import com.springbootcicdplayground.exception.RequestValidationException;
+import org.postgresql.PGConnection;
+import org.springframework.stereotype.Service;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.io.InputStream;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * Bulk-loads customers from CSV ({@code name,email,age}) with PostgreSQL {@code COPY}. Rows are
+ * streamed from the input into a transaction-scoped staging table and then merged into
+ * {@code customer} in one statement, letting {@code customer_email_unique} reject duplicates.
+ * The customer statistics are reconciled afterwards, since the rows never pass through {@link CustomerService}.
+ */
+@Service
+public class CustomerCsvImportService {
+
+    private static final String CREATE_STAGING_TABLE_SQL = """
+            CREATE TEMPORARY TABLE customer_import (
+                name text,
+                email text,
+                age text
+            ) ON COMMIT DROP
+            """;
+
+    private static final String COUNT_INVALID_ROWS_SQL = """
+            SELECT count(*)
+            FROM customer_import
+            WHERE name IS NULL OR email IS NULL OR age IS NULL OR age !~ '^\\s*\\d{1,9}\\s*$'
+            """;
+
+    private static final String MERGE_SQL = """
+            INSERT INTO customer(name, email, age)
+            SELECT name, email, trim(age)::int
+            FROM customer_import
+            WHERE name IS NOT NULL AND email IS NOT NULL AND age ~ '^\\s*\\d{1,9}\\s*$'
+            ON CONFLICT ON CONSTRAINT customer_email_unique DO NOTHING
+            """;
+
+    private final DataSource dataSource;
+    private final CustomerStatistics customerStatistics;
+
+    public CustomerCsvImportService(DataSource dataSource, CustomerStatistics customerStatistics) {
+        this.dataSource = dataSource;
+        this.customerStatistics = customerStatistics;
+    }
+
+    public CustomerImportResult importCustomers(InputStream csv, boolean header) {
+        CustomerImportResult result = copyCustomers(csv, header);
+        if (result.inserted() > 0) {
+            customerStatistics.reconcile();
+        }
+        return result;
+    }
+
+    private CustomerImportResult copyCustomers(InputStream csv, boolean header) {
+        String copySql = "COPY customer_import (name, email, age) FROM STDIN WITH (FORMAT csv, HEADER %s)"
+                .formatted(header);
+
+        try (Connection connection = dataSource.getConnection()) {
+            boolean autoCommit = connection.getAutoCommit();
+            connection.setAutoCommit(false);
+            try (Statement statement = connection.createStatement()) {
+                statement.execute(CREATE_STAGING_TABLE_SQL);
+                long received = connection.unwrap(PGConnection.class).getCopyAPI().copyIn(copySql, csv);
+
+                long invalid;
+                try (ResultSet resultSet = statement.executeQuery(COUNT_INVALID_ROWS_SQL)) {
+                    resultSet.next();
+                    invalid = resultSet.getLong(1);
+                }
+                long inserted = statement.executeLargeUpdate(MERGE_SQL);
+                connection.commit();
+
+                return new CustomerImportResult(received, inserted, received - invalid - inserted, invalid);
+            } catch (SQLException | IOException | RuntimeException exception) {
+                connection.rollback();
+                throw exception;
+            } finally {
+                connection.setAutoCommit(autoCommit);
+            }
+        } catch (SQLException exception) {
+            if (exception.getSQLState() != null && exception.getSQLState().startsWith("22")) {
+                throw new RequestValidationException("Malformed customer CSV: " + exception.getMessage());
+            }
+            throw new RuntimeException("Failed to import customers: " + exception.getMessage());
+        } catch (IOException exception) {
+            throw new RuntimeException("Failed to import customers: " + exception.getMessage());
+        }
+    }
+}
@@ -1,13 +1,67 @@
 package com.springbootcicdplayground.customer;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.function.Consumer;
 
 public interface CustomerDao {
     List<Customer> selectAllCustomers();
+    List<Customer> selectCustomersAfterId(Long afterId, int limit);
+    void streamAllCustomers(Consumer<Customer> action);
     Optional<Customer> selectCustomerById(Long id);
+    /**
+     * @return the customers with the given ids that exist, in no particular order
+     */
+    List<Customer> selectCustomersByIds(Collection<Long> ids);
     Customer insertCustomer(Customer customer);
+    Optional<Customer> insertCustomerIfEmailAvailable(Customer customer);
+    List<Customer> insertCustomers(List<Customer> customers);
+    /**
+     * @return at most {@code limit} customers whose name or email contains {@code query} ignoring case,
+     * or closely resembles it, best match first
+     */
+    List<Customer> searchCustomers(String query, int limit);
+    /**
+     * @return how many customers there are of each age
+     */
+    Map<Integer, Long> countCustomersByAge();
     boolean existsCustomerWithEmail(String email);
-    void deleteCustomerById(Long id);
-    void updateCustomer(Customer customer);
+    /**
+     * @return whether a customer was deleted
+     */
+    default boolean deleteCustomerById(Long id) {
+        return deleteCustomerById(id, null);
+    }
+    /**
+     * Deletes the customer only while it is at {@code expectedVersion}, unless that is {@code null}.
+     *
+     * @return whether a customer was deleted
+     */
+    default boolean deleteCustomerById(Long id, Long expectedVersion) {
+        return deleteCustomer(id, expectedVersion).isPresent();
+    }
+    /**
+     * Same as {@link #deleteCustomerById(Long, Long)}, in the same single write.
+     *
+     * @return the customer as it was deleted, or empty when none was
+     */
+    Optional<Customer> deleteCustomer(Long id, Long expectedVersion);
+    default CustomerUpdateOutcome updateCustomer(Customer changes) {
+        return updateCustomer(changes, null);
+    }
+    /**
+     * Writes the non-null fields of {@code changes} to the customer with its id and bumps its version,
+     * unless they all match what is stored. A non-null {@code expectedVersion} must match the stored
+     * version as well.
+     */
+    default CustomerUpdateOutcome updateCustomer(Customer changes, Long expectedVersion) {
+        return updateCustomerReturningPrevious(changes, expectedVersion).outcome();
+    }
+    /**
+     * Same as {@link #updateCustomer(Customer, Long)}, in the same single write, which also reads the
+     * customer as it was before an update.
+     */
+    CustomerUpdateResult updateCustomerReturningPrevious(Customer changes, Long expectedVersion);
 ;}
@@ -0,0 +1,40 @@
+package com.springbootcicdplayground.customer;
+
+import com.springbootcicdplayground.exception.PreconditionFailedException;
+
+/**
+ * Strong ETags for single customers. A customer's ETag is its quoted version.
+ */
+final class CustomerETags {
+
+    private CustomerETags() {
+    }
+
+    static String of(Customer customer) {
+        return "\"" + customer.getVersion() + "\"";
+    }
+
+    /**
+     * @return the version an {@code If-Match} header requires, or {@code null} when there is no header
+     * or it is {@code *}
+     * @throws PreconditionFailedException when the header is not a single strong ETag of a customer,
+     * which can never match
+     */
+    static Long expectedVersion(String ifMatch) {
+        if (ifMatch == null || ifMatch.isBlank()) {
+            return null;
+        }
+        String tag = ifMatch.trim();
+        if (tag.equals("*")) {
+            return null;
+        }
+        if (tag.length() > 2 && tag.startsWith("\"") && tag.endsWith("\"")) {
+            try {
+                return Long.parseLong(tag.substring(1, tag.length() - 1));
+            } catch (NumberFormatException ignored) {
+                // Falls through to the failed precondition.
+            }
+        }
+        throw new PreconditionFailedException("If-Match [%s] does not match the customer".formatted(ifMatch));
+    }
+}
@@ -0,0 +1,69 @@
+package com.springbootcicdplayground.customer;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayDeque;
+import java.util.Queue;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Hands out customer ids from blocks reserved on {@code customer_id_seq}. The sequence steps by
+ * {@link #ALLOCATION_SIZE}, and each value {@code v} it returns reserves the block
+ * {@code (v - ALLOCATION_SIZE, v]}, which is the same layout Hibernate's pooled optimizer uses
+ * for {@link Customer}, so ids drawn here never collide with ids assigned by the JPA path.
+ */
+@Component
+public class CustomerIdAllocator {
+
+    public static final int ALLOCATION_SIZE = 50;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Queue<Long> reservedBlocks = new ArrayDeque<>();
+    private long next = 1;
+    private long high = 0;
+
+    public CustomerIdAllocator(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    public long nextId() {
+        return nextIds(1)[0];
+    }
+
+    public long[] nextIds(int count) {
+        long[] ids = new long[count];
+        lock.lock();
+        try {
+            int filled = 0;
+            while (filled < count) {
+                if (next > high) {
+                    if (reservedBlocks.isEmpty()) {
+                        reserveBlocks(count - filled);
+                    }
+                    high = reservedBlocks.poll();
+                    next = Math.max(high - ALLOCATION_SIZE + 1, 1);
+                }
+                while (filled < count && next <= high) {
+                    ids[filled++] = next++;
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+        return ids;
+    }
+
+    /**
+     * Reserves enough blocks for {@code needed} ids in a single round trip.
+     */
+    private void reserveBlocks(int needed) {
+        int blocks = (needed + ALLOCATION_SIZE - 1) / ALLOCATION_SIZE;
+        reservedBlocks.addAll(jdbcTemplate.queryForList(
+                "SELECT nextval('customer_id_seq') FROM generate_series(1, ?)",
+                Long.class,
+                blocks
+        ));
+    }
+}
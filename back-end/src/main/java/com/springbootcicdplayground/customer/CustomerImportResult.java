@@ -0,0 +1,9 @@
+package com.springbootcicdplayground.customer;
+
+public record CustomerImportResult(
+        long received,
+        long inserted,
+        long duplicates,
+        long invalid
+) {
+}
@@ -1,36 +1,84 @@
 package com.springbootcicdplayground.customer;
 
 import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
-import java.util.ArrayList;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.function.Consumer;
 
 @Repository("jdbc")
 public class CustomerJDBCDataAccessService implements CustomerDao {
+    static final int STREAM_FETCH_SIZE = 1000;
+
     private final JdbcTemplate jdbcTemplate;
     private final CustomerRowMapper customerRowMapper;
+    private final CustomerIdAllocator customerIdAllocator;
 
-    public CustomerJDBCDataAccessService(JdbcTemplate jdbcTemplate, CustomerRowMapper customerRowMapper) {
+    public CustomerJDBCDataAccessService(JdbcTemplate jdbcTemplate,
+                                         CustomerRowMapper customerRowMapper,
+                                         CustomerIdAllocator customerIdAllocator) {
         this.jdbcTemplate = jdbcTemplate;
         this.customerRowMapper = customerRowMapper;
+        this.customerIdAllocator = customerIdAllocator;
     }
 
     @Override
     public List<Customer> selectAllCustomers() {
         var sql = """
-                SELECT id, name, email, age
+                SELECT id, name, email, age, version
                 FROM customer
                 """;
 
         return jdbcTemplate.query(sql, customerRowMapper);
     }
 
+    @Override
+    public List<Customer> selectCustomersAfterId(Long afterId, int limit) {
+        var sql = """
+                SELECT id, name, email, age, version
+                FROM customer
+                WHERE id > ?
+                ORDER BY id
+                LIMIT ?
+                """;
+
+        return jdbcTemplate.query(sql, customerRowMapper, afterId, limit);
+    }
+
+    /**
+     * Reads through a forward-only server-side cursor. PostgreSQL only honours the fetch size
+     * outside auto-commit, hence the read-only transaction around the query.
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public void streamAllCustomers(Consumer<Customer> action) {
+        var sql = """
+                SELECT id, name, email, age, version
+                FROM customer
+                """;
+
+        jdbcTemplate.query(connection -> {
+            PreparedStatement statement = connection.prepareStatement(
+                    sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY
+            );
+            statement.setFetchSize(STREAM_FETCH_SIZE);
+            return statement;
+        }, (RowCallbackHandler) rs -> action.accept(customerRowMapper.mapRow(rs, rs.getRow())));
+    }
+
     @Override
     public Optional<Customer> selectCustomerById(Long id) {
         var sql = """
-                SELECT id, name, email, age
+                SELECT id, name, email, age, version
                 FROM customer
                 WHERE id = ?
                 """;
@@ -38,76 +86,196 @@ public class CustomerJDBCDataAccessService implements CustomerDao {
         return jdbcTemplate.query(sql, customerRowMapper, id).stream().findFirst();
     }
 
+    /**
+     * Looks every id up in one statement. The ids go as one array parameter, so the SQL text is the
+     * same for any number of ids.
+     */
     @Override
-    public Customer insertCustomer(Customer customer) {
+    public List<Customer> selectCustomersByIds(Collection<Long> ids) {
         var sql = """
-                INSERT INTO customer(name, email, age)
-                VALUES (?, ?, ?)
+                SELECT id, name, email, age, version
+                FROM customer
+                WHERE id = ANY(?)
                 """;
 
-        int result = jdbcTemplate.update(sql, customer.getName(), customer.getEmail(), customer.getAge());
+        return jdbcTemplate.query(connection -> {
+            PreparedStatement statement = connection.prepareStatement(sql);
+            statement.setArray(1, connection.createArrayOf("int8", ids.toArray()));
+            return statement;
+        }, customerRowMapper);
+    }
+
+    @Override
+    public Customer insertCustomer(Customer customer) {
+        var sql = """
+                INSERT INTO customer(id, name, email, age)
+                VALUES (?, ?, ?, ?)
+                """;
 
-        System.out.println("jdbcTemplate.update = " + result);
+        long id = customerIdAllocator.nextId();
+        jdbcTemplate.update(sql, id, customer.getName(), customer.getEmail(), customer.getAge());
 
+        customer.setId(id);
         return customer;
     }
 
     @Override
-    public boolean existsCustomerWithEmail(String email) {
+    public Optional<Customer> insertCustomerIfEmailAvailable(Customer customer) {
         var sql = """
-                SELECT count(id)
+                INSERT INTO customer(id, name, email, age)
+                VALUES (?, ?, ?, ?)
+                ON CONFLICT ON CONSTRAINT customer_email_unique DO NOTHING
+                RETURNING id
+                """;
+
+        return jdbcTemplate.queryForList(
+                sql,
+                Long.class,
+                customerIdAllocator.nextId(), customer.getName(), customer.getEmail(), customer.getAge()
+        ).stream().findFirst().map(id -> new Customer(id, customer.getName(), customer.getEmail(), customer.getAge()));
+    }
+
+    /**
+     * Inserts the whole chunk in one statement by unnesting parallel arrays, so the SQL text
+     * is the same for every chunk size. Rows whose email is already taken, including repeats
+     * within the chunk, are skipped by the unique constraint and left out of the result.
+     */
+    @Override
+    public List<Customer> insertCustomers(List<Customer> customers) {
+        var sql = """
+                INSERT INTO customer(id, name, email, age)
+                SELECT id, name, email, age
+                FROM unnest(?::bigint[], ?::text[], ?::text[], ?::int[]) AS batch(id, name, email, age)
+                ON CONFLICT ON CONSTRAINT customer_email_unique DO NOTHING
+                RETURNING id, name, email, age, version
+                """;
+
+        long[] ids = customerIdAllocator.nextIds(customers.size());
+
+        return jdbcTemplate.query(connection -> {
+            PreparedStatement statement = connection.prepareStatement(sql);
+            statement.setArray(1, connection.createArrayOf("int8",
+                    Arrays.stream(ids).boxed().toArray()));
+            statement.setArray(2, connection.createArrayOf("text",
+                    customers.stream().map(Customer::getName).toArray()));
+            statement.setArray(3, connection.createArrayOf("text",
+                    customers.stream().map(Customer::getEmail).toArray()));
+            statement.setArray(4, connection.createArrayOf("int4",
+                    customers.stream().map(Customer::getAge).toArray()));
+            return statement;
+        }, customerRowMapper);
+    }
+
+    /**
+     * Both conditions on each column are served by its {@code pg_trgm} GIN index: {@code ILIKE} for
+     * substrings and {@code <%} for words that resemble the query.
+     */
+    @Override
+    public List<Customer> searchCustomers(String query, int limit) {
+        var sql = """
+                SELECT id, name, email, age, version
+                FROM customer
+                WHERE name ILIKE ? OR email ILIKE ? OR ? <% name OR ? <% email
+                ORDER BY greatest(word_similarity(?, name), word_similarity(?, email)) DESC, id
+                LIMIT ?
+                """;
+
+        String pattern = CustomerTrigramIndex.containsPattern(query);
+        return jdbcTemplate.query(sql, customerRowMapper, pattern, pattern, query, query, query, query, limit);
+    }
+
+    @Override
+    public Map<Integer, Long> countCustomersByAge() {
+        var sql = """
+                SELECT age, count(*)
                 FROM customer
-                WHERE email = ?
+                GROUP BY age
+                """;
+
+        Map<Integer, Long> counts = new HashMap<>();
+        jdbcTemplate.query(sql, resultSet -> {
+            counts.put(resultSet.getInt(1), resultSet.getLong(2));
+        });
+        return counts;
+    }
+
+    @Override
+    public boolean existsCustomerWithEmail(String email) {
+        var sql = """
+                SELECT EXISTS (
+                    SELECT 1
+                    FROM customer
+                    WHERE email = ?
+                )
                 """;
 
-        Integer count = jdbcTemplate.queryForObject(sql, Integer.class, email);
-        return count != null && count > 0;
+        return Boolean.TRUE.equals(jdbcTemplate.queryForObject(sql, Boolean.class, email));
     }
 
     @Override
-    public void deleteCustomerById(Long id) {
+    public Optional<Customer> deleteCustomer(Long id, Long expectedVersion) {
         var sql = """
                 DELETE
                 FROM customer
                 WHERE id = ?
+                  AND (CAST(? AS bigint) IS NULL OR version = ?)
+                RETURNING id, name, email, age, version
                 """;
 
-        int result = jdbcTemplate.update(sql, id);
-        System.out.println("deleteCustomerById Result: " + result);
+        return jdbcTemplate.query(sql, customerRowMapper, id, expectedVersion, expectedVersion)
+                .stream()
+                .findFirst();
     }
 
     @Override
-    public void updateCustomer(Customer customer) {
-        List<Object> params = new ArrayList<>();
-        StringBuilder sql = new StringBuilder("UPDATE customer SET ");
-
-        if (customer.getName() != null) {
-            sql.append("name = ?, ");
-            params.add(customer.getName());
-        }
-
-        if (customer.getEmail() != null) {
-            sql.append("email = ?, ");
-            params.add(customer.getEmail());
-        }
-
-        if (customer.getAge() != null) {
-            sql.append("age = ?, ");
-            params.add(customer.getAge());
-        }
-
-        int len = sql.length();
-        sql.delete(len - 2, len);
-        sql.append(" WHERE id = ?");
-        params.add(customer.getId());
-
-        int result = 0;
-        try {
-            result = jdbcTemplate.update(sql.toString(), params.toArray());
-        } catch (Exception e) {
-            throw new RuntimeException("Could not update customer: " + e.getMessage());
-        }
-
-        System.out.println("jdbcUpdateCustomer Result: " + result);
+    public CustomerUpdateResult updateCustomerReturningPrevious(Customer changes, Long expectedVersion) {
+        // A null change compares as unknown, so it neither counts as a difference nor overwrites the column.
+        // Locking the row in a subquery makes it the version the update writes over, the only way to read
+        // the previous values in the same statement.
+        var sql = """
+                WITH changes AS (
+                    SELECT CAST(? AS text) AS name, CAST(? AS text) AS email, CAST(? AS int) AS age,
+                           CAST(? AS bigint) AS version
+                ), updated AS (
+                    UPDATE customer
+                    SET name    = coalesce(changes.name, customer.name),
+                        email   = coalesce(changes.email, customer.email),
+                        age     = coalesce(changes.age, customer.age),
+                        version = customer.version + 1
+                    FROM changes, (SELECT * FROM customer WHERE id = ? FOR UPDATE) previous
+                    WHERE customer.id = previous.id
+                      AND (changes.version IS NULL OR changes.version = previous.version)
+                      AND (changes.name <> previous.name
+                        OR changes.email <> previous.email
+                        OR changes.age <> previous.age)
+                    RETURNING previous.id, previous.name, previous.email, previous.age, previous.version
+                )
+                SELECT CASE
+                           WHEN updated.id IS NOT NULL THEN 'UPDATED'
+                           WHEN stored.id IS NULL THEN 'NOT_FOUND'
+                           WHEN changes.version <> stored.version THEN 'VERSION_MISMATCH'
+                           ELSE 'UNCHANGED'
+                       END AS outcome,
+                       updated.*
+                FROM changes
+                LEFT JOIN customer stored ON stored.id = ?
+                LEFT JOIN updated ON true
+                """;
+
+        return jdbcTemplate.queryForObject(
+                sql,
+                (resultSet, rowNum) -> {
+                    CustomerUpdateOutcome outcome = CustomerUpdateOutcome.valueOf(resultSet.getString("outcome"));
+                    return outcome == CustomerUpdateOutcome.UPDATED
+                            ? CustomerUpdateResult.updated(customerRowMapper.mapRow(resultSet, rowNum))
+                            : CustomerUpdateResult.notUpdated(outcome);
+                },
+                changes.getName(),
+                changes.getEmail(),
+                changes.getAge(),
+                expectedVersion,
+                changes.getId(),
+                changes.getId()
+        );
     }
 }
@@ -1,17 +1,30 @@
 package com.springbootcicdplayground.customer;
 
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Repository;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.function.Consumer;
 
 @Repository("jpa")
 public class CustomerJPADataAccessService implements CustomerDao {
 
+    static final int STREAM_PAGE_SIZE = 1000;
+
     private final CustomerRepository customerRepository;
+    private final CustomerIdAllocator customerIdAllocator;
 
-    public CustomerJPADataAccessService(CustomerRepository customerRepository) {
+    public CustomerJPADataAccessService(CustomerRepository customerRepository,
+                                        CustomerIdAllocator customerIdAllocator) {
         this.customerRepository = customerRepository;
+        this.customerIdAllocator = customerIdAllocator;
     }
 
     @Override
@@ -19,28 +32,124 @@ public class CustomerJPADataAccessService implements CustomerDao {
         return customerRepository.findAll();
     }
 
+    @Override
+    public List<Customer> selectCustomersAfterId(Long afterId, int limit) {
+        return customerRepository.findByIdGreaterThanOrderByIdAsc(afterId, PageRequest.ofSize(limit));
+    }
+
+    /**
+     * Walks the table in keyset pages rather than holding one result stream open, so the
+     * persistence context never accumulates more than a single page of entities.
+     */
+    @Override
+    public void streamAllCustomers(Consumer<Customer> action) {
+        long afterId = 0L;
+        List<Customer> page;
+        do {
+            page = selectCustomersAfterId(afterId, STREAM_PAGE_SIZE);
+            for (Customer customer : page) {
+                action.accept(customer);
+                afterId = customer.getId();
+            }
+        } while (page.size() == STREAM_PAGE_SIZE);
+    }
+
     @Override
     public Optional<Customer> selectCustomerById(Long id) {
         return customerRepository.findById(id);
     }
 
+    /**
+     * Binds the ids as one array, unlike {@code findAllById}, whose {@code IN} list makes a new
+     * statement for every number of ids.
+     */
+    @Override
+    public List<Customer> selectCustomersByIds(Collection<Long> ids) {
+        return customerRepository.findAllByIdIn(ids.toArray(Long[]::new));
+    }
+
     @Override
     public Customer insertCustomer(Customer customer) {
         return customerRepository.save(customer);
     }
 
+    /**
+     * Inserts with a native statement so the unique constraint, rather than a prior lookup,
+     * decides whether the email is free. The id comes from the shared allocator since the
+     * statement bypasses Hibernate's generator.
+     */
+    @Override
+    public Optional<Customer> insertCustomerIfEmailAvailable(Customer customer) {
+        long id = customerIdAllocator.nextId();
+        int inserted = customerRepository.insertIfEmailAvailable(
+                id, customer.getName(), customer.getEmail(), customer.getAge()
+        );
+
+        return inserted == 1
+                ? Optional.of(new Customer(id, customer.getName(), customer.getEmail(), customer.getAge()))
+                : Optional.empty();
+    }
+
+    /**
+     * Filters out taken emails with a single lookup and persists the rest through
+     * {@code saveAll}, which Hibernate sends as JDBC batches. A concurrent registration
+     * of the same email between the lookup and the flush fails the whole chunk.
+     */
+    @Override
+    public List<Customer> insertCustomers(List<Customer> customers) {
+        Set<String> emails = new HashSet<>(customerRepository.findExistingEmails(
+                customers.stream().map(Customer::getEmail).toList()
+        ));
+
+        List<Customer> accepted = new ArrayList<>(customers.size());
+        for (Customer customer : customers) {
+            if (emails.add(customer.getEmail())) {
+                accepted.add(customer);
+            }
+        }
+
+        return customerRepository.saveAll(accepted);
+    }
+
+    @Override
+    public List<Customer> searchCustomers(String query, int limit) {
+        return customerRepository.search(query, CustomerTrigramIndex.containsPattern(query), limit);
+    }
+
+    @Override
+    public Map<Integer, Long> countCustomersByAge() {
+        Map<Integer, Long> counts = new HashMap<>();
+        customerRepository.countByAge().forEach(ageCount -> counts.put(ageCount.getAge(), ageCount.getCount()));
+        return counts;
+    }
+
     @Override
     public boolean existsCustomerWithEmail(String email) {
         return customerRepository.existsCustomerByEmail(email);
     }
 
     @Override
-    public void deleteCustomerById(Long id) {
-        customerRepository.deleteById(id);
+    public Optional<Customer> deleteCustomer(Long id, Long expectedVersion) {
+        return customerRepository.deleteCustomerById(id, expectedVersion);
     }
 
     @Override
-    public void updateCustomer(Customer customer) {
-        customerRepository.save(customer);
+    public CustomerUpdateResult updateCustomerReturningPrevious(Customer changes, Long expectedVersion) {
+        Optional<Customer> previous = customerRepository.updateIfChanged(
+                changes.getId(),
+                changes.getName(),
+                changes.getEmail(),
+                changes.getAge(),
+                expectedVersion
+        );
+        if (previous.isPresent()) {
+            return CustomerUpdateResult.updated(previous.get());
+        }
+        // Spring Data cannot map a data-modifying CTE, so only an update that changed nothing takes a second query.
+        return CustomerUpdateResult.notUpdated(customerRepository.findById(changes.getId())
+                .map(stored -> expectedVersion != null && !expectedVersion.equals(stored.getVersion())
+                        ? CustomerUpdateOutcome.VERSION_MISMATCH
+                        : CustomerUpdateOutcome.UNCHANGED)
+                .orElse(CustomerUpdateOutcome.NOT_FOUND));
     }
 }
@@ -0,0 +1,90 @@
+package com.springbootcicdplayground.customer;
+
+import org.springframework.core.ResolvableType;
+import org.springframework.http.HttpInputMessage;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.AbstractGenericHttpMessageConverter;
+import org.springframework.http.converter.HttpMessageNotReadableException;
+
+import java.io.IOException;
+import java.lang.reflect.Type;
+import java.util.List;
+
+/**
+ * Writes {@link Customer}, {@code List<Customer>} and {@link CustomerPage} responses as JSON through a
+ * {@link CustomerJsonWriter}, ahead of Jackson, which still handles every other type and all request bodies.
+ * The output is byte for byte what the default Jackson mapper writes, so it does not follow
+ * {@code spring.jackson.*} settings.
+ */
+public class CustomerJsonHttpMessageConverter extends AbstractGenericHttpMessageConverter<Object> {
+
+    public CustomerJsonHttpMessageConverter() {
+        super(MediaType.APPLICATION_JSON);
+    }
+
+    @Override
+    protected boolean supports(Class<?> clazz) {
+        return clazz == Customer.class || clazz == CustomerPage.class;
+    }
+
+    @Override
+    public boolean canRead(Type type, Class<?> contextClass, MediaType mediaType) {
+        return false;
+    }
+
+    @Override
+    protected boolean canRead(MediaType mediaType) {
+        return false;
+    }
+
+    @Override
+    public boolean canWrite(Type type, Class<?> clazz, MediaType mediaType) {
+        return (type != null && isCustomerList(type) || supports(clazz)) && canWrite(mediaType);
+    }
+
+    /**
+     * Content negotiation asks by the value's raw class, so lists are advertised here and their element
+     * type is checked by {@link #canWrite(Type, Class, MediaType)}.
+     */
+    @Override
+    public List<MediaType> getSupportedMediaTypes(Class<?> clazz) {
+        return List.class.isAssignableFrom(clazz) ? getSupportedMediaTypes() : super.getSupportedMediaTypes(clazz);
+    }
+
+    private static boolean isCustomerList(Type type) {
+        ResolvableType resolved = ResolvableType.forType(type);
+        return List.class.isAssignableFrom(resolved.toClass()) && resolved.getGeneric(0).toClass() == Customer.class;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    protected void writeInternal(Object object, Type type, HttpOutputMessage outputMessage) throws IOException {
+        try (CustomerJsonWriter writer = new CustomerJsonWriter(outputMessage.getBody())) {
+            if (object instanceof Customer customer) {
+                writer.writeCustomer(customer);
+            } else if (object instanceof CustomerPage page) {
+                writer.writePage(page);
+            } else {
+                writer.writeCustomers((List<Customer>) object);
+            }
+        }
+    }
+
+    /**
+     * Not called, since {@link #canRead(Type, Class, MediaType)} is false; request bodies go to Jackson.
+     */
+    @Override
+    public Object read(Type type, Class<?> contextClass, HttpInputMessage inputMessage) {
+        throw notReadable(inputMessage);
+    }
+
+    @Override
+    protected Object readInternal(Class<?> clazz, HttpInputMessage inputMessage) {
+        throw notReadable(inputMessage);
+    }
+
+    private static HttpMessageNotReadableException notReadable(HttpInputMessage inputMessage) {
+        return new HttpMessageNotReadableException("Customers are only written as JSON by this converter", inputMessage);
+    }
+}
@@ -0,0 +1,231 @@
+package com.springbootcicdplayground.customer;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * Writes customers as UTF-8 JSON with the same bytes as the default {@link com.fasterxml.jackson.databind.ObjectMapper}:
+ * fields in declaration order, nulls written out, and only quotes, backslashes and control characters escaped.
+ * <p>
+ * Field names are pre-encoded, numbers are written digit by digit and strings char by char, straight into a
+ * buffer that goes to the stream whenever it fills up. Buffers come from a small shared pool, and closing the
+ * writer flushes and returns its buffer but leaves the stream open. A writer is not thread-safe.
+ */
+final class CustomerJsonWriter implements Closeable {
+
+    static final int BUFFER_SIZE = 8192;
+    // The longest escape, which is also longer than any char's UTF-8 bytes.
+    private static final int MAX_CHAR_BYTES = 6;
+    // Enough for every busy request thread; buffers beyond it are left to the garbage collector.
+    private static final BlockingQueue<byte[]> POOL = new ArrayBlockingQueue<>(
+            Math.max(16, Runtime.getRuntime().availableProcessors() * 4)
+    );
+
+    private static final byte[] ID = ascii("{\"id\":");
+    private static final byte[] NAME = ascii(",\"name\":");
+    private static final byte[] EMAIL = ascii(",\"email\":");
+    private static final byte[] AGE = ascii(",\"age\":");
+    private static final byte[] CUSTOMERS = ascii("{\"customers\":");
+    private static final byte[] NEXT_CURSOR = ascii(",\"nextCursor\":");
+    private static final byte[] NULL = ascii("null");
+    private static final byte[] HEX = ascii("0123456789ABCDEF");
+    // Escapes for the ASCII control characters, quote and backslash, or 0 for bytes written as they are.
+    private static final byte[] ESCAPES = new byte[128];
+
+    static {
+        for (int c = 0; c < 0x20; c++) {
+            ESCAPES[c] = 'u';
+        }
+        ESCAPES['\b'] = 'b';
+        ESCAPES['\t'] = 't';
+        ESCAPES['\n'] = 'n';
+        ESCAPES['\f'] = 'f';
+        ESCAPES['\r'] = 'r';
+        ESCAPES['"'] = '"';
+        ESCAPES['\\'] = '\\';
+    }
+
+    private final OutputStream out;
+    private byte[] buffer;
+    private int position;
+
+    CustomerJsonWriter(OutputStream out) {
+        this.out = out;
+        byte[] pooled = POOL.poll();
+        this.buffer = pooled != null ? pooled : new byte[BUFFER_SIZE];
+    }
+
+    void writeCustomer(Customer customer) throws IOException {
+        writeRaw(ID);
+        writeNumber(customer.getId());
+        writeRaw(NAME);
+        writeString(customer.getName());
+        writeRaw(EMAIL);
+        writeString(customer.getEmail());
+        writeRaw(AGE);
+        writeNumber(customer.getAge());
+        writeByte('}');
+    }
+
+    void writeCustomers(Iterable<Customer> customers) throws IOException {
+        writeByte('[');
+        boolean first = true;
+        for (Customer customer : customers) {
+            if (!first) {
+                writeByte(',');
+            }
+            writeCustomer(customer);
+            first = false;
+        }
+        writeByte(']');
+    }
+
+    void writePage(CustomerPage page) throws IOException {
+        writeRaw(CUSTOMERS);
+        if (page.customers() == null) {
+            writeRaw(NULL);
+        } else {
+            writeCustomers(page.customers());
+        }
+        writeRaw(NEXT_CURSOR);
+        writeString(page.nextCursor());
+        writeByte('}');
+    }
+
+    void writeByte(int b) throws IOException {
+        if (position == buffer.length) {
+            flushBuffer();
+        }
+        buffer[position++] = (byte) b;
+    }
+
+    void flush() throws IOException {
+        flushBuffer();
+        out.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            flushBuffer();
+        } finally {
+            POOL.offer(buffer);
+            buffer = null;
+        }
+    }
+
+    private void writeRaw(byte[] bytes) throws IOException {
+        if (position + bytes.length > buffer.length) {
+            flushBuffer();
+        }
+        System.arraycopy(bytes, 0, buffer, position, bytes.length);
+        position += bytes.length;
+    }
+
+    private void writeNumber(Number number) throws IOException {
+        if (number == null) {
+            writeRaw(NULL);
+            return;
+        }
+        long value = number.longValue();
+        if (value == Long.MIN_VALUE) {
+            writeRaw(ascii(Long.toString(value)));
+            return;
+        }
+        if (position + 20 > buffer.length) {
+            flushBuffer();
+        }
+        if (value < 0) {
+            buffer[position++] = '-';
+            value = -value;
+        }
+        int digits = 1;
+        for (long rest = value / 10; rest > 0; rest /= 10) {
+            digits++;
+        }
+        for (int i = position + digits - 1; i >= position; i--) {
+            buffer[i] = (byte) ('0' + value % 10);
+            value /= 10;
+        }
+        position += digits;
+    }
+
+    private void writeString(String value) throws IOException {
+        if (value == null) {
+            writeRaw(NULL);
+            return;
+        }
+        writeByte('"');
+        int length = value.length();
+        int i = 0;
+        while (i < length) {
+            if (buffer.length - position < MAX_CHAR_BYTES) {
+                flushBuffer();
+            }
+            // Encodes as many chars as surely fit, so the loop itself never checks for room.
+            i = encode(value, i, Math.min(length, i + (buffer.length - position) / MAX_CHAR_BYTES));
+        }
+        writeByte('"');
+    }
+
+    /**
+     * @return the index after the last char encoded, one past {@code to} when the last char began a surrogate pair
+     */
+    private int encode(String value, int from, int to) {
+        byte[] buffer = this.buffer;
+        int position = this.position;
+        int i = from;
+        for (; i < to; i++) {
+            char c = value.charAt(i);
+            if (c < 0x80) {
+                byte escape = ESCAPES[c];
+                if (escape == 0) {
+                    buffer[position++] = (byte) c;
+                } else {
+                    buffer[position++] = '\\';
+                    buffer[position++] = escape;
+                    if (escape == 'u') {
+                        buffer[position++] = '0';
+                        buffer[position++] = '0';
+                        buffer[position++] = HEX[c >> 4];
+                        buffer[position++] = HEX[c & 0xF];
+                    }
+                }
+            } else if (c < 0x800) {
+                buffer[position++] = (byte) (0xC0 | c >> 6);
+                buffer[position++] = (byte) (0x80 | c & 0x3F);
+            } else if (Character.isHighSurrogate(c) && i + 1 < value.length()
+                    && Character.isLowSurrogate(value.charAt(i + 1))) {
+                int codePoint = Character.toCodePoint(c, value.charAt(++i));
+                buffer[position++] = (byte) (0xF0 | codePoint >> 18);
+                buffer[position++] = (byte) (0x80 | codePoint >> 12 & 0x3F);
+                buffer[position++] = (byte) (0x80 | codePoint >> 6 & 0x3F);
+                buffer[position++] = (byte) (0x80 | codePoint & 0x3F);
+            } else if (Character.isSurrogate(c)) {
+                // A lone surrogate has no UTF-8 form; String.getBytes writes the same replacement.
+                buffer[position++] = '?';
+            } else {
+                buffer[position++] = (byte) (0xE0 | c >> 12);
+                buffer[position++] = (byte) (0x80 | c >> 6 & 0x3F);
+                buffer[position++] = (byte) (0x80 | c & 0x3F);
+            }
+        }
+        this.position = position;
+        return i;
+    }
+
+    private void flushBuffer() throws IOException {
+        if (position > 0) {
+            out.write(buffer, 0, position);
+            position = 0;
+        }
+    }
+
+    private static byte[] ascii(String value) {
+        return value.getBytes(StandardCharsets.US_ASCII);
+    }
+}
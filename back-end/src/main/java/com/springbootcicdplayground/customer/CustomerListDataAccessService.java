@@ -1,57 +1,271 @@
 package com.springbootcicdplayground.customer;
 
+import org.springframework.dao.DuplicateKeyException;
 import org.springframework.stereotype.Repository;
 
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
 
+/**
+ * In-memory store used for load tests and edge caches.
+ * <p>
+ * Customers live in a {@link ConcurrentHashMap} keyed by id, with a second map from email to id that
+ * enforces email uniqueness through {@code putIfAbsent}. A {@link ConcurrentSkipListMap} keeps the ids
+ * in order for keyset paging and streaming, and a {@link CustomerTrigramIndex} answers searches without
+ * a scan. None of the operations take a lock, but an email change waits for any other email change of
+ * the same customer to finish.
+ * <p>
+ * Stored customers are copies, so callers can modify what they are given without changing the store
+ * behind its back.
+ */
 @Repository("list")
 public class CustomerListDataAccessService implements CustomerDao {
-    static List<Customer> customers = new ArrayList<>();
 
-    static {
-        Customer alex = new Customer(
+    private final ConcurrentMap<Long, Customer> customersById = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, Long> idsByEmail = new ConcurrentHashMap<>();
+    private final ConcurrentNavigableMap<Long, Boolean> orderedIds = new ConcurrentSkipListMap<>();
+    private final AtomicLong idSequence = new AtomicLong();
+    private final CustomerTrigramIndex trigramIndex = new CustomerTrigramIndex(customersById::get);
+
+    public CustomerListDataAccessService() {
+        insertCustomer(new Customer(
                 1L,
                 "Alex",
                 "alex@gmail.com",
                 22
-        );
-
-        Customer jamila = new Customer(2L, "Jamila", "jamila@gmail.com", 25);
-
-        customers.add(alex);
-        customers.add(jamila);
+        ));
+        insertCustomer(new Customer(2L, "Jamila", "jamila@gmail.com", 25));
     }
 
     @Override
     public List<Customer> selectAllCustomers() {
+        List<Customer> customers = new ArrayList<>(customersById.size());
+        streamAllCustomers(customers::add);
         return customers;
     }
 
+    @Override
+    public List<Customer> selectCustomersAfterId(Long afterId, int limit) {
+        List<Customer> page = new ArrayList<>(limit);
+        for (Long id : orderedIds.tailMap(afterId, false).keySet()) {
+            if (page.size() == limit) {
+                break;
+            }
+            // An id can be listed for a moment after its customer was removed.
+            Customer customer = customersById.get(id);
+            if (customer != null) {
+                page.add(copyOf(customer));
+            }
+        }
+        return page;
+    }
+
+    @Override
+    public void streamAllCustomers(Consumer<Customer> action) {
+        for (Long id : orderedIds.keySet()) {
+            Customer customer = customersById.get(id);
+            if (customer != null) {
+                action.accept(copyOf(customer));
+            }
+        }
+    }
+
     @Override
     public Optional<Customer> selectCustomerById(Long id) {
-        return customers.stream().filter(customer -> customer.getId().equals(id)).findFirst();
+        return Optional.ofNullable(customersById.get(id)).map(CustomerListDataAccessService::copyOf);
+    }
+
+    @Override
+    public List<Customer> selectCustomersByIds(Collection<Long> ids) {
+        List<Customer> customers = new ArrayList<>(ids.size());
+        for (Long id : ids) {
+            selectCustomerById(id).ifPresent(customers::add);
+        }
+        return customers;
     }
 
     @Override
     public Customer insertCustomer(Customer customer) {
-        customers.add(customer);
-        return customer;
+        return insertCustomerIfEmailAvailable(customer)
+                .orElseThrow(() -> new DuplicateKeyException(
+                        "Email [%s] already taken".formatted(customer.getEmail())
+                ));
+    }
+
+    @Override
+    public Optional<Customer> insertCustomerIfEmailAvailable(Customer customer) {
+        long id;
+        if (customer.getId() != null) {
+            id = customer.getId();
+            idSequence.accumulateAndGet(id, Math::max);
+        } else {
+            id = idSequence.incrementAndGet();
+        }
+        if (idsByEmail.putIfAbsent(customer.getEmail(), id) != null) {
+            return Optional.empty();
+        }
+        Customer stored = new Customer(id, customer.getName(), customer.getEmail(), customer.getAge());
+        if (customersById.putIfAbsent(id, stored) != null) {
+            idsByEmail.remove(customer.getEmail(), id);
+            throw new DuplicateKeyException("Customer with id [%s] already exists".formatted(id));
+        }
+        orderedIds.put(id, Boolean.TRUE);
+        trigramIndex.add(stored);
+        return Optional.of(copyOf(stored));
+    }
+
+    @Override
+    public List<Customer> insertCustomers(List<Customer> newCustomers) {
+        List<Customer> inserted = new ArrayList<>(newCustomers.size());
+        for (Customer customer : newCustomers) {
+            insertCustomerIfEmailAvailable(customer).ifPresent(inserted::add);
+        }
+        return inserted;
+    }
+
+    /**
+     * Checks only the customers the trigram index lists as candidates.
+     */
+    @Override
+    public List<Customer> searchCustomers(String query, int limit) {
+        List<Customer> candidates = new ArrayList<>();
+        for (Long id : trigramIndex.candidates(query)) {
+            Customer customer = customersById.get(id);
+            if (customer != null) {
+                candidates.add(customer);
+            }
+        }
+        return CustomerTrigramIndex.rank(query, candidates, limit).stream()
+                .map(CustomerListDataAccessService::copyOf)
+                .toList();
+    }
+
+    @Override
+    public Map<Integer, Long> countCustomersByAge() {
+        return customersById.values().stream()
+                .collect(Collectors.groupingBy(Customer::getAge, Collectors.counting()));
     }
 
     @Override
     public boolean existsCustomerWithEmail(String email) {
-        return customers.stream().anyMatch(c -> c.getEmail().equals(email));
+        return idsByEmail.containsKey(email);
     }
 
     @Override
-    public void deleteCustomerById(Long id) {
-        customers.stream().filter(customer -> customer.getId().equals(id)).findFirst().ifPresent(customers::remove);
+    public Optional<Customer> deleteCustomer(Long id, Long expectedVersion) {
+        while (true) {
+            Customer current = customersById.get(id);
+            if (current == null || expectedVersion != null && !expectedVersion.equals(current.getVersion())) {
+                return Optional.empty();
+            }
+            if (customersById.remove(id, current)) {
+                orderedIds.remove(id);
+                idsByEmail.remove(current.getEmail(), id);
+                trigramIndex.remove(current, null);
+                return Optional.of(copyOf(current));
+            }
+        }
     }
 
     @Override
-    public void updateCustomer(Customer customer) {
-        customers.add(customer);
+    public CustomerUpdateResult updateCustomerReturningPrevious(Customer changes, Long expectedVersion) {
+        Long id = changes.getId();
+        while (true) {
+            Customer current = customersById.get(id);
+            if (current == null) {
+                return CustomerUpdateResult.notUpdated(CustomerUpdateOutcome.NOT_FOUND);
+            }
+            if (expectedVersion != null && !expectedVersion.equals(current.getVersion())) {
+                return CustomerUpdateResult.notUpdated(CustomerUpdateOutcome.VERSION_MISMATCH);
+            }
+            Customer updated = merge(current, changes);
+            if (updated == null) {
+                return CustomerUpdateResult.notUpdated(CustomerUpdateOutcome.UNCHANGED);
+            }
+            boolean emailChanged = !current.getEmail().equals(updated.getEmail());
+            if (emailChanged) {
+                Long owner = idsByEmail.putIfAbsent(updated.getEmail(), id);
+                if (owner != null && !owner.equals(id)) {
+                    throw new DuplicateKeyException(
+                            "Email [%s] already taken".formatted(updated.getEmail())
+                    );
+                }
+                if (owner != null) {
+                    // Another update of this customer holds the email: it is moving away from it and has
+                    // yet to release it, or it is moving to it. Sharing that entry would let the release
+                    // drop it, so wait for the other update to finish and retry against its result.
+                    Thread.onSpinWait();
+                    continue;
+                }
+            }
+            if (customersById.replace(id, current, updated)) {
+                if (emailChanged) {
+                    releaseEmail(current.getEmail(), id);
+                }
+                if (emailChanged || !current.getName().equals(updated.getName())) {
+                    trigramIndex.add(updated);
+                    trigramIndex.remove(current, updated);
+                }
+                return CustomerUpdateResult.updated(copyOf(current));
+            }
+            // Lost a race with another update or a delete: give back the email we claimed, unless the
+            // winning write stored it, and retry against the new state.
+            if (emailChanged) {
+                releaseEmail(updated.getEmail(), id);
+            }
+        }
+    }
+
+    /**
+     * Drops the email's entry for {@code id}, unless the stored customer holds that email. The check and
+     * the removal are one atomic step on the entry.
+     */
+    private void releaseEmail(String email, Long id) {
+        idsByEmail.computeIfPresent(email, (key, owner) -> {
+            Customer stored = customersById.get(id);
+            return owner.equals(id) && (stored == null || !stored.getEmail().equals(key)) ? null : owner;
+        });
+    }
+
+    private static Customer copyOf(Customer customer) {
+        return new Customer(
+                customer.getId(), customer.getName(), customer.getEmail(), customer.getAge(), customer.getVersion()
+        );
+    }
+
+    /**
+     * @return a copy of {@code current} with the non-null fields of {@code changes}, or {@code null}
+     * when none of them differs
+     */
+    private static Customer merge(Customer current, Customer changes) {
+        Customer merged = copyOf(current);
+        boolean changed = false;
+        if (changes.getName() != null && !changes.getName().equals(current.getName())) {
+            merged.setName(changes.getName());
+            changed = true;
+        }
+        if (changes.getEmail() != null && !changes.getEmail().equals(current.getEmail())) {
+            merged.setEmail(changes.getEmail());
+            changed = true;
+        }
+        if (changes.getAge() != null && !changes.getAge().equals(current.getAge())) {
+            merged.setAge(changes.getAge());
+            changed = true;
+        }
+        if (!changed) {
+            return null;
+        }
+        merged.setVersion(current.getVersion() + 1);
+        return merged;
     }
 }
@@ -0,0 +1,8 @@
+package com.springbootcicdplayground.customer;
+
+import java.util.List;
+
+public record CustomerLookupRequest(
+        List<Long> ids
+) {
+}
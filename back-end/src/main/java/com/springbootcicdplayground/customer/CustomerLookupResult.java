@@ -0,0 +1,9 @@
+package com.springbootcicdplayground.customer;
+
+import java.util.List;
+
+public record CustomerLookupResult(
+        List<Customer> customers,
+        List<Long> missingIds
+) {
+}
@@ -0,0 +1,113 @@
+package com.springbootcicdplayground.customer;
+
+import com.springbootcicdplayground.exception.DuplicateResourceException;
+import com.springbootcicdplayground.exception.RequestValidationException;
+import com.springbootcicdplayground.exception.ResourceNotFound;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.springframework.core.annotation.AnnotationUtils;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.stereotype.Component;
+import org.springframework.stereotype.Repository;
+import org.springframework.util.ClassUtils;
+import org.springframework.util.StringUtils;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Times every {@link CustomerService} method and every {@link CustomerDao} call.
+ * <p>
+ * Service calls are recorded as {@value #SERVICE_TIMER} and DAO calls as {@value #DAO_TIMER}. Each is
+ * tagged with the method, an outcome and the exception class, and DAO calls also carry the bean name of
+ * the implementation ({@code jpa}, {@code jdbc}, ...). Controller endpoints are already timed as
+ * {@code http.server.requests} by Spring MVC.
+ * <p>
+ * Timers are looked up once per tag combination and then reused, so recording a call adds no allocation
+ * and no registry lookup. The Prometheus timers count with striped adders.
+ */
+@Aspect
+@Component
+public class CustomerMetricsAspect {
+
+    static final String SERVICE_TIMER = "customer.service";
+    static final String DAO_TIMER = "customer.dao";
+
+    private final MeterRegistry meterRegistry;
+    private final Map<TimerKey, Timer> timers = new ConcurrentHashMap<>();
+    private final Map<Class<?>, String> daoNames = new ConcurrentHashMap<>();
+
+    public CustomerMetricsAspect(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Around("execution(public * com.springbootcicdplayground.customer.CustomerService.*(..))")
+    public Object timeServiceCall(ProceedingJoinPoint joinPoint) throws Throwable {
+        return time(joinPoint, SERVICE_TIMER, null);
+    }
+
+    @Around("execution(* com.springbootcicdplayground.customer.CustomerDao.*(..))")
+    public Object timeDaoCall(ProceedingJoinPoint joinPoint) throws Throwable {
+        return time(joinPoint, DAO_TIMER, daoName(joinPoint.getTarget()));
+    }
+
+    private Object time(ProceedingJoinPoint joinPoint, String name, String dao) throws Throwable {
+        long start = System.nanoTime();
+        Throwable failure = null;
+        try {
+            return joinPoint.proceed();
+        } catch (Throwable throwable) {
+            failure = throwable;
+            throw throwable;
+        } finally {
+            timer(new TimerKey(name, dao, joinPoint.getSignature().getName(), failure == null ? null : failure.getClass()))
+                    .record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    private Timer timer(TimerKey key) {
+        return timers.computeIfAbsent(key, k -> {
+            Timer.Builder builder = Timer.builder(k.name())
+                    .tag("method", k.method())
+                    .tag("outcome", outcome(k.exception()))
+                    .tag("exception", k.exception() == null ? "none" : k.exception().getSimpleName());
+            if (k.dao() != null) {
+                builder.tag("dao", k.dao());
+            }
+            return builder.register(meterRegistry);
+        });
+    }
+
+    private String daoName(Object target) {
+        return daoNames.computeIfAbsent(ClassUtils.getUserClass(target), type -> {
+            Repository repository = AnnotationUtils.findAnnotation(type, Repository.class);
+            return repository != null && StringUtils.hasText(repository.value())
+                    ? repository.value()
+                    : type.getSimpleName();
+        });
+    }
+
+    static String outcome(Class<? extends Throwable> exception) {
+        if (exception == null) {
+            return "SUCCESS";
+        }
+        if (ResourceNotFound.class.isAssignableFrom(exception)) {
+            return "NOT_FOUND";
+        }
+        if (DuplicateResourceException.class.isAssignableFrom(exception)
+                || DuplicateKeyException.class.isAssignableFrom(exception)) {
+            return "DUPLICATE";
+        }
+        if (RequestValidationException.class.isAssignableFrom(exception)) {
+            return "INVALID";
+        }
+        return "ERROR";
+    }
+
+    private record TimerKey(String name, String dao, String method, Class<? extends Throwable> exception) {
+    }
+}
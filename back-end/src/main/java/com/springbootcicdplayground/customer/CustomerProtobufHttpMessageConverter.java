@@ -0,0 +1,247 @@
+package com.springbootcicdplayground.customer;
+
+import com.google.protobuf.CodedInputStream;
+import com.google.protobuf.CodedOutputStream;
+import com.google.protobuf.InvalidProtocolBufferException;
+import com.google.protobuf.WireFormat;
+import org.springframework.core.ResolvableType;
+import org.springframework.http.HttpInputMessage;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.AbstractGenericHttpMessageConverter;
+import org.springframework.http.converter.HttpMessageNotReadableException;
+import org.springframework.http.converter.HttpMessageNotWritableException;
+
+import java.io.IOException;
+import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Reads and writes the customer API's bodies as Protocol Buffers, following the messages in
+ * {@code src/main/proto/customer.proto}.
+ * <p>
+ * The messages are few and flat, so they are encoded by hand with {@link CodedOutputStream} instead of
+ * through generated classes, and a customer list goes to the response one customer at a time without
+ * being copied into a message first. Customers are written without their version, which clients get
+ * from the ETag as with JSON.
+ */
+public class CustomerProtobufHttpMessageConverter extends AbstractGenericHttpMessageConverter<Object> {
+
+    public static final MediaType APPLICATION_PROTOBUF = new MediaType("application", "x-protobuf");
+
+    private static final Set<Class<?>> MESSAGES = Set.of(
+            Customer.class,
+            CustomerPage.class,
+            CustomerRegistrationRequest.class,
+            CustomerUpdateRequest.class
+    );
+
+    // Tags are a field number and wire type. Every field number is below 16, so each tag is one byte.
+    private static final int CUSTOMER_ID = 1 << 3 | WireFormat.WIRETYPE_VARINT;
+    private static final int CUSTOMER_NAME = 2 << 3 | WireFormat.WIRETYPE_LENGTH_DELIMITED;
+    private static final int CUSTOMER_EMAIL = 3 << 3 | WireFormat.WIRETYPE_LENGTH_DELIMITED;
+    private static final int CUSTOMER_AGE = 4 << 3 | WireFormat.WIRETYPE_VARINT;
+    private static final int CUSTOMERS = 1 << 3 | WireFormat.WIRETYPE_LENGTH_DELIMITED;
+    private static final int PAGE_NEXT_CURSOR = 2 << 3 | WireFormat.WIRETYPE_LENGTH_DELIMITED;
+    private static final int REQUEST_NAME = 1 << 3 | WireFormat.WIRETYPE_LENGTH_DELIMITED;
+    private static final int REQUEST_EMAIL = 2 << 3 | WireFormat.WIRETYPE_LENGTH_DELIMITED;
+    private static final int REQUEST_AGE = 3 << 3 | WireFormat.WIRETYPE_VARINT;
+
+    public CustomerProtobufHttpMessageConverter() {
+        super(APPLICATION_PROTOBUF);
+    }
+
+    @Override
+    protected boolean supports(Class<?> clazz) {
+        return MESSAGES.contains(clazz);
+    }
+
+    @Override
+    public boolean canRead(Type type, Class<?> contextClass, MediaType mediaType) {
+        return (isCustomerList(type) || type instanceof Class<?> clazz && supports(clazz)) && canRead(mediaType);
+    }
+
+    @Override
+    public boolean canWrite(Type type, Class<?> clazz, MediaType mediaType) {
+        return (type != null && isCustomerList(type) || supports(clazz)) && canWrite(mediaType);
+    }
+
+    /**
+     * Content negotiation asks by the value's raw class, so lists are advertised here and their element
+     * type is checked by {@link #canWrite(Type, Class, MediaType)}.
+     */
+    @Override
+    public List<MediaType> getSupportedMediaTypes(Class<?> clazz) {
+        return List.class.isAssignableFrom(clazz) ? getSupportedMediaTypes() : super.getSupportedMediaTypes(clazz);
+    }
+
+    private static boolean isCustomerList(Type type) {
+        ResolvableType resolved = ResolvableType.forType(type);
+        return List.class.isAssignableFrom(resolved.toClass()) && resolved.getGeneric(0).toClass() == Customer.class;
+    }
+
+    @Override
+    public Object read(Type type, Class<?> contextClass, HttpInputMessage inputMessage) throws IOException {
+        CodedInputStream input = CodedInputStream.newInstance(inputMessage.getBody());
+        try {
+            if (isCustomerList(type)) {
+                return readCustomers(input);
+            }
+            return readMessage(ResolvableType.forType(type).toClass(), input);
+        } catch (InvalidProtocolBufferException exception) {
+            throw new HttpMessageNotReadableException(
+                    "Malformed Protobuf body: " + exception.getMessage(), exception, inputMessage
+            );
+        }
+    }
+
+    @Override
+    protected Object readInternal(Class<?> clazz, HttpInputMessage inputMessage) throws IOException {
+        return read(clazz, null, inputMessage);
+    }
+
+    @Override
+    protected void writeInternal(Object object, Type type, HttpOutputMessage outputMessage) throws IOException {
+        CodedOutputStream output = CodedOutputStream.newInstance(outputMessage.getBody());
+        switch (object) {
+            case Customer customer -> writeCustomerFields(output, customer);
+            case CustomerPage page -> {
+                writeCustomers(output, page.customers());
+                writeString(output, PAGE_NEXT_CURSOR, page.nextCursor());
+            }
+            case CustomerRegistrationRequest request ->
+                    writeRequestFields(output, request.name(), request.email(), request.age());
+            case CustomerUpdateRequest request ->
+                    writeRequestFields(output, request.name(), request.email(), request.age());
+            case List<?> customers -> writeCustomers(output, customers);
+            default -> throw new HttpMessageNotWritableException(
+                    "No Protobuf message for " + object.getClass().getName()
+            );
+        }
+        output.flush();
+    }
+
+    private static Object readMessage(Class<?> clazz, CodedInputStream input) throws IOException {
+        if (clazz == Customer.class) {
+            return readCustomer(input);
+        }
+        if (clazz == CustomerPage.class) {
+            List<Customer> customers = new ArrayList<>();
+            String nextCursor = null;
+            for (int tag = input.readTag(); tag != 0; tag = input.readTag()) {
+                switch (tag) {
+                    case CUSTOMERS -> customers.add(readEmbeddedCustomer(input));
+                    case PAGE_NEXT_CURSOR -> nextCursor = input.readStringRequireUtf8();
+                    default -> input.skipField(tag);
+                }
+            }
+            return new CustomerPage(customers, nextCursor);
+        }
+        String name = null;
+        String email = null;
+        Integer age = null;
+        for (int tag = input.readTag(); tag != 0; tag = input.readTag()) {
+            switch (tag) {
+                case REQUEST_NAME -> name = input.readStringRequireUtf8();
+                case REQUEST_EMAIL -> email = input.readStringRequireUtf8();
+                case REQUEST_AGE -> age = input.readInt32();
+                default -> input.skipField(tag);
+            }
+        }
+        return clazz == CustomerRegistrationRequest.class
+                ? new CustomerRegistrationRequest(name, email, age)
+                : new CustomerUpdateRequest(name, email, age);
+    }
+
+    private static List<Customer> readCustomers(CodedInputStream input) throws IOException {
+        List<Customer> customers = new ArrayList<>();
+        for (int tag = input.readTag(); tag != 0; tag = input.readTag()) {
+            if (tag == CUSTOMERS) {
+                customers.add(readEmbeddedCustomer(input));
+            } else {
+                input.skipField(tag);
+            }
+        }
+        return customers;
+    }
+
+    private static Customer readEmbeddedCustomer(CodedInputStream input) throws IOException {
+        int limit = input.pushLimit(input.readRawVarint32());
+        Customer customer = readCustomer(input);
+        input.popLimit(limit);
+        return customer;
+    }
+
+    private static Customer readCustomer(CodedInputStream input) throws IOException {
+        Customer customer = new Customer();
+        for (int tag = input.readTag(); tag != 0; tag = input.readTag()) {
+            switch (tag) {
+                case CUSTOMER_ID -> customer.setId(input.readInt64());
+                case CUSTOMER_NAME -> customer.setName(input.readStringRequireUtf8());
+                case CUSTOMER_EMAIL -> customer.setEmail(input.readStringRequireUtf8());
+                case CUSTOMER_AGE -> customer.setAge(input.readInt32());
+                default -> input.skipField(tag);
+            }
+        }
+        return customer;
+    }
+
+    private static void writeCustomers(CodedOutputStream output, List<?> customers) throws IOException {
+        for (Object element : customers) {
+            Customer customer = (Customer) element;
+            output.writeUInt32NoTag(CUSTOMERS);
+            output.writeUInt32NoTag(customerSize(customer));
+            writeCustomerFields(output, customer);
+        }
+    }
+
+    private static int customerSize(Customer customer) {
+        int size = 0;
+        if (customer.getId() != null) {
+            size += 1 + CodedOutputStream.computeInt64SizeNoTag(customer.getId());
+        }
+        if (customer.getName() != null) {
+            size += 1 + CodedOutputStream.computeStringSizeNoTag(customer.getName());
+        }
+        if (customer.getEmail() != null) {
+            size += 1 + CodedOutputStream.computeStringSizeNoTag(customer.getEmail());
+        }
+        if (customer.getAge() != null) {
+            size += 1 + CodedOutputStream.computeInt32SizeNoTag(customer.getAge());
+        }
+        return size;
+    }
+
+    private static void writeCustomerFields(CodedOutputStream output, Customer customer) throws IOException {
+        if (customer.getId() != null) {
+            output.writeUInt32NoTag(CUSTOMER_ID);
+            output.writeInt64NoTag(customer.getId());
+        }
+        writeString(output, CUSTOMER_NAME, customer.getName());
+        writeString(output, CUSTOMER_EMAIL, customer.getEmail());
+        writeInt(output, CUSTOMER_AGE, customer.getAge());
+    }
+
+    private static void writeRequestFields(CodedOutputStream output, String name, String email, Integer age)
+            throws IOException {
+        writeString(output, REQUEST_NAME, name);
+        writeString(output, REQUEST_EMAIL, email);
+        writeInt(output, REQUEST_AGE, age);
+    }
+
+    private static void writeString(CodedOutputStream output, int tag, String value) throws IOException {
+        if (value != null) {
+            output.writeUInt32NoTag(tag);
+            output.writeStringNoTag(value);
+        }
+    }
+
+    private static void writeInt(CodedOutputStream output, int tag, Integer value) throws IOException {
+        if (value != null) {
+            output.writeUInt32NoTag(tag);
+            output.writeInt32NoTag(value);
+        }
+    }
+}
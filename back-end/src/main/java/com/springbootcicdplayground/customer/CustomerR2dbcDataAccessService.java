@@ -0,0 +1,184 @@
+package com.springbootcicdplayground.customer;
+
+import io.r2dbc.spi.Readable;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+
+@Repository("r2dbc")
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+public class CustomerR2dbcDataAccessService implements ReactiveCustomerDao {
+    static final int STREAM_FETCH_SIZE = 1000;
+
+    private final DatabaseClient databaseClient;
+
+    public CustomerR2dbcDataAccessService(DatabaseClient databaseClient) {
+        this.databaseClient = databaseClient;
+    }
+
+    /**
+     * Fetches through a portal {@link #STREAM_FETCH_SIZE} rows at a time, and only as fast as the
+     * subscriber requests them, so a slow client holds back the query instead of buffering the table.
+     */
+    @Override
+    public Flux<Customer> selectAllCustomers() {
+        var sql = """
+                SELECT id, name, email, age, version
+                FROM customer
+                """;
+
+        return databaseClient.sql(sql)
+                .filter(statement -> statement.fetchSize(STREAM_FETCH_SIZE))
+                .map(CustomerR2dbcDataAccessService::toCustomer)
+                .all();
+    }
+
+    @Override
+    public Flux<Customer> selectCustomersAfterId(Long afterId, int limit) {
+        var sql = """
+                SELECT id, name, email, age, version
+                FROM customer
+                WHERE id > :afterId
+                ORDER BY id
+                LIMIT :limit
+                """;
+
+        return databaseClient.sql(sql)
+                .bind("afterId", afterId)
+                .bind("limit", limit)
+                .map(CustomerR2dbcDataAccessService::toCustomer)
+                .all();
+    }
+
+    @Override
+    public Mono<Customer> selectCustomerById(Long id) {
+        var sql = """
+                SELECT id, name, email, age, version
+                FROM customer
+                WHERE id = :id
+                """;
+
+        return databaseClient.sql(sql)
+                .bind("id", id)
+                .map(CustomerR2dbcDataAccessService::toCustomer)
+                .one();
+    }
+
+    /**
+     * Takes the id straight from {@code customer_id_seq}. The sequence steps by
+     * {@link CustomerIdAllocator#ALLOCATION_SIZE} and a value reserves the block below it, so the id is
+     * this call's own and never collides with the pooled ids of the JDBC and JPA paths. The rest of
+     * the block is skipped, which only costs sequence range.
+     */
+    @Override
+    public Mono<Customer> insertCustomerIfEmailAvailable(Customer customer) {
+        var sql = """
+                INSERT INTO customer(id, name, email, age)
+                VALUES (nextval('customer_id_seq'), :name, :email, :age)
+                ON CONFLICT ON CONSTRAINT customer_email_unique DO NOTHING
+                RETURNING id, name, email, age, version
+                """;
+
+        return databaseClient.sql(sql)
+                .bind("name", customer.getName())
+                .bind("email", customer.getEmail())
+                .bind("age", customer.getAge())
+                .map(CustomerR2dbcDataAccessService::toCustomer)
+                .one();
+    }
+
+    /**
+     * Inserts the whole chunk in one statement by unnesting parallel arrays, like
+     * {@link CustomerJDBCDataAccessService#insertCustomers(List)}. Rows whose email is already taken
+     * are skipped and left out of the result.
+     */
+    @Override
+    public Flux<Customer> insertCustomers(List<Customer> customers) {
+        var sql = """
+                INSERT INTO customer(id, name, email, age)
+                SELECT nextval('customer_id_seq'), name, email, age
+                FROM unnest(:names::text[], :emails::text[], :ages::int[]) AS batch(name, email, age)
+                ON CONFLICT ON CONSTRAINT customer_email_unique DO NOTHING
+                RETURNING id, name, email, age, version
+                """;
+
+        return databaseClient.sql(sql)
+                .bind("names", customers.stream().map(Customer::getName).toArray(String[]::new))
+                .bind("emails", customers.stream().map(Customer::getEmail).toArray(String[]::new))
+                .bind("ages", customers.stream().map(Customer::getAge).toArray(Integer[]::new))
+                .map(CustomerR2dbcDataAccessService::toCustomer)
+                .all();
+    }
+
+    @Override
+    public Mono<Boolean> deleteCustomerById(Long id) {
+        var sql = """
+                DELETE
+                FROM customer
+                WHERE id = :id
+                """;
+
+        return databaseClient.sql(sql)
+                .bind("id", id)
+                .fetch()
+                .rowsUpdated()
+                .map(rows -> rows > 0);
+    }
+
+    @Override
+    public Mono<CustomerUpdateOutcome> updateCustomer(Customer changes) {
+        // A null change compares as unknown, so it neither counts as a difference nor overwrites the column.
+        var sql = """
+                WITH changes AS (
+                    SELECT CAST(:name AS text) AS name, CAST(:email AS text) AS email, CAST(:age AS int) AS age
+                ), updated AS (
+                    UPDATE customer
+                    SET name    = coalesce(changes.name, customer.name),
+                        email   = coalesce(changes.email, customer.email),
+                        age     = coalesce(changes.age, customer.age),
+                        version = customer.version + 1
+                    FROM changes
+                    WHERE customer.id = :id
+                      AND (changes.name <> customer.name
+                        OR changes.email <> customer.email
+                        OR changes.age <> customer.age)
+                    RETURNING customer.id
+                )
+                SELECT CASE
+                           WHEN EXISTS (SELECT 1 FROM updated) THEN 'UPDATED'
+                           WHEN EXISTS (SELECT 1 FROM customer WHERE id = :id) THEN 'UNCHANGED'
+                           ELSE 'NOT_FOUND'
+                       END AS outcome
+                """;
+
+        DatabaseClient.GenericExecuteSpec spec = databaseClient.sql(sql).bind("id", changes.getId());
+        spec = bindNullable(spec, "name", changes.getName(), String.class);
+        spec = bindNullable(spec, "email", changes.getEmail(), String.class);
+        spec = bindNullable(spec, "age", changes.getAge(), Integer.class);
+        return spec
+                .map(row -> CustomerUpdateOutcome.valueOf(row.get("outcome", String.class)))
+                .one();
+    }
+
+    /**
+     * Binds a typed null for a field the update leaves as it is, so Postgres still knows its type.
+     */
+    private static <T> DatabaseClient.GenericExecuteSpec bindNullable(DatabaseClient.GenericExecuteSpec spec,
+                                                                      String name, T value, Class<T> type) {
+        return value == null ? spec.bindNull(name, type) : spec.bind(name, value);
+    }
+
+    private static Customer toCustomer(Readable row) {
+        return new Customer(
+                row.get("id", Long.class),
+                row.get("name", String.class),
+                row.get("email", String.class),
+                row.get("age", Integer.class),
+                row.get("version", Long.class)
+        );
+    }
+}
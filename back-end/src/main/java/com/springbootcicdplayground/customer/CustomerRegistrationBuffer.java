@@ -0,0 +1,200 @@
+package com.springbootcicdplayground.customer;
+
+import com.springbootcicdplayground.exception.DuplicateResourceException;
+import com.springbootcicdplayground.exception.ServiceUnavailableException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Group commit for registrations. Callers queue their customer and get a future back. A single flusher
+ * thread takes up to {@code maxBatchSize} queued customers, waiting at most {@code maxDelay} after the
+ * first one, and inserts them with one {@link CustomerDao#insertCustomers(List)} call. A burst of
+ * registrations then costs one commit per batch instead of one per customer.
+ * <p>
+ * Each future completes with its own saved customer, or fails with a {@link DuplicateResourceException}
+ * when its email was taken. Other rows of the batch are not affected. A statement that fails as a whole
+ * fails every future of its batch.
+ * <p>
+ * The queue holds at most {@code capacity} customers. When it is full, {@link #register(Customer)} blocks
+ * for up to {@code enqueueTimeout} and then throws {@link ServiceUnavailableException}, so a database that
+ * cannot keep up slows callers down rather than letting registrations pile up in memory.
+ * <p>
+ * Commits are counted in {@code customer.registration.commits}, batch sizes recorded in
+ * {@code customer.registration.batch.size}, rejected registrations counted in
+ * {@code customer.registration.rejected}, and the queue length is published as
+ * {@code customer.registration.queue.size}.
+ */
+public class CustomerRegistrationBuffer implements AutoCloseable {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(CustomerRegistrationBuffer.class);
+    // Longest the flusher waits before checking whether it was closed.
+    private static final long POLL_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+
+    private final CustomerDao customerDao;
+    private final int maxBatchSize;
+    private final long maxDelayNanos;
+    private final long enqueueTimeoutNanos;
+    private final BlockingQueue<Pending> queue;
+    private final Counter commits;
+    private final Counter rejected;
+    private final DistributionSummary batchSizes;
+    private final Thread flusher;
+    private volatile boolean closed;
+
+    public CustomerRegistrationBuffer(CustomerDao customerDao, MeterRegistry meterRegistry, int maxBatchSize,
+                                      Duration maxDelay, int capacity, Duration enqueueTimeout) {
+        this.customerDao = customerDao;
+        this.maxBatchSize = maxBatchSize;
+        this.maxDelayNanos = maxDelay.toNanos();
+        this.enqueueTimeoutNanos = enqueueTimeout.toNanos();
+        this.queue = new ArrayBlockingQueue<>(capacity);
+        this.commits = Counter.builder("customer.registration.commits")
+                .description("Transactions the registration buffer committed")
+                .register(meterRegistry);
+        this.rejected = Counter.builder("customer.registration.rejected")
+                .description("Registrations turned away because the buffer stayed full")
+                .register(meterRegistry);
+        this.batchSizes = DistributionSummary.builder("customer.registration.batch.size")
+                .description("Registrations inserted per transaction")
+                .register(meterRegistry);
+        Gauge.builder("customer.registration.queue.size", queue, Collection::size)
+                .description("Registrations waiting for the next batch")
+                .register(meterRegistry);
+
+        this.flusher = Thread.ofPlatform()
+                .name("customer-registration-flusher")
+                .daemon()
+                .start(this::flushUntilClosed);
+    }
+
+    /**
+     * @return a future that completes with the saved customer once its batch has committed
+     * @throws ServiceUnavailableException if the buffer stays full for the enqueue timeout, or is closed
+     */
+    public CompletableFuture<Customer> register(Customer customer) {
+        Pending pending = new Pending(customer, new CompletableFuture<>());
+        if (closed) {
+            rejected.increment();
+            throw new ServiceUnavailableException("Registrations are shutting down");
+        }
+        if (!offer(pending)) {
+            rejected.increment();
+            throw new ServiceUnavailableException("Too many registrations in progress, try again later");
+        }
+        return pending.result();
+    }
+
+    private boolean offer(Pending pending) {
+        try {
+            return queue.offer(pending, enqueueTimeoutNanos, TimeUnit.NANOSECONDS);
+        } catch (InterruptedException exception) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    private void flushUntilClosed() {
+        List<Pending> batch = new ArrayList<>(maxBatchSize);
+        while (!closed || !queue.isEmpty()) {
+            try {
+                Pending first = queue.poll(POLL_NANOS, TimeUnit.NANOSECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                fill(batch, System.nanoTime() + maxDelayNanos);
+                flush(batch);
+            } catch (InterruptedException exception) {
+                // Nothing interrupts the flusher on purpose; finish what was taken and keep going.
+                flush(batch);
+            } catch (RuntimeException exception) {
+                // A failed batch must not stop the flusher.
+                LOGGER.warn("Registration batch failed", exception);
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    /**
+     * Adds what is already queued, then waits for more until the batch is full, the deadline passes or
+     * the buffer is closed.
+     */
+    private void fill(List<Pending> batch, long deadline) throws InterruptedException {
+        while (batch.size() < maxBatchSize) {
+            if (queue.drainTo(batch, maxBatchSize - batch.size()) > 0) {
+                continue;
+            }
+            long remaining = deadline - System.nanoTime();
+            if (remaining <= 0 || closed) {
+                return;
+            }
+            Pending next = queue.poll(Math.min(remaining, POLL_NANOS), TimeUnit.NANOSECONDS);
+            if (next != null) {
+                batch.add(next);
+            }
+        }
+    }
+
+    private void flush(List<Pending> batch) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        List<Customer> customers = batch.stream().map(Pending::customer).toList();
+        batchSizes.record(customers.size());
+
+        List<Customer> inserted;
+        try {
+            inserted = customerDao.insertCustomers(customers);
+        } catch (RuntimeException exception) {
+            batch.forEach(pending -> pending.result().completeExceptionally(exception));
+            throw exception;
+        }
+        commits.increment();
+
+        // Matched by email like CustomerService#registrationResults, but keeping the saved rows.
+        Map<String, Customer> insertedByEmail = new HashMap<>();
+        inserted.forEach(customer -> insertedByEmail.put(customer.getEmail(), customer));
+        for (Pending pending : batch) {
+            Customer saved = insertedByEmail.remove(pending.customer().getEmail());
+            if (saved != null) {
+                pending.result().complete(saved);
+            } else {
+                pending.result().completeExceptionally(new DuplicateResourceException("Email already taken!"));
+            }
+        }
+    }
+
+    /**
+     * Flushes what is queued, then fails registrations that raced with closing.
+     */
+    @Override
+    public void close() throws InterruptedException {
+        closed = true;
+        flusher.join();
+        Pending pending;
+        while ((pending = queue.poll()) != null) {
+            pending.result().completeExceptionally(
+                    new ServiceUnavailableException("Registrations are shutting down")
+            );
+        }
+    }
+
+    private record Pending(Customer customer, CompletableFuture<Customer> result) {
+    }
+}
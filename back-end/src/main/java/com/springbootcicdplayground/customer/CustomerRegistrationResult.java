@@ -0,0 +1,21 @@
+package com.springbootcicdplayground.customer;
+
+public record CustomerRegistrationResult(
+        String email,
+        Long id,
+        Status status,
+        String message
+) {
+    public enum Status {
+        CREATED,
+        DUPLICATE
+    }
+
+    static CustomerRegistrationResult created(Customer customer) {
+        return new CustomerRegistrationResult(customer.getEmail(), customer.getId(), Status.CREATED, null);
+    }
+
+    static CustomerRegistrationResult duplicate(String email) {
+        return new CustomerRegistrationResult(email, null, Status.DUPLICATE, "Email already taken!");
+    }
+}
@@ -1,8 +1,107 @@
 package com.springbootcicdplayground.customer;
 
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
 
 public interface CustomerRepository extends JpaRepository<Customer, Long> {
+    List<Customer> findByIdGreaterThanOrderByIdAsc(Long id, Pageable pageable);
+    @Query(
+            value = """
+                    SELECT *
+                    FROM customer
+                    WHERE id = ANY(:ids)
+                    """,
+            nativeQuery = true
+    )
+    List<Customer> findAllByIdIn(@Param("ids") Long[] ids);
+    @Query(
+            value = """
+                    SELECT *
+                    FROM customer
+                    WHERE name ILIKE :pattern OR email ILIKE :pattern OR :query <% name OR :query <% email
+                    ORDER BY greatest(word_similarity(:query, name), word_similarity(:query, email)) DESC, id
+                    LIMIT :limit
+                    """,
+            nativeQuery = true
+    )
+    List<Customer> search(@Param("query") String query, @Param("pattern") String pattern, @Param("limit") int limit);
+    @Query(
+            value = """
+                    SELECT age, count(*) AS count
+                    FROM customer
+                    GROUP BY age
+                    """,
+            nativeQuery = true
+    )
+    List<AgeCount> countByAge();
     boolean existsCustomerByEmail(String email);
+    @Query("SELECT c.email FROM Customer c WHERE c.email IN :emails")
+    List<String> findExistingEmails(@Param("emails") Collection<String> emails);
     void deleteById(Long id);
+    // Not @Modifying, which could only return a row count: the deleted row comes back as a query result.
+    @Transactional
+    @Query(
+            value = """
+                    DELETE
+                    FROM customer
+                    WHERE id = :id
+                      AND (CAST(:version AS bigint) IS NULL OR version = :version)
+                    RETURNING *
+                    """,
+            nativeQuery = true
+    )
+    Optional<Customer> deleteCustomerById(@Param("id") Long id, @Param("version") Long expectedVersion);
+    /**
+     * @return the customer as it was before the update, or empty when nothing was updated
+     */
+    @Transactional
+    @Query(
+            value = """
+                    UPDATE customer
+                    SET name    = coalesce(CAST(:name AS text), customer.name),
+                        email   = coalesce(CAST(:email AS text), customer.email),
+                        age     = coalesce(CAST(:age AS int), customer.age),
+                        version = customer.version + 1
+                    FROM (SELECT * FROM customer WHERE id = :id FOR UPDATE) previous
+                    WHERE customer.id = previous.id
+                      AND (CAST(:version AS bigint) IS NULL OR previous.version = :version)
+                      AND (CAST(:name AS text) <> previous.name
+                        OR CAST(:email AS text) <> previous.email
+                        OR CAST(:age AS int) <> previous.age)
+                    RETURNING previous.*
+                    """,
+            nativeQuery = true
+    )
+    Optional<Customer> updateIfChanged(@Param("id") Long id,
+                                       @Param("name") String name,
+                                       @Param("email") String email,
+                                       @Param("age") Integer age,
+                                       @Param("version") Long expectedVersion);
+    @Modifying
+    @Transactional
+    @Query(
+            value = """
+                    INSERT INTO customer(id, name, email, age)
+                    VALUES (:id, :name, :email, :age)
+                    ON CONFLICT ON CONSTRAINT customer_email_unique DO NOTHING
+                    """,
+            nativeQuery = true
+    )
+    int insertIfEmailAvailable(@Param("id") Long id,
+                               @Param("name") String name,
+                               @Param("email") String email,
+                               @Param("age") Integer age);
+
+    interface AgeCount {
+        Integer getAge();
+        Long getCount();
+    }
 }
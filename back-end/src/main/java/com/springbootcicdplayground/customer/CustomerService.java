@@ -1,98 +1,378 @@
 package com.springbootcicdplayground.customer;
 
+import com.springbootcicdplayground.ReadFromReplica;
+import com.springbootcicdplayground.ReplicaRoutingDataSource;
 import com.springbootcicdplayground.exception.DuplicateResourceException;
+import com.springbootcicdplayground.exception.PreconditionFailedException;
 import com.springbootcicdplayground.exception.RequestValidationException;
 import com.springbootcicdplayground.exception.ResourceNotFound;
+import com.springbootcicdplayground.exception.ServiceUnavailableException;
 import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.stereotype.Service;
 
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Consumer;
 
 @Service
 public class CustomerService {
 
+    static final int MAX_PAGE_SIZE = 1000;
+    static final int MAX_LOOKUP_SIZE = 1000;
+    // Shorter queries have no trigram to look up, so the search index could not narrow them down.
+    static final int MIN_SEARCH_QUERY_LENGTH = 3;
+    static final int MAX_SEARCH_QUERY_LENGTH = 100;
+    static final int MAX_SEARCH_LIMIT = 100;
+
     private final CustomerDao customerDao;
+    private final CustomerCache customerCache;
+    // Present when registrations are group-committed; null when each one commits on its own.
+    private final CustomerRegistrationBuffer registrationBuffer;
+    private final CustomerStatistics customerStatistics;
 
-    public CustomerService(@Qualifier("jpa") CustomerDao customerDao) {
+    public CustomerService(@Qualifier("jpa") CustomerDao customerDao,
+                           CustomerCache customerCache,
+                           Optional<CustomerRegistrationBuffer> registrationBuffer,
+                           CustomerStatistics customerStatistics) {
         this.customerDao = customerDao;
+        this.customerCache = customerCache;
+        this.registrationBuffer = registrationBuffer.orElse(null);
+        this.customerStatistics = customerStatistics;
     }
 
+    @ReadFromReplica
     public List<Customer> getAllCustomer() {
         return customerDao.selectAllCustomers();
     }
 
+    @ReadFromReplica
+    public CustomerPage getCustomerPage(int limit, String after) {
+        long afterId = pageStart(limit, after);
+        return toPage(customerDao.selectCustomersAfterId(afterId, limit), limit);
+    }
+
+    @ReadFromReplica
+    public void exportCustomers(Consumer<Customer> action) {
+        customerDao.streamAllCustomers(action);
+    }
+
+    @ReadFromReplica
     public Customer getCustomer(Long id) {
-        return customerDao.selectCustomerById(id)
+        return customerCache.get(id, this::loadCustomer)
                 .orElseThrow(() -> new ResourceNotFound(
                         "Customer with id [%s] not found!".formatted(id)
                 ));
     }
 
+    private Optional<Customer> loadCustomer(Long id) {
+        if (!customerCache.recentlyWritten(id)) {
+            return customerDao.selectCustomerById(id);
+        }
+        try (ReplicaRoutingDataSource.Scope ignored = ReplicaRoutingDataSource.pinToPrimary()) {
+            return customerDao.selectCustomerById(id);
+        }
+    }
+
+    /**
+     * Looks the customers up in the cache first and reads only the misses, in one query. Ids that do not
+     * exist are reported rather than failing the lookup; the customers keep the order of their ids.
+     */
+    @ReadFromReplica
+    public CustomerLookupResult getCustomers(List<Long> ids) {
+        Set<Long> distinctIds = lookupIds(ids);
+        Map<Long, Customer> found = customerCache.getAll(distinctIds, this::loadCustomers);
+
+        List<Customer> customers = new ArrayList<>(found.size());
+        List<Long> missingIds = new ArrayList<>();
+        for (Long id : distinctIds) {
+            Customer customer = found.get(id);
+            if (customer != null) {
+                customers.add(customer);
+            } else {
+                missingIds.add(id);
+            }
+        }
+        return new CustomerLookupResult(customers, missingIds);
+    }
+
+    /**
+     * Finds customers whose name or email contains the query ignoring case, or resembles it despite a
+     * typo, best match first.
+     */
+    @ReadFromReplica
+    public List<Customer> searchCustomers(String query, int limit) {
+        return customerDao.searchCustomers(searchQuery(query, limit), limit);
+    }
+
+    private Map<Long, Customer> loadCustomers(Set<Long> ids) {
+        List<Customer> customers;
+        if (ids.stream().noneMatch(customerCache::recentlyWritten)) {
+            customers = customerDao.selectCustomersByIds(ids);
+        } else {
+            try (ReplicaRoutingDataSource.Scope ignored = ReplicaRoutingDataSource.pinToPrimary()) {
+                customers = customerDao.selectCustomersByIds(ids);
+            }
+        }
+
+        Map<Long, Customer> byId = new HashMap<>();
+        customers.forEach(customer -> byId.put(customer.getId(), customer));
+        return byId;
+    }
+
     public Customer addCustomer(CustomerRegistrationRequest customerRegistrationRequest) {
-        String email = customerRegistrationRequest.email();
-        if (customerDao.existsCustomerWithEmail(email)) {
-            throw new DuplicateResourceException("Email already taken!");
+        Customer customer = toCustomer(customerRegistrationRequest);
+
+        Optional<Customer> savedCustomer;
+        try (CustomerStatistics.Write statistics = customerStatistics.beginWrite()) {
+            if (registrationBuffer != null) {
+                savedCustomer = registerBuffered(customer);
+            } else {
+                try {
+                    savedCustomer = customerDao.insertCustomerIfEmailAvailable(customer);
+                } catch (Exception exception) {
+                    throw new RuntimeException("Failed to insert customer: " + exception.getMessage());
+                }
+            }
+            savedCustomer.ifPresent(saved -> statistics.added(saved.getAge()));
         }
 
-        Customer customer = new Customer();
-        customer.setName(customerRegistrationRequest.name());
-        customer.setEmail(customerRegistrationRequest.email());
-        customer.setAge(customerRegistrationRequest.age());
+        savedCustomer.ifPresent(customerCache::put);
+        return savedCustomer.orElseThrow(() -> new DuplicateResourceException("Email already taken!"));
+    }
 
+    /**
+     * Waits for the batch the customer was queued in; a full buffer is rejected before queueing. A buffer
+     * that shuts down before the batch commits fails the registration with a 503, like a full one.
+     */
+    private Optional<Customer> registerBuffered(Customer customer) {
+        CompletableFuture<Customer> registration = registrationBuffer.register(customer);
         try {
-            return customerDao.insertCustomer(customer);
-        } catch (Exception exception) {
-            throw new RuntimeException("Failed to insert customer: " + exception.getMessage());
+            return Optional.of(registration.join());
+        } catch (CompletionException exception) {
+            if (exception.getCause() instanceof DuplicateResourceException) {
+                return Optional.empty();
+            }
+            if (exception.getCause() instanceof ServiceUnavailableException unavailable) {
+                throw unavailable;
+            }
+            throw new RuntimeException("Failed to insert customer: " + exception.getCause().getMessage());
+        }
+    }
+
+    public List<CustomerRegistrationResult> addCustomers(List<CustomerRegistrationRequest> customerRegistrationRequests) {
+        List<Customer> customers = customerRegistrationRequests.stream()
+                .map(CustomerService::toCustomer)
+                .toList();
+
+        List<Customer> inserted;
+        try (CustomerStatistics.Write statistics = customerStatistics.beginWrite()) {
+            try {
+                inserted = customerDao.insertCustomers(customers);
+            } catch (Exception exception) {
+                throw new RuntimeException("Failed to insert customers: " + exception.getMessage());
+            }
+            inserted.forEach(customer -> statistics.added(customer.getAge()));
         }
+
+        return registrationResults(customers, inserted);
     }
 
     public void deleteCustomer(Long customerId) {
-        Optional<Customer> customer = customerDao.selectCustomerById(customerId);
-        if (customer.isEmpty()) {
-            throw new ResourceNotFound("Customer with id [%s] not found".formatted(customerId));
-        } else {
+        deleteCustomer(customerId, null);
+    }
+
+    /**
+     * Deletes the customer only while it is at {@code expectedVersion}, unless that is {@code null}.
+     */
+    public void deleteCustomer(Long customerId, Long expectedVersion) {
+        Optional<Customer> deleted;
+        try (CustomerStatistics.Write statistics = customerStatistics.beginWrite()) {
             try {
-                customerDao.deleteCustomerById(customerId);
+                deleted = customerDao.deleteCustomer(customerId, expectedVersion);
             } catch (Exception e) {
                 throw new RuntimeException("Could not delete customer: " + e.getMessage());
+            } finally {
+                customerCache.invalidate(customerId);
+            }
+            deleted.ifPresent(customer -> statistics.removed(customer.getAge()));
+        }
+
+        if (deleted.isEmpty()) {
+            // Only a failed conditional delete needs a second look to tell a stale version from a missing row.
+            if (expectedVersion != null && customerDao.selectCustomerById(customerId).isPresent()) {
+                throw modified(customerId);
             }
+            throw new ResourceNotFound("Customer with id [%s] not found".formatted(customerId));
         }
     }
 
     public void updateCustomer(Long id, CustomerUpdateRequest customerUpdateRequest) {
-        Customer customer = getCustomer(id);
+        updateCustomer(id, customerUpdateRequest, null);
+    }
 
-        boolean changes = false;
+    /**
+     * Updates the customer only while it is at {@code expectedVersion}, unless that is {@code null}.
+     */
+    public void updateCustomer(Long id, CustomerUpdateRequest customerUpdateRequest, Long expectedVersion) {
+        Customer changes = toChanges(id, customerUpdateRequest);
+        CustomerUpdateResult result;
+        try (CustomerStatistics.Write statistics = customerStatistics.beginWrite()) {
+            try {
+                result = customerDao.updateCustomerReturningPrevious(changes, expectedVersion);
+            } catch (DataIntegrityViolationException exception) {
+                // The email unique constraint is the only one an update can break.
+                throw new DuplicateResourceException("Email already taken");
+            } catch (Exception exception) {
+                throw new RuntimeException("Could not update customer: " + exception.getMessage());
+            } finally {
+                customerCache.invalidate(id);
+            }
+            if (result.previous() != null && changes.getAge() != null) {
+                statistics.removed(result.previous().getAge());
+                statistics.added(changes.getAge());
+            }
+        }
+
+        checkUpdated(id, result.outcome());
+    }
+
+    public CustomerStats getStats() {
+        return customerStatistics.stats();
+    }
+
+    public CustomerCacheStats getCacheStats() {
+        return customerCache.stats();
+    }
 
-        if (customerUpdateRequest.name() != null && !customerUpdateRequest.name().equals(customer.getName())) {
-            customer.setName(customerUpdateRequest.name());
-            changes = true;
+    static Customer toCustomer(CustomerRegistrationRequest customerRegistrationRequest) {
+        Customer customer = new Customer();
+        customer.setName(customerRegistrationRequest.name());
+        customer.setEmail(customerRegistrationRequest.email());
+        customer.setAge(customerRegistrationRequest.age());
+        return customer;
+    }
+
+    /**
+     * Reports each requested customer as created, matched by email against the inserted rows, or as
+     * a duplicate.
+     */
+    static List<CustomerRegistrationResult> registrationResults(List<Customer> customers, List<Customer> inserted) {
+        Map<String, Customer> insertedByEmail = new HashMap<>();
+        inserted.forEach(customer -> insertedByEmail.put(customer.getEmail(), customer));
+
+        List<CustomerRegistrationResult> results = new ArrayList<>(customers.size());
+        for (Customer customer : customers) {
+            Customer saved = insertedByEmail.remove(customer.getEmail());
+            results.add(saved != null
+                    ? CustomerRegistrationResult.created(saved)
+                    : CustomerRegistrationResult.duplicate(customer.getEmail()));
         }
+        return results;
+    }
+
+    static Customer toChanges(Long id, CustomerUpdateRequest customerUpdateRequest) {
+        return new Customer(
+                id,
+                customerUpdateRequest.name(),
+                customerUpdateRequest.email(),
+                customerUpdateRequest.age()
+        );
+    }
 
-        if (customerUpdateRequest.email() != null && !customerUpdateRequest.email().equals(customer.getEmail())) {
-            if (customerDao.existsCustomerWithEmail(customerUpdateRequest.email())) {
-                throw new DuplicateResourceException(
-                        "Email already taken"
-                );
+    static void checkUpdated(Long id, CustomerUpdateOutcome outcome) {
+        switch (outcome) {
+            case NOT_FOUND -> throw new ResourceNotFound("Customer with id [%s] not found!".formatted(id));
+            case UNCHANGED -> throw new RequestValidationException("No data changes found");
+            case VERSION_MISMATCH -> throw modified(id);
+            case UPDATED -> {
             }
-            customer.setEmail(customerUpdateRequest.email());
-            changes = true;
         }
+    }
+
+    private static PreconditionFailedException modified(Long id) {
+        return new PreconditionFailedException("Customer with id [%s] has been modified".formatted(id));
+    }
+
+    /**
+     * Validates the ids of a lookup and returns them without duplicates, in their first order.
+     */
+    static Set<Long> lookupIds(List<Long> ids) {
+        if (ids == null || ids.isEmpty() || ids.size() > MAX_LOOKUP_SIZE) {
+            throw new RequestValidationException(
+                    "Lookup must ask for between 1 and %s ids".formatted(MAX_LOOKUP_SIZE)
+            );
+        }
+        if (ids.stream().anyMatch(Objects::isNull)) {
+            throw new RequestValidationException("Lookup ids must not be blank");
+        }
+
+        return new LinkedHashSet<>(ids);
+    }
 
-        if (customerUpdateRequest.age() != null && !customerUpdateRequest.age().equals(customer.getAge())) {
-            customer.setAge(customerUpdateRequest.age());
-            changes = true;
+    /**
+     * Validates a search and returns its query without surrounding whitespace.
+     */
+    static String searchQuery(String query, int limit) {
+        String trimmed = query == null ? "" : query.strip();
+        if (trimmed.length() < MIN_SEARCH_QUERY_LENGTH || trimmed.length() > MAX_SEARCH_QUERY_LENGTH) {
+            throw new RequestValidationException(
+                    "Search query must be between %s and %s characters"
+                            .formatted(MIN_SEARCH_QUERY_LENGTH, MAX_SEARCH_QUERY_LENGTH)
+            );
+        }
+        if (limit < 1 || limit > MAX_SEARCH_LIMIT) {
+            throw new RequestValidationException(
+                    "Search limit must be between 1 and %s".formatted(MAX_SEARCH_LIMIT)
+            );
         }
 
-        if (!changes) {
-            throw new RequestValidationException("No data changes found");
-        } else {
-            try {
-                customerDao.updateCustomer(customer);
-            } catch (Exception exception) {
-                throw new RuntimeException("Could not update customer: " + exception.getMessage());
-            }
+        return trimmed;
+    }
+
+    /**
+     * Validates the page limit and returns the id the page starts after.
+     */
+    static long pageStart(int limit, String after) {
+        if (limit < 1 || limit > MAX_PAGE_SIZE) {
+            throw new RequestValidationException(
+                    "Page limit must be between 1 and %s".formatted(MAX_PAGE_SIZE)
+            );
+        }
+
+        return after == null || after.isBlank() ? 0L : decodeCursor(after);
+    }
+
+    static CustomerPage toPage(List<Customer> customers, int limit) {
+        String nextCursor = customers.size() < limit
+                ? null
+                : encodeCursor(customers.get(customers.size() - 1).getId());
+
+        return new CustomerPage(customers, nextCursor);
+    }
+
+    static String encodeCursor(Long id) {
+        return Base64.getUrlEncoder()
+                .withoutPadding()
+                .encodeToString(id.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    static long decodeCursor(String cursor) {
+        try {
+            String decoded = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            return Long.parseLong(decoded);
+        } catch (IllegalArgumentException exception) {
+            throw new RequestValidationException("Invalid cursor [%s]".formatted(cursor));
         }
     }
 }
@@ -0,0 +1,284 @@
+package com.springbootcicdplayground.customer;
+
+import com.springbootcicdplayground.ReplicaRoutingDataSource;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Customer count and age distribution kept in memory as a counter per age, so {@link #stats()} is one pass
+ * over the distinct ages however many customers there are. {@link CustomerService} reports every insert,
+ * delete and age change it commits through a {@link Write}. The counters are {@link LongAdder}s, so
+ * concurrent writes never lose an increment.
+ * <p>
+ * Writes the service does not see, such as those of other instances or the CSV import, are picked up by
+ * {@link #reconcile()}. It runs every {@code reconcileInterval}, reads {@link CustomerDao#countCustomersByAge()}
+ * from the primary and adds the difference to each counter. A write of this instance that overlaps the
+ * query may or may not be in its result, so such a reconciliation is skipped. Writes that start after it
+ * add onto the corrected counters and are kept. After {@link #MAX_SKIPPED_RECONCILIATIONS} skips in a row,
+ * and for the first load, new writes are held back until the active ones finish and the query returns.
+ * <p>
+ * Reconciliations are counted in {@code customer.stats.reconciliations}, tagged with whether the counters
+ * were {@code in-sync}, {@code corrected} or the reconciliation {@code skipped}.
+ */
+public class CustomerStatistics implements AutoCloseable {
+
+    static final List<Integer> DEFAULT_AGE_BUCKETS = List.of(18, 25, 35, 45, 55, 65);
+    static final int MAX_SKIPPED_RECONCILIATIONS = 5;
+    private static final Logger LOGGER = LoggerFactory.getLogger(CustomerStatistics.class);
+
+    private final CustomerDao customerDao;
+    private final int[] ageBuckets;
+    private final ConcurrentMap<Integer, LongAdder> countsByAge = new ConcurrentHashMap<>();
+    // Bumped in this order when a write starts: active first, then started.
+    private final AtomicInteger activeWrites = new AtomicInteger();
+    private final AtomicLong startedWrites = new AtomicLong();
+    // Writes share it; a reconciliation that must not be skipped takes it exclusively.
+    private final ReadWriteLock writesLock = new ReentrantReadWriteLock();
+    // Not a monitor, which would pin a virtual thread to its carrier during the query.
+    private final Lock reconcileLock = new ReentrantLock();
+    private final Counter inSync;
+    private final Counter corrected;
+    private final Counter skipped;
+    private final ScheduledExecutorService scheduler;
+
+    private volatile boolean loaded;
+    // Guarded by reconcileLock.
+    private int skippedInARow;
+
+    public CustomerStatistics(CustomerDao customerDao) {
+        this(customerDao, new SimpleMeterRegistry(), DEFAULT_AGE_BUCKETS, Duration.ZERO);
+    }
+
+    /**
+     * @param ageBuckets        the ages the histogram's buckets start at, ascending
+     * @param reconcileInterval time between reconciliations, or zero to only reconcile on demand
+     */
+    public CustomerStatistics(CustomerDao customerDao, MeterRegistry meterRegistry,
+                              List<Integer> ageBuckets, Duration reconcileInterval) {
+        this.customerDao = customerDao;
+        this.ageBuckets = ageBuckets.stream().mapToInt(Integer::intValue).toArray();
+        for (int i = 1; i < this.ageBuckets.length; i++) {
+            if (this.ageBuckets[i] <= this.ageBuckets[i - 1]) {
+                throw new IllegalArgumentException("Age buckets must be ascending: " + ageBuckets);
+            }
+        }
+        this.inSync = reconciliations(meterRegistry, "in-sync");
+        this.corrected = reconciliations(meterRegistry, "corrected");
+        this.skipped = reconciliations(meterRegistry, "skipped");
+
+        if (reconcileInterval.isZero()) {
+            this.scheduler = null;
+        } else {
+            this.scheduler = Executors.newSingleThreadScheduledExecutor(
+                    Thread.ofPlatform().name("customer-stats-reconciler").daemon().factory()
+            );
+            scheduler.scheduleWithFixedDelay(
+                    this::reconcileQuietly, 0, reconcileInterval.toMillis(), TimeUnit.MILLISECONDS
+            );
+        }
+    }
+
+    private static Counter reconciliations(MeterRegistry meterRegistry, String result) {
+        return Counter.builder("customer.stats.reconciliations")
+                .description("Checks of the in-memory customer statistics against the database")
+                .tag("result", result)
+                .register(meterRegistry);
+    }
+
+    /**
+     * Starts a write whose committed changes are then reported on the returned scope, which must be closed
+     * once they are.
+     */
+    public Write beginWrite() {
+        writesLock.readLock().lock();
+        activeWrites.incrementAndGet();
+        startedWrites.incrementAndGet();
+        return new Write();
+    }
+
+    /**
+     * Loads the counters on first use, which holds writes back for as long as the query takes.
+     */
+    public CustomerStats stats() {
+        if (!loaded) {
+            reconcile();
+        }
+
+        long count = 0;
+        long ageSum = 0;
+        int minAge = Integer.MAX_VALUE;
+        int maxAge = Integer.MIN_VALUE;
+        long[] bucketCounts = new long[ageBuckets.length + 1];
+        for (Map.Entry<Integer, LongAdder> entry : countsByAge.entrySet()) {
+            long customers = entry.getValue().sum();
+            if (customers <= 0) {
+                continue;
+            }
+            int age = entry.getKey();
+            count += customers;
+            ageSum += age * customers;
+            minAge = Math.min(minAge, age);
+            maxAge = Math.max(maxAge, age);
+            bucketCounts[bucket(age)] += customers;
+        }
+
+        List<CustomerStats.AgeBucket> histogram = new ArrayList<>(bucketCounts.length);
+        for (int i = 0; i < bucketCounts.length; i++) {
+            histogram.add(new CustomerStats.AgeBucket(
+                    i == 0 ? null : ageBuckets[i - 1],
+                    i == ageBuckets.length ? null : ageBuckets[i],
+                    bucketCounts[i]
+            ));
+        }
+        return count == 0
+                ? new CustomerStats(0, null, null, null, histogram)
+                : new CustomerStats(count, minAge, maxAge, (double) ageSum / count, histogram);
+    }
+
+    private int bucket(int age) {
+        int index = Arrays.binarySearch(ageBuckets, age);
+        return index >= 0 ? index + 1 : -index - 1;
+    }
+
+    /**
+     * Brings the counters in line with the database, unless a write of this instance overlaps the query
+     * and the last reconciliations were not skipped too often already.
+     */
+    public void reconcile() {
+        reconcileLock.lock();
+        try {
+            if (loaded && skippedInARow < MAX_SKIPPED_RECONCILIATIONS) {
+                reconcileUnlessWritten();
+            } else {
+                reconcileHoldingWritesBack();
+            }
+        } finally {
+            reconcileLock.unlock();
+        }
+    }
+
+    private void reconcileUnlessWritten() {
+        // Read in the reverse order of beginWrite: a write that started before is still active, or done.
+        long started = startedWrites.get();
+        if (activeWrites.get() == 0) {
+            Map<Integer, Long> counts = selectCounts();
+            if (startedWrites.get() == started) {
+                apply(counts);
+                return;
+            }
+        }
+        skippedInARow++;
+        skipped.increment();
+    }
+
+    private void reconcileHoldingWritesBack() {
+        writesLock.writeLock().lock();
+        try {
+            apply(selectCounts());
+            loaded = true;
+        } finally {
+            writesLock.writeLock().unlock();
+        }
+    }
+
+    private void reconcileQuietly() {
+        try {
+            reconcile();
+        } catch (RuntimeException exception) {
+            // A failed reconciliation must not cancel the schedule.
+            LOGGER.warn("Customer statistics reconciliation failed", exception);
+        }
+    }
+
+    private Map<Integer, Long> selectCounts() {
+        try (ReplicaRoutingDataSource.Scope ignored = ReplicaRoutingDataSource.pinToPrimary()) {
+            return customerDao.countCustomersByAge();
+        }
+    }
+
+    /**
+     * Adds the difference rather than setting the count, so an increment made in between is kept.
+     */
+    private void apply(Map<Integer, Long> counts) {
+        Set<Integer> ages = new HashSet<>(countsByAge.keySet());
+        ages.addAll(counts.keySet());
+
+        boolean changed = false;
+        for (Integer age : ages) {
+            LongAdder counter = counter(age);
+            long difference = counts.getOrDefault(age, 0L) - counter.sum();
+            if (difference != 0) {
+                counter.add(difference);
+                changed = true;
+            }
+        }
+        skippedInARow = 0;
+        (changed ? corrected : inSync).increment();
+    }
+
+    private LongAdder counter(int age) {
+        return countsByAge.computeIfAbsent(age, key -> new LongAdder());
+    }
+
+    @Override
+    public void close() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+        }
+    }
+
+    /**
+     * Changes of one write, reported after they committed.
+     */
+    public final class Write implements AutoCloseable {
+
+        private boolean closed;
+
+        private Write() {
+        }
+
+        public void added(Integer age) {
+            if (age != null) {
+                counter(age).increment();
+            }
+        }
+
+        public void removed(Integer age) {
+            if (age != null) {
+                counter(age).decrement();
+            }
+        }
+
+        @Override
+        public void close() {
+            if (!closed) {
+                closed = true;
+                activeWrites.decrementAndGet();
+                writesLock.readLock().unlock();
+            }
+        }
+    }
+}
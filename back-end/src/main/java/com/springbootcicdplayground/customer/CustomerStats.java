@@ -0,0 +1,21 @@
+package com.springbootcicdplayground.customer;
+
+import java.util.List;
+
+/**
+ * Customer count and age distribution. The ages are {@code null} while there are no customers.
+ */
+public record CustomerStats(
+        long count,
+        Integer minAge,
+        Integer maxAge,
+        Double meanAge,
+        List<AgeBucket> ageHistogram
+) {
+
+    /**
+     * Customers aged from {@code fromAge} up to but not including {@code toAge}; a {@code null} bound is open.
+     */
+    public record AgeBucket(Integer fromAge, Integer toAge, long count) {
+    }
+}
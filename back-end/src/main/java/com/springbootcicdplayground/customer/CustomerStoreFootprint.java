@@ -0,0 +1,12 @@
+package com.springbootcicdplayground.customer;
+
+public record CustomerStoreFootprint(
+        long rows,
+        long deadRows,
+        long heapBytes,
+        long offHeapUsedBytes,
+        long offHeapDeadBytes,
+        long offHeapAllocatedBytes,
+        double bytesPerRow
+) {
+}
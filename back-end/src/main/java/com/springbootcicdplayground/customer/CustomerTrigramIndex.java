@@ -0,0 +1,239 @@
+package com.springbootcicdplayground.customer;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Function;
+
+/**
+ * In-memory counterpart of the {@code pg_trgm} GIN indexes on {@code customer.name} and {@code email}:
+ * an inverted index from each trigram to the ids of the customers whose name or email has it.
+ * <p>
+ * Trigrams are taken the way {@code pg_trgm} takes them. The text is lowercased and split into words of
+ * letters and digits, and each word is padded with two spaces in front and one behind. A customer
+ * matches a query when its name or email contains the query ignoring case, or reaches a
+ * {@link #wordSimilarity(Set, String) word similarity} of {@link #WORD_SIMILARITY_THRESHOLD}, which is
+ * {@code pg_trgm}'s default for {@code <%}. Matches are ranked by word similarity, as in the SQL search.
+ * <p>
+ * Postings are added and removed right after the write they follow, and a removal re-adds what the
+ * stored customer still has. The index can list ids that no longer match, so callers check every
+ * candidate, but once a write returns it never misses the customer that write stored.
+ */
+final class CustomerTrigramIndex {
+
+    static final double WORD_SIMILARITY_THRESHOLD = 0.6;
+    private static final Comparator<Match> BEST_FIRST = Comparator.comparingDouble(Match::score).reversed()
+            .thenComparing(match -> match.customer().getId());
+
+    private final ConcurrentMap<String, Set<Long>> idsByTrigram = new ConcurrentHashMap<>();
+    private final Function<Long, Customer> storedCustomers;
+
+    /**
+     * @param storedCustomers looks up the customer currently stored under an id, or {@code null}
+     */
+    CustomerTrigramIndex(Function<Long, Customer> storedCustomers) {
+        this.storedCustomers = storedCustomers;
+    }
+
+    void add(Customer customer) {
+        for (String trigram : trigrams(customer)) {
+            idsByTrigram.computeIfAbsent(trigram, key -> ConcurrentHashMap.newKeySet()).add(customer.getId());
+        }
+    }
+
+    /**
+     * Removes the trigrams of {@code before} that {@code after} does not have; {@code after} is
+     * {@code null} for a delete.
+     */
+    void remove(Customer before, Customer after) {
+        Set<String> removed = trigrams(before);
+        if (after != null) {
+            removed.removeAll(trigrams(after));
+        }
+        Long id = before.getId();
+        for (String trigram : removed) {
+            Set<Long> ids = idsByTrigram.get(trigram);
+            if (ids != null) {
+                ids.remove(id);
+            }
+        }
+
+        // A newer write may have stored some of these trigrams again and added them before we removed them.
+        Customer current = storedCustomers.apply(id);
+        if (current != null) {
+            Set<String> readded = trigrams(current);
+            readded.retainAll(removed);
+            for (String trigram : readded) {
+                idsByTrigram.computeIfAbsent(trigram, key -> ConcurrentHashMap.newKeySet()).add(id);
+            }
+        }
+    }
+
+    /**
+     * Counts, like the GIN index does, how many of the query's trigrams each customer has, and keeps the
+     * customers that have every trigram a text containing the query must have, or enough of them to reach
+     * the similarity threshold.
+     *
+     * @return the ids of the customers that may match the query
+     */
+    Set<Long> candidates(String query) {
+        Set<String> queryTrigrams = trigrams(query);
+        Set<String> substringTrigrams = new HashSet<>(trigrams(query, true));
+        // The trigrams a customer shares with the query bound its word similarity from above.
+        int similarHits = (int) Math.ceil(WORD_SIMILARITY_THRESHOLD * queryTrigrams.size() - 1e-9);
+
+        // Per customer: query trigrams it has, and how many of those a containing text must have.
+        Map<Long, int[]> hits = new HashMap<>();
+        for (String trigram : queryTrigrams) {
+            Set<Long> ids = idsByTrigram.get(trigram);
+            if (ids == null) {
+                continue;
+            }
+            boolean substring = substringTrigrams.contains(trigram);
+            for (Long id : ids) {
+                int[] count = hits.computeIfAbsent(id, key -> new int[2]);
+                count[0]++;
+                if (substring) {
+                    count[1]++;
+                }
+            }
+        }
+
+        Set<Long> candidates = new HashSet<>();
+        hits.forEach((id, count) -> {
+            if (count[0] >= similarHits || !substringTrigrams.isEmpty() && count[1] == substringTrigrams.size()) {
+                candidates.add(id);
+            }
+        });
+        return candidates;
+    }
+
+    /**
+     * @return an {@code ILIKE} pattern for the values that contain {@code query}, with its wildcards escaped
+     */
+    static String containsPattern(String query) {
+        return "%" + query.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_") + "%";
+    }
+
+    /**
+     * @return the customers that match the query, best match first and then by id, at most {@code limit}
+     */
+    static List<Customer> rank(String query, Iterable<Customer> candidates, int limit) {
+        Set<String> queryTrigrams = trigrams(query);
+        List<Match> matches = new ArrayList<>();
+        for (Customer customer : candidates) {
+            double score = score(query, queryTrigrams, customer);
+            if (score >= 0) {
+                matches.add(new Match(customer, score));
+            }
+        }
+        matches.sort(BEST_FIRST);
+        return matches.stream().limit(limit).map(Match::customer).toList();
+    }
+
+    /**
+     * @return the larger word similarity of the query to the customer's name or email, or {@code -1} when
+     * the customer does not match the query
+     */
+    static double score(String query, Set<String> queryTrigrams, Customer customer) {
+        double score = Math.max(
+                wordSimilarity(queryTrigrams, customer.getName()),
+                wordSimilarity(queryTrigrams, customer.getEmail())
+        );
+        if (score >= WORD_SIMILARITY_THRESHOLD
+                || contains(customer.getName(), query)
+                || contains(customer.getEmail(), query)) {
+            return score;
+        }
+        return -1;
+    }
+
+    /**
+     * Same as {@code pg_trgm}'s {@code word_similarity}: the greatest similarity between the query's
+     * trigrams and any run of consecutive trigrams of the text, counting each distinct trigram once.
+     */
+    static double wordSimilarity(Set<String> queryTrigrams, String text) {
+        if (queryTrigrams.isEmpty() || text == null) {
+            return 0;
+        }
+        List<String> sequence = trigrams(text, false);
+        double best = 0;
+        // Trimming trigrams the query lacks off either end of a run only raises its similarity.
+        for (int start = 0; start < sequence.size() && best < 1; start++) {
+            if (!queryTrigrams.contains(sequence.get(start))) {
+                continue;
+            }
+            Set<String> shared = new HashSet<>();
+            Set<String> extra = new HashSet<>();
+            for (int end = start; end < sequence.size(); end++) {
+                String trigram = sequence.get(end);
+                if (queryTrigrams.contains(trigram)) {
+                    shared.add(trigram);
+                    best = Math.max(best, (double) shared.size() / (queryTrigrams.size() + extra.size()));
+                } else {
+                    extra.add(trigram);
+                }
+            }
+        }
+        return best;
+    }
+
+    private static boolean contains(String text, String query) {
+        return text != null && text.toLowerCase(Locale.ROOT).contains(query.toLowerCase(Locale.ROOT));
+    }
+
+    private static Set<String> trigrams(Customer customer) {
+        Set<String> trigrams = trigrams(customer.getName());
+        trigrams.addAll(trigrams(customer.getEmail()));
+        return trigrams;
+    }
+
+    static Set<String> trigrams(String text) {
+        return new HashSet<>(trigrams(text, false));
+    }
+
+    /**
+     * @param contained whether to leave out the padded trigrams at either end of the text, which a longer
+     *                  text containing it need not have because its word may go on there
+     * @return the trigrams of each word in turn, repeats included
+     */
+    private static List<String> trigrams(String text, boolean contained) {
+        List<String> trigrams = new ArrayList<>();
+        if (text == null) {
+            return trigrams;
+        }
+        String lower = text.toLowerCase(Locale.ROOT);
+        int i = 0;
+        while (i < lower.length()) {
+            if (!Character.isLetterOrDigit(lower.charAt(i))) {
+                i++;
+                continue;
+            }
+            int end = i;
+            while (end < lower.length() && Character.isLetterOrDigit(lower.charAt(end))) {
+                end++;
+            }
+            boolean openStart = contained && i == 0;
+            boolean openEnd = contained && end == lower.length();
+            String padded = "  " + lower.substring(i, end) + " ";
+            for (int j = 0; j + 3 <= padded.length(); j++) {
+                if (openStart && j < 2 || openEnd && j + 3 == padded.length()) {
+                    continue;
+                }
+                trigrams.add(padded.substring(j, j + 3));
+            }
+            i = end;
+        }
+        return trigrams;
+    }
+
+    private record Match(Customer customer, double score) {
+    }
+}
@@ -0,0 +1,12 @@
+package com.springbootcicdplayground.customer;
+
+/**
+ * Result of a conditional customer update, which only writes when at least one given field differs
+ * from the stored value.
+ */
+public enum CustomerUpdateOutcome {
+    UPDATED,
+    UNCHANGED,
+    NOT_FOUND,
+    VERSION_MISMATCH
+}
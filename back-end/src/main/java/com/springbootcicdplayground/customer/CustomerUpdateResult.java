@@ -0,0 +1,17 @@
+package com.springbootcicdplayground.customer;
+
+/**
+ * Outcome of a conditional customer update, with the customer as it was just before an update that happened.
+ */
+public record CustomerUpdateResult(
+        CustomerUpdateOutcome outcome,
+        Customer previous
+) {
+    static CustomerUpdateResult updated(Customer previous) {
+        return new CustomerUpdateResult(CustomerUpdateOutcome.UPDATED, previous);
+    }
+
+    static CustomerUpdateResult notUpdated(CustomerUpdateOutcome outcome) {
+        return new CustomerUpdateResult(outcome, null);
+    }
+}
@@ -0,0 +1,142 @@
+package com.springbootcicdplayground.customer;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Append-only UTF-8 string storage in direct (off-heap) buffers.
+ * <p>
+ * Strings are written back to back into fixed-size chunks and are addressed by a single {@code long}
+ * reference packing the chunk index (16 bits), the offset within the chunk (24 bits) and the encoded
+ * length (24 bits), so no length header is stored next to the bytes. A string never spans two chunks.
+ * <p>
+ * Not thread-safe: callers must serialise appends and publish references safely to readers.
+ */
+final class OffHeapStringArena {
+
+    static final int DEFAULT_CHUNK_SIZE = 1 << 24;
+
+    private static final int OFFSET_BITS = 24;
+    private static final int LENGTH_BITS = 24;
+    private static final int MAX_CHUNKS = 1 << 16;
+    private static final long FIELD_MASK = (1L << 24) - 1;
+
+    private final int chunkSize;
+    private final List<ByteBuffer> chunks = new ArrayList<>();
+    private int position;
+    private long usedBytes;
+
+    OffHeapStringArena() {
+        this(DEFAULT_CHUNK_SIZE);
+    }
+
+    OffHeapStringArena(int chunkSize) {
+        if (chunkSize <= 0 || chunkSize > DEFAULT_CHUNK_SIZE) {
+            throw new IllegalArgumentException("Chunk size must be between 1 and %s".formatted(DEFAULT_CHUNK_SIZE));
+        }
+        this.chunkSize = chunkSize;
+    }
+
+    long append(byte[] bytes) {
+        if (bytes.length > chunkSize) {
+            throw new IllegalArgumentException(
+                    "String of %s bytes does not fit a %s byte chunk".formatted(bytes.length, chunkSize)
+            );
+        }
+        if (chunks.isEmpty() || position + bytes.length > chunkSize) {
+            if (chunks.size() == MAX_CHUNKS) {
+                throw new IllegalStateException("String arena is full");
+            }
+            chunks.add(ByteBuffer.allocateDirect(chunkSize));
+            position = 0;
+        }
+        int chunk = chunks.size() - 1;
+        chunks.get(chunk).put(position, bytes);
+        long ref = ((long) chunk << (OFFSET_BITS + LENGTH_BITS))
+                | ((long) position << LENGTH_BITS)
+                | bytes.length;
+        position += bytes.length;
+        usedBytes += bytes.length;
+        return ref;
+    }
+
+    /**
+     * Appends the string behind {@code ref} to another arena.
+     *
+     * @return the reference of the copy in {@code target}
+     */
+    long copyTo(long ref, OffHeapStringArena target) {
+        return target.append(bytes(ref));
+    }
+
+    String read(long ref) {
+        return new String(bytes(ref), StandardCharsets.UTF_8);
+    }
+
+    boolean matches(long ref, byte[] bytes) {
+        int length = length(ref);
+        if (length != bytes.length) {
+            return false;
+        }
+        ByteBuffer chunk = chunks.get(chunk(ref));
+        int offset = offset(ref);
+        for (int i = 0; i < length; i++) {
+            if (chunk.get(offset + i) != bytes[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    int hash(long ref) {
+        return hash(bytes(ref));
+    }
+
+    static int hash(byte[] bytes) {
+        // FNV-1a: cheap, and good enough spread for an open-addressing table.
+        int hash = 0x811C9DC5;
+        for (byte b : bytes) {
+            hash ^= b;
+            hash *= 0x01000193;
+        }
+        return hash;
+    }
+
+    static int length(long ref) {
+        return (int) (ref & FIELD_MASK);
+    }
+
+    /**
+     * Bytes holding live or overwritten strings.
+     */
+    long usedBytes() {
+        return usedBytes;
+    }
+
+    int chunkSize() {
+        return chunkSize;
+    }
+
+    /**
+     * Off-heap bytes reserved, including the unused tail of the current chunk.
+     */
+    long allocatedBytes() {
+        return (long) chunks.size() * chunkSize;
+    }
+
+    private byte[] bytes(long ref) {
+        byte[] bytes = new byte[length(ref)];
+        chunks.get(chunk(ref)).get(offset(ref), bytes);
+        return bytes;
+    }
+
+    private static int chunk(long ref) {
+        return (int) (ref >>> (OFFSET_BITS + LENGTH_BITS));
+    }
+
+    private static int offset(long ref) {
+        return (int) ((ref >>> LENGTH_BITS) & FIELD_MASK);
+    }
+}
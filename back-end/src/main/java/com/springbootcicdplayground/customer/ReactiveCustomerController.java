@@ -0,0 +1,102 @@
+package com.springbootcicdplayground.customer;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.springbootcicdplayground.exception.RequestValidationException;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ServerWebInputException;
+import org.springframework.web.util.UriComponentsBuilder;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.net.URI;
+
+/**
+ * Serves the routes of {@link CustomerController} when the app runs as a reactive web application
+ * ({@code spring.main.web-application-type=reactive}). The CSV import endpoint is not mirrored: it
+ * parses the upload with a blocking streaming reader.
+ */
+@RestController
+@RequestMapping("api/v1/customer")
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+public class ReactiveCustomerController {
+
+    private final ReactiveCustomerService customerService;
+
+    public ReactiveCustomerController(ReactiveCustomerService customerService) {
+        this.customerService = customerService;
+    }
+
+    /**
+     * Streams the customers as a JSON array, encoding each row as the database returns it.
+     */
+    @GetMapping
+    public Flux<Customer> getCustomers() {
+        return customerService.getAllCustomers();
+    }
+
+    @GetMapping(params = "limit")
+    public Mono<CustomerPage> getCustomerPage(@RequestParam("limit") int limit,
+                                              @RequestParam(value = "after", required = false) String after) {
+        return customerService.getCustomerPage(limit, after);
+    }
+
+    @GetMapping(value = "export", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public Flux<Customer> exportCustomers() {
+        return customerService.getAllCustomers();
+    }
+
+    @GetMapping("cache/stats")
+    public CustomerCacheStats getCacheStats() {
+        return customerService.getCacheStats();
+    }
+
+    @GetMapping("{id}")
+    public Mono<Customer> getCustomer(@PathVariable("id") Long id) {
+        return customerService.getCustomer(id);
+    }
+
+    @PostMapping
+    public Mono<ResponseEntity<Void>> registerCustomer(@RequestBody CustomerRegistrationRequest customerRegistrationRequest,
+                                                       ServerHttpRequest request) {
+        return customerService.addCustomer(customerRegistrationRequest)
+                .map(savedCustomer -> {
+                    URI location = UriComponentsBuilder
+                            .fromHttpRequest(request)
+                            .path("/{id}")
+                            .buildAndExpand(savedCustomer.getId())
+                            .toUri();
+
+                    return ResponseEntity.created(location).build();
+                });
+    }
+
+    /**
+     * Decodes the JSON array element by element as it arrives and registers it in chunks of
+     * {@link CustomerController#REGISTRATION_BATCH_SIZE}, one chunk at a time.
+     */
+    @PostMapping(value = "batch", consumes = MediaType.APPLICATION_JSON_VALUE)
+    public Flux<CustomerRegistrationResult> registerCustomers(@RequestBody Flux<CustomerRegistrationRequest> requests) {
+        return requests
+                .onErrorMap(ServerWebInputException.class, exception -> new RequestValidationException(
+                        "Malformed customer batch: " + (exception.getMostSpecificCause() instanceof JsonProcessingException json
+                                ? json.getOriginalMessage()
+                                : exception.getReason())))
+                .buffer(CustomerController.REGISTRATION_BATCH_SIZE)
+                .concatMap(customerService::addCustomers);
+    }
+
+    @PutMapping("{id}")
+    public Mono<Void> updateCustomer(@PathVariable("id") Long id,
+                                     @RequestBody CustomerUpdateRequest customerUpdateRequest) {
+        return customerService.updateCustomer(id, customerUpdateRequest);
+    }
+
+    @DeleteMapping("{id}")
+    public Mono<Void> deleteCustomer(@PathVariable("id") Long id) {
+        return customerService.deleteCustomer(id);
+    }
+}
@@ -0,0 +1,19 @@
+package com.springbootcicdplayground.customer;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+
+/**
+ * Non-blocking counterpart of {@link CustomerDao}, used when the app runs as a reactive web application.
+ */
+public interface ReactiveCustomerDao {
+    Flux<Customer> selectAllCustomers();
+    Flux<Customer> selectCustomersAfterId(Long afterId, int limit);
+    Mono<Customer> selectCustomerById(Long id);
+    Mono<Customer> insertCustomerIfEmailAvailable(Customer customer);
+    Flux<Customer> insertCustomers(List<Customer> customers);
+    Mono<Boolean> deleteCustomerById(Long id);
+    Mono<CustomerUpdateOutcome> updateCustomer(Customer changes);
+}
@@ -0,0 +1,104 @@
+package com.springbootcicdplayground.customer;
+
+import com.springbootcicdplayground.exception.DuplicateResourceException;
+import com.springbootcicdplayground.exception.ResourceNotFound;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+
+/**
+ * Reactive counterpart of {@link CustomerService}. It validates requests and raises the same
+ * exceptions with the same messages, signalled as errors instead of thrown.
+ */
+@Service
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+public class ReactiveCustomerService {
+
+    private final ReactiveCustomerDao customerDao;
+    private final CustomerCache customerCache;
+
+    public ReactiveCustomerService(ReactiveCustomerDao customerDao, CustomerCache customerCache) {
+        this.customerDao = customerDao;
+        this.customerCache = customerCache;
+    }
+
+    public Flux<Customer> getAllCustomers() {
+        return customerDao.selectAllCustomers();
+    }
+
+    public Mono<CustomerPage> getCustomerPage(int limit, String after) {
+        return Mono.fromCallable(() -> CustomerService.pageStart(limit, after))
+                .flatMap(afterId -> customerDao.selectCustomersAfterId(afterId, limit).collectList())
+                .map(customers -> CustomerService.toPage(customers, limit));
+    }
+
+    public Mono<Customer> getCustomer(Long id) {
+        return Mono.fromFuture(() -> customerCache.getAsync(id, key -> customerDao.selectCustomerById(key).toFuture()))
+                .switchIfEmpty(Mono.error(() -> new ResourceNotFound(
+                        "Customer with id [%s] not found!".formatted(id)
+                )));
+    }
+
+    public Mono<Customer> addCustomer(CustomerRegistrationRequest customerRegistrationRequest) {
+        return Mono.fromCallable(() -> CustomerService.toCustomer(customerRegistrationRequest))
+                .flatMap(customer -> customerDao.insertCustomerIfEmailAvailable(customer)
+                        .onErrorMap(exception -> new RuntimeException(
+                                "Failed to insert customer: " + exception.getMessage()
+                        )))
+                .doOnNext(customerCache::put)
+                .switchIfEmpty(Mono.error(() -> new DuplicateResourceException("Email already taken!")));
+    }
+
+    public Flux<CustomerRegistrationResult> addCustomers(List<CustomerRegistrationRequest> customerRegistrationRequests) {
+        return Flux.defer(() -> {
+            List<Customer> customers = customerRegistrationRequests.stream()
+                    .map(CustomerService::toCustomer)
+                    .toList();
+
+            return customerDao.insertCustomers(customers)
+                    .collectList()
+                    .onErrorMap(exception -> new RuntimeException(
+                            "Failed to insert customers: " + exception.getMessage()
+                    ))
+                    .flatMapIterable(inserted -> CustomerService.registrationResults(customers, inserted));
+        });
+    }
+
+    public Mono<Void> deleteCustomer(Long customerId) {
+        return invalidatingFirst(customerDao.deleteCustomerById(customerId), customerId)
+                .onErrorMap(exception -> new RuntimeException("Could not delete customer: " + exception.getMessage()))
+                .flatMap(deleted -> deleted
+                        ? Mono.<Void>empty()
+                        : Mono.error(new ResourceNotFound("Customer with id [%s] not found".formatted(customerId))));
+    }
+
+    public Mono<Void> updateCustomer(Long id, CustomerUpdateRequest customerUpdateRequest) {
+        return invalidatingFirst(customerDao.updateCustomer(CustomerService.toChanges(id, customerUpdateRequest)), id)
+                .onErrorMap(exception -> exception instanceof DataIntegrityViolationException
+                        // The email unique constraint is the only one an update can break.
+                        ? new DuplicateResourceException("Email already taken")
+                        : new RuntimeException("Could not update customer: " + exception.getMessage()))
+                .doOnNext(outcome -> CustomerService.checkUpdated(id, outcome))
+                .then();
+    }
+
+    /**
+     * Evicts the customer when the write signals, before the signal goes downstream, so a read issued once
+     * the response is out cannot be served the entry from before the write. {@code doFinally} would run
+     * only after the response completed.
+     */
+    private <T> Mono<T> invalidatingFirst(Mono<T> write, Long id) {
+        return write
+                .doOnSuccess(result -> customerCache.invalidate(id))
+                .doOnError(exception -> customerCache.invalidate(id))
+                .doOnCancel(() -> customerCache.invalidate(id));
+    }
+
+    public CustomerCacheStats getCacheStats() {
+        return customerCache.stats();
+    }
+}
@@ -0,0 +1,100 @@
+package com.springbootcicdplayground.customer;
+
+import java.util.function.IntPredicate;
+import java.util.function.IntUnaryOperator;
+
+/**
+ * Open-addressing hash index from a key to a row number of a columnar store.
+ * <p>
+ * The table holds only {@code int} row numbers (stored as {@code row + 1}, so {@code 0} marks an empty
+ * slot); keys stay in the store's own columns. Callers supply the hash of a row's key, and a predicate
+ * that compares a row's key with the one being looked up. Collisions use linear probing and removal
+ * uses backward shifting, so there are no tombstones. The load factor is kept at or below one half.
+ * <p>
+ * Not thread-safe.
+ */
+final class RowHashIndex {
+
+    private final IntUnaryOperator rowHash;
+    private int[] slots;
+    private int mask;
+    private int size;
+
+    RowHashIndex(int expectedRows, IntUnaryOperator rowHash) {
+        this.rowHash = rowHash;
+        int capacity = Integer.highestOneBit(Math.max(expectedRows, 8) * 2 - 1) << 1;
+        this.slots = new int[capacity];
+        this.mask = capacity - 1;
+    }
+
+    /**
+     * @return the matching row, or {@code -1} when no row matches
+     */
+    int find(int hash, IntPredicate matches) {
+        for (int slot = spread(hash) & mask; slots[slot] != 0; slot = (slot + 1) & mask) {
+            int row = slots[slot] - 1;
+            if (matches.test(row)) {
+                return row;
+            }
+        }
+        return -1;
+    }
+
+    void add(int row) {
+        if ((size + 1) * 2 > slots.length) {
+            resize(slots.length * 2);
+        }
+        place(slots, mask, row);
+        size++;
+    }
+
+    void remove(int row) {
+        int slot = spread(rowHash.applyAsInt(row)) & mask;
+        while (slots[slot] != row + 1) {
+            if (slots[slot] == 0) {
+                return;
+            }
+            slot = (slot + 1) & mask;
+        }
+        // Shift later entries of the probe run back into the gap so lookups never stop early.
+        int gap = slot;
+        for (int next = (gap + 1) & mask; slots[next] != 0; next = (next + 1) & mask) {
+            int home = spread(rowHash.applyAsInt(slots[next] - 1)) & mask;
+            if (((next - home) & mask) >= ((next - gap) & mask)) {
+                slots[gap] = slots[next];
+                gap = next;
+            }
+        }
+        slots[gap] = 0;
+        size--;
+    }
+
+    long sizeInBytes() {
+        return (long) slots.length * Integer.BYTES;
+    }
+
+    private void resize(int capacity) {
+        int[] resized = new int[capacity];
+        int resizedMask = capacity - 1;
+        for (int entry : slots) {
+            if (entry != 0) {
+                place(resized, resizedMask, entry - 1);
+            }
+        }
+        slots = resized;
+        mask = resizedMask;
+    }
+
+    private void place(int[] table, int tableMask, int row) {
+        int slot = spread(rowHash.applyAsInt(row)) & tableMask;
+        while (table[slot] != 0) {
+            slot = (slot + 1) & tableMask;
+        }
+        table[slot] = row + 1;
+    }
+
+    private static int spread(int hash) {
+        int h = hash * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+}
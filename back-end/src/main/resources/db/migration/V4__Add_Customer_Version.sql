@@ -0,0 +1 @@
+ALTER TABLE customer ADD COLUMN version bigint NOT NULL DEFAULT 0;
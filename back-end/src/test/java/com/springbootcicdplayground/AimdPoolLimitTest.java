@@ -0,0 +1,69 @@
+package com.springbootcicdplayground;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class AimdPoolLimitTest {
+
+    private final AimdPoolLimit underTest = new AimdPoolLimit(10, 5, 12, 5, 2.0, 0.75);
+
+    @Test
+    void growsByOneWhileCallersQueueForABusyPool() {
+        assertThat(underTest.update(new AimdPoolLimit.Sample(100, 20, 4, 10, 3))).isEqualTo(11);
+        assertThat(underTest.update(new AimdPoolLimit.Sample(100, 20, 4, 11, 3))).isEqualTo(12);
+    }
+
+    @Test
+    void neverGrowsPastMaxSize() {
+        for (int i = 0; i < 5; i++) {
+            underTest.update(new AimdPoolLimit.Sample(100, 20, 4, 12, 3));
+        }
+
+        assertThat(underTest.limit()).isEqualTo(12);
+    }
+
+    @Test
+    void holdsWhenConnectionsAreFree() {
+        assertThat(underTest.update(new AimdPoolLimit.Sample(100, 20, 4, 6, 0))).isEqualTo(10);
+    }
+
+    @Test
+    void holdsWhenWaitsAreShort() {
+        assertThat(underTest.update(new AimdPoolLimit.Sample(100, 1, 4, 10, 0))).isEqualTo(10);
+    }
+
+    @Test
+    void shrinksMultiplicativelyWhenHoldTimeRisesAboveBaseline() {
+        underTest.update(new AimdPoolLimit.Sample(100, 0, 4, 10, 0));
+
+        assertThat(underTest.update(new AimdPoolLimit.Sample(100, 50, 12, 10, 8))).isEqualTo(7);
+        assertThat(underTest.update(new AimdPoolLimit.Sample(100, 50, 12, 7, 8))).isEqualTo(5);
+        assertThat(underTest.update(new AimdPoolLimit.Sample(100, 50, 12, 5, 8))).isEqualTo(5);
+    }
+
+    @Test
+    void baselineDriftsUpToALastingSlowdown() {
+        underTest.update(new AimdPoolLimit.Sample(100, 0, 4, 10, 0));
+
+        for (int i = 0; i < 100; i++) {
+            underTest.update(new AimdPoolLimit.Sample(100, 0, 9, 5, 0));
+        }
+
+        assertThat(underTest.baselineUsageMillis()).isEqualTo(9);
+        assertThat(underTest.update(new AimdPoolLimit.Sample(100, 20, 9, 5, 3))).isEqualTo(6);
+    }
+
+    @Test
+    void ignoresIntervalsWithoutTraffic() {
+        assertThat(underTest.update(new AimdPoolLimit.Sample(0, 0, 0, 10, 3))).isEqualTo(10);
+        assertThat(underTest.baselineUsageMillis()).isZero();
+    }
+
+    @Test
+    void rejectsInvertedBounds() {
+        assertThatThrownBy(() -> new AimdPoolLimit(10, 20, 5, 5, 2.0, 0.75))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+}
@@ -0,0 +1,165 @@
+package com.springbootcicdplayground;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class ReplicaRoutingDataSourceTest {
+
+    private final DataSource primary = mock(DataSource.class);
+    private final DataSource replicaOne = mock(DataSource.class);
+    private final DataSource replicaTwo = mock(DataSource.class);
+    private final Connection primaryConnection = mock(Connection.class);
+    private final Connection replicaOneConnection = mock(Connection.class);
+    private final Connection replicaTwoConnection = mock(Connection.class);
+    private ReplicaRoutingDataSource underTest;
+
+    @BeforeEach
+    void setUp() throws SQLException {
+        when(primary.getConnection()).thenReturn(primaryConnection);
+        when(replicaOne.getConnection()).thenReturn(replicaOneConnection);
+        when(replicaTwo.getConnection()).thenReturn(replicaTwoConnection);
+        underTest = new ReplicaRoutingDataSource(
+                primary,
+                List.of(replicaOne, replicaTwo),
+                ReplicaRoutingDataSource.Strategy.ROUND_ROBIN,
+                Duration.ofSeconds(5),
+                Duration.ofHours(1),
+                new SimpleMeterRegistry()
+        );
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        underTest.close();
+        TransactionSynchronizationManager.clear();
+    }
+
+    @Test
+    void unmarkedCallsUseThePrimary() throws SQLException {
+        assertThat(underTest.getConnection()).isSameAs(primaryConnection);
+    }
+
+    @Test
+    void replicaReadsAlternateBetweenReplicas() throws SQLException {
+        try (ReplicaRoutingDataSource.Scope ignored = ReplicaRoutingDataSource.routeToReplica()) {
+            assertThat(underTest.getConnection()).isSameAs(replicaOneConnection);
+            assertThat(underTest.getConnection()).isSameAs(replicaTwoConnection);
+            assertThat(underTest.getConnection()).isSameAs(replicaOneConnection);
+        }
+
+        assertThat(underTest.getConnection()).isSameAs(primaryConnection);
+    }
+
+    @Test
+    void pinnedRequestsReadFromThePrimary() throws SQLException {
+        try (ReplicaRoutingDataSource.Scope pinned = ReplicaRoutingDataSource.pinToPrimary();
+             ReplicaRoutingDataSource.Scope read = ReplicaRoutingDataSource.routeToReplica()) {
+            assertThat(underTest.getConnection()).isSameAs(primaryConnection);
+        }
+    }
+
+    @Test
+    void readsInsideAReadWriteTransactionUseThePrimary() throws SQLException {
+        TransactionSynchronizationManager.setActualTransactionActive(true);
+
+        try (ReplicaRoutingDataSource.Scope ignored = ReplicaRoutingDataSource.routeToReplica()) {
+            assertThat(underTest.getConnection()).isSameAs(primaryConnection);
+
+            TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+            assertThat(underTest.getConnection()).isSameAs(replicaOneConnection);
+        }
+    }
+
+    @Test
+    void failingReplicaLeavesRotationUntilItsHealthCheckPasses() throws SQLException {
+        when(replicaOne.getConnection()).thenThrow(new SQLException("connection refused"));
+
+        try (ReplicaRoutingDataSource.Scope ignored = ReplicaRoutingDataSource.routeToReplica()) {
+            assertThat(underTest.getConnection()).isSameAs(replicaTwoConnection);
+            assertThat(underTest.getConnection()).isSameAs(replicaTwoConnection);
+            assertThat(underTest.getConnection()).isSameAs(replicaTwoConnection);
+
+            givenLag(replicaOne, 0, replicaOneConnection);
+            givenLag(replicaTwo, 0, replicaTwoConnection);
+            underTest.checkReplicas();
+
+            assertThat(List.of(underTest.getConnection(), underTest.getConnection()))
+                    .containsExactlyInAnyOrder(replicaOneConnection, replicaTwoConnection);
+        }
+    }
+
+    @Test
+    void laggingReplicaLeavesRotation() throws SQLException {
+        givenLag(replicaOne, 30_000, replicaOneConnection);
+        givenLag(replicaTwo, 100, replicaTwoConnection);
+        underTest.checkReplicas();
+
+        try (ReplicaRoutingDataSource.Scope ignored = ReplicaRoutingDataSource.routeToReplica()) {
+            assertThat(underTest.getConnection()).isSameAs(replicaTwoConnection);
+            assertThat(underTest.getConnection()).isSameAs(replicaTwoConnection);
+        }
+    }
+
+    @Test
+    void replicaThatIsNotStreamingLeavesRotation() throws SQLException {
+        // A null lag, as the query reports for a standby whose WAL receiver stopped.
+        when(givenLag(replicaOne, 0, replicaOneConnection).wasNull()).thenReturn(true);
+        givenLag(replicaTwo, 0, replicaTwoConnection);
+        underTest.checkReplicas();
+
+        try (ReplicaRoutingDataSource.Scope ignored = ReplicaRoutingDataSource.routeToReplica()) {
+            assertThat(underTest.getConnection()).isSameAs(replicaTwoConnection);
+            assertThat(underTest.getConnection()).isSameAs(replicaTwoConnection);
+        }
+    }
+
+    @Test
+    void fallsBackToThePrimaryWithoutReplicas() throws SQLException {
+        when(replicaOne.getConnection()).thenThrow(new SQLException("connection refused"));
+        when(replicaTwo.getConnection()).thenThrow(new SQLException("connection refused"));
+
+        try (ReplicaRoutingDataSource.Scope ignored = ReplicaRoutingDataSource.routeToReplica()) {
+            assertThat(underTest.getConnection()).isSameAs(primaryConnection);
+        }
+    }
+
+    @Test
+    void unwrapsToThePrimary() throws SQLException {
+        when(primary.isWrapperFor(String.class)).thenReturn(true);
+        when(primary.unwrap(String.class)).thenReturn("primary");
+
+        assertThat(underTest.isWrapperFor(String.class)).isTrue();
+        assertThat(underTest.unwrap(String.class)).isEqualTo("primary");
+        assertThat(underTest.unwrap(ReplicaRoutingDataSource.class)).isSameAs(underTest);
+    }
+
+    private static ResultSet givenLag(DataSource replica, double lagMillis, Connection routed) throws SQLException {
+        Connection connection = mock(Connection.class);
+        Statement statement = mock(Statement.class);
+        ResultSet resultSet = mock(ResultSet.class);
+        when(connection.createStatement()).thenReturn(statement);
+        when(statement.executeQuery(anyString())).thenReturn(resultSet);
+        when(resultSet.next()).thenReturn(true);
+        when(resultSet.getDouble(1)).thenReturn(lagMillis);
+        // The first connection runs the health check, later ones serve routed reads.
+        doReturn(connection, routed).when(replica).getConnection();
+        return resultSet;
+    }
+}
@@ -0,0 +1,40 @@
+package com.springbootcicdplayground;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import java.time.Duration;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ReplicaRoutingPostgresTest extends AbstractTestcontainers {
+
+    @Test
+    void lagQueryTakesAServerThatIsNotAStandbyOutOfRotation() throws Exception {
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        // Closing the routing data source closes its targets, so hide the shared test pool behind delegates.
+        try (ReplicaRoutingDataSource underTest = new ReplicaRoutingDataSource(
+                new DelegatingDataSource(getJdbcTemplate().getDataSource()),
+                List.of(new DelegatingDataSource(getJdbcTemplate().getDataSource())),
+                ReplicaRoutingDataSource.Strategy.LEAST_LOADED,
+                Duration.ofSeconds(5),
+                Duration.ofHours(1),
+                meterRegistry
+        )) {
+            underTest.checkReplicas();
+            JdbcTemplate jdbcTemplate = new JdbcTemplate(underTest);
+
+            try (ReplicaRoutingDataSource.Scope ignored = ReplicaRoutingDataSource.routeToReplica()) {
+                assertThat(jdbcTemplate.queryForObject("SELECT 1", Integer.class)).isEqualTo(1);
+            }
+
+            assertThat(meterRegistry.get("jdbc.replica.available").gauge().value()).isZero();
+            assertThat(meterRegistry.get("jdbc.routing.connections").tag("target", "primary").counter().count())
+                    .isEqualTo(1);
+        }
+        assertThat(getJdbcTemplate().queryForObject("SELECT 1", Integer.class)).isEqualTo(1);
+    }
+}
@@ -0,0 +1,41 @@
+package com.springbootcicdplayground;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class VirtualThreadPinningMonitorTest {
+
+    private final Object monitor = new Object();
+
+    @Test
+    void recordsVirtualThreadsThatBlockWhilePinned() throws Exception {
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        try (VirtualThreadPinningMonitor ignored = new VirtualThreadPinningMonitor(meterRegistry, Duration.ofMillis(10))) {
+            Thread.ofVirtual().start(() -> {
+                synchronized (monitor) {
+                    sleep(Duration.ofMillis(100));
+                }
+            }).join();
+
+            long deadline = System.nanoTime() + Duration.ofSeconds(10).toNanos();
+            while (meterRegistry.get("jvm.threads.virtual.pinned").timer().count() == 0
+                    && System.nanoTime() < deadline) {
+                sleep(Duration.ofMillis(100));
+            }
+        }
+
+        assertThat(meterRegistry.get("jvm.threads.virtual.pinned").timer().count()).isGreaterThanOrEqualTo(1);
+    }
+
+    private static void sleep(Duration duration) {
+        try {
+            Thread.sleep(duration);
+        } catch (InterruptedException exception) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,151 @@
+package com.springbootcicdplayground.customer;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class CustomerCacheTest {
+
+    private final Customer alex = new Customer(1L, "Alex", "alex@gmail.com", 22);
+    private CustomerCache underTest;
+
+    @BeforeEach
+    void setUp() {
+        underTest = new CustomerCache(100, Duration.ofMinutes(10));
+    }
+
+    @Test
+    void concurrentMissesShareOneLoad() throws Exception {
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger loads = new AtomicInteger();
+
+        CompletableFuture<Optional<Customer>> first = CompletableFuture.supplyAsync(() -> underTest.get(1L, id -> {
+            loads.incrementAndGet();
+            loading.countDown();
+            await(release);
+            return Optional.of(alex);
+        }));
+        assertThat(loading.await(5, TimeUnit.SECONDS)).isTrue();
+        CompletableFuture<Optional<Customer>> second = CompletableFuture.supplyAsync(() -> underTest.get(1L, id -> {
+            loads.incrementAndGet();
+            return Optional.of(alex);
+        }));
+        release.countDown();
+
+        assertThat(first.get(5, TimeUnit.SECONDS)).contains(alex);
+        assertThat(second.get(5, TimeUnit.SECONDS)).contains(alex);
+        assertThat(loads).hasValue(1);
+    }
+
+    @Test
+    void slowLoadDoesNotBlockOtherKeys() throws Exception {
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        CompletableFuture<Optional<Customer>> slow = CompletableFuture.supplyAsync(() -> underTest.get(1L, id -> {
+            loading.countDown();
+            await(release);
+            return Optional.of(alex);
+        }));
+        assertThat(loading.await(5, TimeUnit.SECONDS)).isTrue();
+
+        Customer jamila = new Customer(2L, "Jamila", "jamila@gmail.com", 25);
+        assertThat(underTest.get(2L, id -> Optional.of(jamila))).contains(jamila);
+
+        release.countDown();
+        assertThat(slow.get(5, TimeUnit.SECONDS)).contains(alex);
+    }
+
+    @Test
+    void invalidateDuringLoadDiscardsTheLoadedValue() throws Exception {
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        CompletableFuture<Optional<Customer>> stale = CompletableFuture.supplyAsync(() -> underTest.get(1L, id -> {
+            loading.countDown();
+            await(release);
+            return Optional.of(alex);
+        }));
+        assertThat(loading.await(5, TimeUnit.SECONDS)).isTrue();
+
+        underTest.invalidate(1L);
+        release.countDown();
+        stale.get(5, TimeUnit.SECONDS);
+
+        Customer renamed = new Customer(1L, "Alexander", "alex@gmail.com", 22);
+        assertThat(underTest.get(1L, id -> Optional.of(renamed))).contains(renamed);
+    }
+
+    @Test
+    void missingCustomersAreNotCached() {
+        AtomicInteger loads = new AtomicInteger();
+
+        underTest.get(1L, id -> {
+            loads.incrementAndGet();
+            return Optional.empty();
+        });
+        underTest.get(1L, id -> {
+            loads.incrementAndGet();
+            return Optional.empty();
+        });
+
+        assertThat(loads).hasValue(2);
+    }
+
+    @Test
+    void failedLoadIsRethrownAndNotCached() {
+        assertThatThrownBy(() -> underTest.get(1L, id -> {
+            throw new IllegalStateException("database down");
+        })).isInstanceOf(IllegalStateException.class);
+
+        assertThat(underTest.get(1L, id -> Optional.of(alex))).contains(alex);
+    }
+
+    @Test
+    void getAllLoadsOnlyTheMissesTogether() {
+        Customer jamila = new Customer(2L, "Jamila", "jamila@gmail.com", 19);
+        underTest.put(alex);
+        List<Set<Long>> loads = new ArrayList<>();
+
+        Map<Long, Customer> actual = underTest.getAll(List.of(1L, 2L, 3L), ids -> {
+            loads.add(Set.copyOf(ids));
+            return Map.of(2L, jamila);
+        });
+
+        assertThat(actual).containsOnly(Map.entry(1L, alex), Map.entry(2L, jamila));
+        assertThat(loads).containsExactly(Set.of(2L, 3L));
+        assertThat(underTest.get(3L, id -> Optional.of(alex))).contains(alex);
+    }
+
+    @Test
+    void remembersWritesForTheSettleTime() throws Exception {
+        underTest = new CustomerCache(100, Duration.ofMinutes(10), Duration.ofMillis(50));
+
+        underTest.invalidate(1L);
+
+        assertThat(underTest.recentlyWritten(1L)).isTrue();
+        assertThat(underTest.recentlyWritten(2L)).isFalse();
+        Thread.sleep(100);
+        assertThat(underTest.recentlyWritten(1L)).isFalse();
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException exception) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
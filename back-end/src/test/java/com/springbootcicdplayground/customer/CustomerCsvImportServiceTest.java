@@ -0,0 +1,79 @@
+package com.springbootcicdplayground.customer;
+
+import com.springbootcicdplayground.AbstractTestcontainers;
+import com.springbootcicdplayground.exception.RequestValidationException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class CustomerCsvImportServiceTest extends AbstractTestcontainers {
+
+    private CustomerCsvImportService underTest;
+    private CustomerJDBCDataAccessService customerDao;
+
+    @BeforeEach
+    void setUp() {
+        JdbcTemplate jdbcTemplate = getJdbcTemplate();
+        customerDao = new CustomerJDBCDataAccessService(
+                jdbcTemplate,
+                new CustomerRowMapper(),
+                new CustomerIdAllocator(jdbcTemplate)
+        );
+        underTest = new CustomerCsvImportService(jdbcTemplate.getDataSource(), new CustomerStatistics(customerDao));
+    }
+
+    @Test
+    void importCustomers() {
+        String takenEmail = FAKER.internet().safeEmailAddress() + "-" + UUID.randomUUID();
+        String freshEmail = FAKER.internet().safeEmailAddress() + "-" + UUID.randomUUID();
+        customerDao.insertCustomer(new Customer(FAKER.name().fullName(), takenEmail, 20));
+
+        InputStream csv = csv("""
+                name,email,age
+                Alex,%1$s,21
+                Jamila,%2$s,22
+                Alex Again,%1$s,23
+                Broken,broken-%3$s,not-a-number
+                """.formatted(freshEmail, takenEmail, UUID.randomUUID()));
+
+        CustomerImportResult actual = underTest.importCustomers(csv, true);
+
+        assertThat(actual).isEqualTo(new CustomerImportResult(4, 1, 2, 1));
+        assertThat(customerDao.existsCustomerWithEmail(freshEmail)).isTrue();
+    }
+
+    @Test
+    void importReconcilesTheStatistics() {
+        CustomerStatistics statistics = new CustomerStatistics(customerDao);
+        long before = statistics.stats().count();
+        underTest = new CustomerCsvImportService(getJdbcTemplate().getDataSource(), statistics);
+
+        underTest.importCustomers(csv("""
+                Alex,alex-%s@gmail.com,21
+                """.formatted(UUID.randomUUID())), false);
+
+        assertThat(statistics.stats().count()).isEqualTo(before + 1);
+    }
+
+    @Test
+    void willThrowWhenCsvIsMalformed() {
+        InputStream csv = csv("""
+                Alex,alex-%s@gmail.com,21,unexpected
+                """.formatted(UUID.randomUUID()));
+
+        assertThatThrownBy(() -> underTest.importCustomers(csv, false))
+                .isInstanceOf(RequestValidationException.class);
+    }
+
+    private static InputStream csv(String content) {
+        return new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8));
+    }
+}
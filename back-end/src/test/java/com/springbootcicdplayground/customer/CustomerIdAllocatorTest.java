@@ -0,0 +1,66 @@
+package com.springbootcicdplayground.customer;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.List;
+
+import static com.springbootcicdplayground.customer.CustomerIdAllocator.ALLOCATION_SIZE;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class CustomerIdAllocatorTest {
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+    private CustomerIdAllocator underTest;
+
+    @BeforeEach
+    void setUp() {
+        underTest = new CustomerIdAllocator(jdbcTemplate);
+    }
+
+    @Test
+    void handsOutIdsFromOneBlockBeforeReservingAnother() {
+        when(jdbcTemplate.queryForList(anyString(), eq(Long.class), eq(1)))
+                .thenReturn(List.of(150L))
+                .thenReturn(List.of(300L));
+
+        long first = underTest.nextId();
+        for (int i = 1; i < ALLOCATION_SIZE; i++) {
+            underTest.nextId();
+        }
+        long next = underTest.nextId();
+
+        assertThat(first).isEqualTo(101L);
+        assertThat(next).isEqualTo(251L);
+        verify(jdbcTemplate, times(2)).queryForList(anyString(), eq(Long.class), eq(1));
+    }
+
+    @Test
+    void reservesAllBlocksForABatchInOneRoundTrip() {
+        when(jdbcTemplate.queryForList(anyString(), eq(Long.class), eq(3)))
+                .thenReturn(List.of(50L, 200L, 250L));
+
+        long[] actual = underTest.nextIds(2 * ALLOCATION_SIZE + 1);
+
+        assertThat(actual).startsWith(1L, 2L).endsWith(201L);
+        assertThat(actual).doesNotHaveDuplicates();
+        verify(jdbcTemplate).queryForList(anyString(), eq(Long.class), eq(3));
+    }
+
+    @Test
+    void neverHandsOutIdsBelowOne() {
+        when(jdbcTemplate.queryForList(anyString(), eq(Long.class), eq(1)))
+                .thenReturn(List.of(1L));
+
+        assertThat(underTest.nextId()).isEqualTo(1L);
+    }
+}
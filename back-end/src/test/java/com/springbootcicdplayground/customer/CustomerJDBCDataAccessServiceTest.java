@@ -3,12 +3,21 @@ package com.springbootcicdplayground.customer;
 import com.springbootcicdplayground.AbstractTestcontainers;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
 
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
 
 class CustomerJDBCDataAccessServiceTest extends AbstractTestcontainers {
 
@@ -17,9 +26,11 @@ class CustomerJDBCDataAccessServiceTest extends AbstractTestcontainers {
 
     @BeforeEach
     void setUp() {
+        JdbcTemplate jdbcTemplate = getJdbcTemplate();
         underTest = new CustomerJDBCDataAccessService(
-                getJdbcTemplate(),
-                customerRowMapper
+                jdbcTemplate,
+                customerRowMapper,
+                new CustomerIdAllocator(jdbcTemplate)
         );
     }
 
@@ -37,6 +48,37 @@ class CustomerJDBCDataAccessServiceTest extends AbstractTestcontainers {
         assertThat(actual).isNotEmpty();
     }
 
+    @Test
+    void selectCustomersAfterId() {
+        for (int i = 0; i < 3; i++) {
+            underTest.insertCustomer(new Customer(
+                    FAKER.name().fullName(),
+                    FAKER.internet().safeEmailAddress() + "-" + UUID.randomUUID(),
+                    20
+            ));
+        }
+
+        List<Customer> firstPage = underTest.selectCustomersAfterId(0L, 2);
+        Long lastId = firstPage.get(firstPage.size() - 1).getId();
+        List<Customer> secondPage = underTest.selectCustomersAfterId(lastId, 2);
+
+        assertThat(firstPage).hasSize(2);
+        assertThat(firstPage).extracting(Customer::getId).isSorted();
+        assertThat(secondPage).isNotEmpty();
+        assertThat(secondPage).allSatisfy(c -> assertThat(c.getId()).isGreaterThan(lastId));
+    }
+
+    @Test
+    void streamAllCustomers() {
+        String email = FAKER.internet().safeEmailAddress() + "-" + UUID.randomUUID();
+        underTest.insertCustomer(new Customer(FAKER.name().fullName(), email, 20));
+        List<Customer> streamed = new ArrayList<>();
+
+        underTest.streamAllCustomers(streamed::add);
+
+        assertThat(streamed).extracting(Customer::getEmail).contains(email);
+    }
+
     @Test
     void selectCustomerById() {
         String email = FAKER.internet().safeEmailAddress() + "-" + UUID.randomUUID();
@@ -73,6 +115,51 @@ class CustomerJDBCDataAccessServiceTest extends AbstractTestcontainers {
         assertThat(actual).isEmpty();
     }
 
+    @Test
+    void insertCustomerReturnsGeneratedId() {
+        String email = FAKER.internet().safeEmailAddress() + "-" + UUID.randomUUID();
+
+        Customer actual = underTest.insertCustomer(new Customer(FAKER.name().fullName(), email, 20));
+
+        assertThat(actual.getId()).isNotNull();
+        assertThat(underTest.selectCustomerById(actual.getId()))
+                .hasValueSatisfying(c -> assertThat(c.getEmail()).isEqualTo(email));
+    }
+
+    @Test
+    void insertCustomerIfEmailAvailable() {
+        String email = FAKER.internet().safeEmailAddress() + "-" + UUID.randomUUID();
+        Customer customer = new Customer(FAKER.name().fullName(), email, 20);
+
+        Optional<Customer> first = underTest.insertCustomerIfEmailAvailable(customer);
+        Optional<Customer> second = underTest.insertCustomerIfEmailAvailable(customer);
+
+        assertThat(first).hasValueSatisfying(c -> {
+            assertThat(c.getId()).isNotNull();
+            assertThat(underTest.selectCustomerById(c.getId())).contains(c);
+        });
+        assertThat(second).isEmpty();
+    }
+
+    @Test
+    void insertCustomers() {
+        String takenEmail = FAKER.internet().safeEmailAddress() + "-" + UUID.randomUUID();
+        String freshEmail = FAKER.internet().safeEmailAddress() + "-" + UUID.randomUUID();
+        underTest.insertCustomer(new Customer(FAKER.name().fullName(), takenEmail, 20));
+
+        List<Customer> actual = underTest.insertCustomers(List.of(
+                new Customer(FAKER.name().fullName(), freshEmail, 21),
+                new Customer(FAKER.name().fullName(), takenEmail, 22),
+                new Customer(FAKER.name().fullName(), freshEmail, 23)
+        ));
+
+        assertThat(actual).singleElement().satisfies(c -> {
+            assertThat(c.getId()).isNotNull();
+            assertThat(c.getEmail()).isEqualTo(freshEmail);
+            assertThat(c.getAge()).isEqualTo(21);
+        });
+    }
+
     @Test
     void existsCustomerWithEmail() {
         String email = FAKER.internet().safeEmailAddress() + "-" + UUID.randomUUID();
@@ -111,10 +198,11 @@ class CustomerJDBCDataAccessServiceTest extends AbstractTestcontainers {
                 c.getEmail().equals(email)
         ).map(Customer::getId).findFirst().orElseThrow();
 
-        underTest.deleteCustomerById(id);
+        assertThat(underTest.deleteCustomerById(id)).isTrue();
 
         Optional<Customer> actual = underTest.selectCustomerById(id);
         assertThat(actual).isEmpty();
+        assertThat(underTest.deleteCustomerById(id)).isFalse();
     }
 
     @Test
@@ -137,7 +225,7 @@ class CustomerJDBCDataAccessServiceTest extends AbstractTestcontainers {
         updatedCustomer.setId(id);
         updatedCustomer.setName(newName);
 
-        underTest.updateCustomer(updatedCustomer);
+        assertThat(underTest.updateCustomer(updatedCustomer)).isEqualTo(CustomerUpdateOutcome.UPDATED);
 
         Optional<Customer> actual = underTest.selectCustomerById(id);
 
@@ -168,7 +256,7 @@ class CustomerJDBCDataAccessServiceTest extends AbstractTestcontainers {
         updatedCustomer.setId(id);
         updatedCustomer.setEmail(newEmail);
 
-        underTest.updateCustomer(updatedCustomer);
+        assertThat(underTest.updateCustomer(updatedCustomer)).isEqualTo(CustomerUpdateOutcome.UPDATED);
 
         Optional<Customer> actual = underTest.selectCustomerById(id);
 
@@ -199,7 +287,7 @@ class CustomerJDBCDataAccessServiceTest extends AbstractTestcontainers {
         updatedCustomer.setId(id);
         updatedCustomer.setAge(newAge);
 
-        underTest.updateCustomer(updatedCustomer);
+        assertThat(underTest.updateCustomer(updatedCustomer)).isEqualTo(CustomerUpdateOutcome.UPDATED);
 
         Optional<Customer> actual = underTest.selectCustomerById(id);
 
@@ -235,7 +323,7 @@ class CustomerJDBCDataAccessServiceTest extends AbstractTestcontainers {
                 newAge
         );
 
-        underTest.updateCustomer(updatedCustomer);
+        assertThat(underTest.updateCustomer(updatedCustomer)).isEqualTo(CustomerUpdateOutcome.UPDATED);
 
         Optional<Customer> actual = underTest.selectCustomerById(id);
 
@@ -260,7 +348,7 @@ class CustomerJDBCDataAccessServiceTest extends AbstractTestcontainers {
                 c.getEmail().equals(email)
         ).findFirst().orElseThrow();
 
-        underTest.updateCustomer(savedCustomer);
+        assertThat(underTest.updateCustomer(savedCustomer)).isEqualTo(CustomerUpdateOutcome.UNCHANGED);
 
         Optional<Customer> actual = underTest.selectCustomerById(savedCustomer.getId());
 
@@ -270,4 +358,149 @@ class CustomerJDBCDataAccessServiceTest extends AbstractTestcontainers {
             assertThat(c.getAge()).isEqualTo(savedCustomer.getAge());
         });
     }
-}
\ No newline at end of file
+
+    @Test
+    void willReportMissingCustomerOnUpdate() {
+        Customer updatedCustomer = new Customer(-1L, "Nobody", null, null);
+
+        assertThat(underTest.updateCustomer(updatedCustomer)).isEqualTo(CustomerUpdateOutcome.NOT_FOUND);
+    }
+
+    @Test
+    void writesCheckAndBumpTheVersion() {
+        String email = FAKER.internet().safeEmailAddress() + "-" + UUID.randomUUID();
+        Long id = underTest.insertCustomer(new Customer(FAKER.name().fullName(), email, 20)).getId();
+
+        assertThat(underTest.updateCustomer(new Customer(id, "Test", null, null), 1L))
+                .isEqualTo(CustomerUpdateOutcome.VERSION_MISMATCH);
+        assertThat(underTest.updateCustomer(new Customer(id, "Test", null, null), 0L))
+                .isEqualTo(CustomerUpdateOutcome.UPDATED);
+        assertThat(underTest.selectCustomerById(id)).hasValueSatisfying(c ->
+                assertThat(c.getVersion()).isEqualTo(1L)
+        );
+        assertThat(underTest.updateCustomer(new Customer(id, "Test", null, null), 1L))
+                .isEqualTo(CustomerUpdateOutcome.UNCHANGED);
+
+        assertThat(underTest.deleteCustomerById(id, 0L)).isFalse();
+        assertThat(underTest.deleteCustomerById(id, 1L)).isTrue();
+    }
+
+    @Test
+    void writesReturnTheCustomerAsItWas() {
+        String email = FAKER.internet().safeEmailAddress() + "-" + UUID.randomUUID();
+        Customer customer = underTest.insertCustomer(new Customer(FAKER.name().fullName(), email, 20));
+        Long id = customer.getId();
+
+        assertThat(underTest.updateCustomerReturningPrevious(new Customer(id, null, null, 21), 1L))
+                .isEqualTo(CustomerUpdateResult.notUpdated(CustomerUpdateOutcome.VERSION_MISMATCH));
+        assertThat(underTest.updateCustomerReturningPrevious(new Customer(id, null, null, 21), 0L))
+                .isEqualTo(CustomerUpdateResult.updated(new Customer(id, customer.getName(), email, 20, 0L)));
+        assertThat(underTest.updateCustomerReturningPrevious(new Customer(id, null, null, 21), null))
+                .isEqualTo(CustomerUpdateResult.notUpdated(CustomerUpdateOutcome.UNCHANGED));
+
+        assertThat(underTest.deleteCustomer(id, null))
+                .contains(new Customer(id, customer.getName(), email, 21, 1L));
+        assertThat(underTest.deleteCustomer(id, null)).isEmpty();
+    }
+
+    @Test
+    void concurrentUpdatesEachReturnTheCustomerTheyChanged() throws Exception {
+        Long id = underTest.insertCustomer(new Customer(
+                FAKER.name().fullName(), FAKER.internet().safeEmailAddress() + "-" + UUID.randomUUID(), 20
+        )).getId();
+
+        List<Integer> previousAges = new ArrayList<>();
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<CustomerUpdateResult>> updates = new ArrayList<>();
+            for (int age = 30; age < 38; age++) {
+                Customer changes = new Customer(id, null, null, age);
+                updates.add(executor.submit(() -> underTest.updateCustomerReturningPrevious(changes, null)));
+            }
+            for (Future<CustomerUpdateResult> update : updates) {
+                previousAges.add(update.get(10, TimeUnit.SECONDS).previous().getAge());
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        // Updates queue on the row lock, so they form a chain from 20 to the last one's age.
+        Integer lastAge = underTest.selectCustomerById(id).orElseThrow().getAge();
+        List<Integer> expected = new ArrayList<>(List.of(20, 30, 31, 32, 33, 34, 35, 36, 37));
+        expected.remove(lastAge);
+        assertThat(previousAges).containsExactlyInAnyOrderElementsOf(expected);
+    }
+
+    @Test
+    void countCustomersByAge() {
+        // Other tests share the table, so only the change is compared.
+        Map<Integer, Long> before = underTest.countCustomersByAge();
+        underTest.insertCustomer(new Customer(
+                FAKER.name().fullName(), FAKER.internet().safeEmailAddress() + "-" + UUID.randomUUID(), 978
+        ));
+        underTest.insertCustomer(new Customer(
+                FAKER.name().fullName(), FAKER.internet().safeEmailAddress() + "-" + UUID.randomUUID(), 978
+        ));
+
+        Map<Integer, Long> actual = underTest.countCustomersByAge();
+
+        assertThat(actual.get(978)).isEqualTo(before.getOrDefault(978, 0L) + 2);
+    }
+
+    @Test
+    void selectCustomersByIds() {
+        Long first = underTest.insertCustomer(new Customer(
+                FAKER.name().fullName(), FAKER.internet().safeEmailAddress() + "-" + UUID.randomUUID(), 20
+        )).getId();
+        Long second = underTest.insertCustomer(new Customer(
+                FAKER.name().fullName(), FAKER.internet().safeEmailAddress() + "-" + UUID.randomUUID(), 30
+        )).getId();
+
+        List<Customer> actual = underTest.selectCustomersByIds(List.of(second, -1L, first));
+
+        assertThat(actual).extracting(Customer::getId).containsExactlyInAnyOrder(first, second);
+        assertThat(underTest.selectCustomersByIds(List.of())).isEmpty();
+    }
+
+    @Test
+    void searchCustomersFindsSubstringsAndTypos() {
+        // Letters only, so the word is one trigram run and no other customer shares it.
+        String word = "zq" + UUID.randomUUID().toString().replace("-", "").chars()
+                .mapToObj(digit -> String.valueOf((char) ('g' + Character.digit(digit, 16))))
+                .collect(Collectors.joining()) + "xw";
+        Customer customer = underTest.insertCustomer(new Customer(
+                "Ana " + word, word + "@example.com", 20
+        ));
+        String typo = word.substring(0, 5) + word.substring(6);
+
+        assertThat(underTest.searchCustomers(word.substring(3, 12).toUpperCase(), 10))
+                .extracting(Customer::getId).containsExactly(customer.getId());
+        assertThat(underTest.searchCustomers(typo, 10))
+                .extracting(Customer::getId).containsExactly(customer.getId());
+        assertThat(underTest.searchCustomers("%_%", 10)).isEmpty();
+    }
+
+    @Test
+    void inMemoryWordSimilarityMatchesPostgres() {
+        List<List<String>> pairs = List.of(
+                List.of("jamla", "Jamila Smith"),
+                List.of("lex", "alex@gmail.com"),
+                List.of("gmial", "alex@gmail.com"),
+                List.of("smiht", "Jamila Smith"),
+                List.of("ALEX GMAIL", "alex@gmail.com"),
+                List.of("zoe", "Zoë Ørsted"),
+                List.of("abc", "xyz")
+        );
+
+        for (List<String> pair : pairs) {
+            Double expected = getJdbcTemplate().queryForObject(
+                    "SELECT word_similarity(?, ?)", Double.class, pair.get(0), pair.get(1)
+            );
+            double actual = CustomerTrigramIndex.wordSimilarity(
+                    CustomerTrigramIndex.trigrams(pair.get(0)), pair.get(1)
+            );
+
+            assertThat(actual).as(pair.toString()).isCloseTo(expected, within(1e-6));
+        }
+    }
+}
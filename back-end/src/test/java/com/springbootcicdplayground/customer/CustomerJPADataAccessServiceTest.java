@@ -5,19 +5,30 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
+import org.springframework.data.domain.PageRequest;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.stream.LongStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
 
 class CustomerJPADataAccessServiceTest {
 
     private CustomerJPADataAccessService underTest;
     private AutoCloseable autoCloseable;
     @Mock private CustomerRepository customerRepository;
+    @Mock private CustomerIdAllocator customerIdAllocator;
 
     @BeforeEach
     void setUp() {
         autoCloseable = MockitoAnnotations.openMocks(this);
-        underTest = new CustomerJPADataAccessService(customerRepository);
+        underTest = new CustomerJPADataAccessService(customerRepository, customerIdAllocator);
     }
 
     @AfterEach
@@ -32,6 +43,35 @@ class CustomerJPADataAccessServiceTest {
         verify(customerRepository).findAll();
     }
 
+    @Test
+    void selectCustomersAfterId() {
+        long afterId = 10;
+        int limit = 25;
+
+        underTest.selectCustomersAfterId(afterId, limit);
+
+        verify(customerRepository).findByIdGreaterThanOrderByIdAsc(afterId, PageRequest.ofSize(limit));
+    }
+
+    @Test
+    void streamAllCustomersWalksKeysetPages() {
+        int pageSize = CustomerJPADataAccessService.STREAM_PAGE_SIZE;
+        List<Customer> firstPage = LongStream.rangeClosed(1, pageSize)
+                .mapToObj(id -> new Customer(id, "Test", "test" + id + "@gmail.com", 22))
+                .toList();
+        List<Customer> lastPage = List.of(new Customer((long) pageSize + 1, "Last", "last@gmail.com", 22));
+        when(customerRepository.findByIdGreaterThanOrderByIdAsc(0L, PageRequest.ofSize(pageSize)))
+                .thenReturn(firstPage);
+        when(customerRepository.findByIdGreaterThanOrderByIdAsc((long) pageSize, PageRequest.ofSize(pageSize)))
+                .thenReturn(lastPage);
+        List<Customer> streamed = new ArrayList<>();
+
+        underTest.streamAllCustomers(streamed::add);
+
+        assertThat(streamed).hasSize(pageSize + 1);
+        assertThat(streamed).endsWith(lastPage.get(0));
+    }
+
     @Test
     void selectCustomerById() {
         long id = 1;
@@ -41,6 +81,43 @@ class CustomerJPADataAccessServiceTest {
         verify(customerRepository).findById(id);
     }
 
+    @Test
+    void selectCustomersByIds() {
+        underTest.selectCustomersByIds(List.of(1L, 2L));
+
+        verify(customerRepository).findAllByIdIn(new Long[]{1L, 2L});
+    }
+
+    @Test
+    void searchCustomers() {
+        underTest.searchCustomers("al_x", 5);
+
+        verify(customerRepository).search("al_x", "%al\\_x%", 5);
+    }
+
+    @Test
+    void countCustomersByAge() {
+        when(customerRepository.countByAge()).thenReturn(List.of(ageCount(22, 3), ageCount(25, 1)));
+
+        Map<Integer, Long> actual = underTest.countCustomersByAge();
+
+        assertThat(actual).isEqualTo(Map.of(22, 3L, 25, 1L));
+    }
+
+    private static CustomerRepository.AgeCount ageCount(int age, long count) {
+        return new CustomerRepository.AgeCount() {
+            @Override
+            public Integer getAge() {
+                return age;
+            }
+
+            @Override
+            public Long getCount() {
+                return count;
+            }
+        };
+    }
+
     @Test
     void insertCustomer() {
         Customer customer = new Customer("Test", "test@gmail.com", 22);
@@ -50,6 +127,41 @@ class CustomerJPADataAccessServiceTest {
         verify(customerRepository).save(customer);
     }
 
+    @Test
+    void insertCustomerIfEmailAvailable() {
+        Customer customer = new Customer("Test", "test@gmail.com", 22);
+        when(customerIdAllocator.nextId()).thenReturn(7L);
+        when(customerRepository.insertIfEmailAvailable(7L, "Test", "test@gmail.com", 22)).thenReturn(1);
+
+        Optional<Customer> actual = underTest.insertCustomerIfEmailAvailable(customer);
+
+        assertThat(actual).contains(new Customer(7L, "Test", "test@gmail.com", 22));
+    }
+
+    @Test
+    void insertCustomerIfEmailAvailableReturnsEmptyWhenEmailTaken() {
+        Customer customer = new Customer("Test", "test@gmail.com", 22);
+        when(customerIdAllocator.nextId()).thenReturn(7L);
+        when(customerRepository.insertIfEmailAvailable(7L, "Test", "test@gmail.com", 22)).thenReturn(0);
+
+        Optional<Customer> actual = underTest.insertCustomerIfEmailAvailable(customer);
+
+        assertThat(actual).isEmpty();
+    }
+
+    @Test
+    void insertCustomersSkipsTakenAndRepeatedEmails() {
+        Customer fresh = new Customer("Test", "test@gmail.com", 22);
+        Customer taken = new Customer("Taken", "taken@gmail.com", 22);
+        Customer repeated = new Customer("Again", "test@gmail.com", 23);
+        when(customerRepository.findExistingEmails(List.of("test@gmail.com", "taken@gmail.com", "test@gmail.com")))
+                .thenReturn(List.of("taken@gmail.com"));
+
+        underTest.insertCustomers(List.of(fresh, taken, repeated));
+
+        verify(customerRepository).saveAll(List.of(fresh));
+    }
+
     @Test
     void existsCustomerWithEmail() {
         String testEmail = "test01@gmail.com";
@@ -62,18 +174,38 @@ class CustomerJPADataAccessServiceTest {
     @Test
     void deleteCustomerById() {
         Long id = 1L;
+        when(customerRepository.deleteCustomerById(id, null))
+                .thenReturn(Optional.of(new Customer(id, "Test", "t@gmail.com", 22, 3L)));
 
-        underTest.deleteCustomerById(id);
+        assertThat(underTest.deleteCustomerById(id)).isTrue();
 
-        verify(customerRepository).deleteById(id);
+        verify(customerRepository, never()).findById(id);
     }
 
     @Test
     void updateCustomer() {
-        Customer customer = new Customer("Test", "test@gmail.com", 22);
+        Customer changes = new Customer(1L, "Test", null, 22);
+        Customer previous = new Customer(1L, "Old", "t@gmail.com", 21, 3L);
+        when(customerRepository.updateIfChanged(1L, "Test", null, 22, null)).thenReturn(Optional.of(previous));
 
-        underTest.updateCustomer(customer);
+        assertThat(underTest.updateCustomerReturningPrevious(changes, null))
+                .isEqualTo(CustomerUpdateResult.updated(previous));
 
-        verify(customerRepository).save(customer);
+        verify(customerRepository, never()).findById(1L);
+    }
+
+    @Test
+    void updateCustomerThatChangesNothingLooksUpTheStoredRow() {
+        when(customerRepository.findById(1L)).thenReturn(Optional.of(new Customer(1L, "Test", "t@gmail.com", 22, 3L)));
+        when(customerRepository.findById(2L)).thenReturn(Optional.empty());
+
+        assertThat(underTest.updateCustomer(new Customer(1L, "Test", null, null)))
+                .isEqualTo(CustomerUpdateOutcome.UNCHANGED);
+        assertThat(underTest.updateCustomer(new Customer(1L, "Test", null, null), 3L))
+                .isEqualTo(CustomerUpdateOutcome.UNCHANGED);
+        assertThat(underTest.updateCustomer(new Customer(1L, "Other", null, null), 2L))
+                .isEqualTo(CustomerUpdateOutcome.VERSION_MISMATCH);
+        assertThat(underTest.updateCustomer(new Customer(2L, "Test", null, null)))
+                .isEqualTo(CustomerUpdateOutcome.NOT_FOUND);
     }
-}
\ No newline at end of file
+}
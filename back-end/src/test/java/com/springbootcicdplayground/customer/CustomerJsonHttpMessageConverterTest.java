@@ -0,0 +1,77 @@
+package com.springbootcicdplayground.customer;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.http.MediaType;
+import org.springframework.mock.http.MockHttpOutputMessage;
+
+import java.io.IOException;
+import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CustomerJsonHttpMessageConverterTest {
+
+    private static final Type CUSTOMER_LIST = new ParameterizedTypeReference<List<Customer>>() {
+    }.getType();
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final CustomerJsonHttpMessageConverter underTest = new CustomerJsonHttpMessageConverter();
+
+    @Test
+    void writesOnlyCustomerResponses() {
+        Type results = new ParameterizedTypeReference<List<CustomerRegistrationResult>>() {
+        }.getType();
+
+        assertThat(underTest.canWrite(CUSTOMER_LIST, List.class, MediaType.APPLICATION_JSON)).isTrue();
+        assertThat(underTest.canWrite(Customer.class, Customer.class, null)).isTrue();
+        assertThat(underTest.canWrite(CustomerPage.class, CustomerPage.class, MediaType.ALL)).isTrue();
+        assertThat(underTest.canWrite(results, List.class, MediaType.APPLICATION_JSON)).isFalse();
+        assertThat(underTest.canWrite(Customer.class, Customer.class, MediaType.APPLICATION_XML)).isFalse();
+        assertThat(underTest.canRead(CustomerUpdateRequest.class, null, MediaType.APPLICATION_JSON)).isFalse();
+        assertThat(underTest.canRead(Customer.class, MediaType.APPLICATION_JSON)).isFalse();
+    }
+
+    @Test
+    void writesTheSameBytesAsJackson() throws IOException {
+        List<Customer> customers = List.of(
+                new Customer(1L, "Alex", "alex@gmail.com", 22, 7L),
+                new Customer(-42L, "\"Quoted\" \\ back/slash", "tab\there@gmail.com", -1),
+                new Customer(Long.MAX_VALUE, "Zoë Ørsted 李小龙 😀", "zoe@gmail.com", Integer.MIN_VALUE),
+                new Customer(Long.MIN_VALUE, "\u0000\u0001\b\f\n\r\u001f\u007f", "", 0),
+                new Customer(null, null, null, null)
+        );
+
+        assertThat(write(customers, CUSTOMER_LIST)).isEqualTo(objectMapper.writeValueAsString(customers));
+        assertThat(write(customers.get(2), Customer.class)).isEqualTo(objectMapper.writeValueAsString(customers.get(2)));
+        assertThat(write(List.of(), CUSTOMER_LIST)).isEqualTo("[]");
+
+        CustomerPage page = new CustomerPage(customers, "MQ");
+        CustomerPage lastPage = new CustomerPage(List.of(), null);
+        assertThat(write(page, CustomerPage.class)).isEqualTo(objectMapper.writeValueAsString(page));
+        assertThat(write(lastPage, CustomerPage.class)).isEqualTo(objectMapper.writeValueAsString(lastPage));
+    }
+
+    @Test
+    void writesListsLargerThanItsBuffer() throws IOException {
+        List<Customer> customers = new ArrayList<>();
+        for (long id = 1; id <= 1_000; id++) {
+            customers.add(new Customer(id, "Customer " + id + " ✓", "customer" + id + "@gmail.com", (int) id % 90));
+        }
+
+        String actual = write(customers, CUSTOMER_LIST);
+
+        assertThat(actual.length()).isGreaterThan(CustomerJsonWriter.BUFFER_SIZE * 4);
+        assertThat(actual).isEqualTo(objectMapper.writeValueAsString(customers));
+    }
+
+    private String write(Object value, Type type) throws IOException {
+        MockHttpOutputMessage output = new MockHttpOutputMessage();
+        underTest.write(value, type, MediaType.APPLICATION_JSON, output);
+        assertThat(output.getHeaders().getContentType()).isEqualTo(MediaType.APPLICATION_JSON);
+        return output.getBodyAsString();
+    }
+}
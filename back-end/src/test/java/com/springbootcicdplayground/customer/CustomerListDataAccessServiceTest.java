@@ -0,0 +1,267 @@
+package com.springbootcicdplayground.customer;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DuplicateKeyException;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class CustomerListDataAccessServiceTest {
+
+    private CustomerListDataAccessService underTest;
+
+    @BeforeEach
+    void setUp() {
+        underTest = new CustomerListDataAccessService();
+    }
+
+    @Test
+    void insertAssignsIdsAfterTheSeededCustomers() {
+        Customer actual = underTest.insertCustomer(new Customer("Ana", "ana@gmail.com", 30));
+
+        assertThat(actual.getId()).isEqualTo(3L);
+        assertThat(underTest.selectCustomerById(3L)).contains(actual);
+        assertThat(underTest.existsCustomerWithEmail("ana@gmail.com")).isTrue();
+    }
+
+    @Test
+    void insertCustomerIfEmailAvailableRejectsATakenEmail() {
+        Optional<Customer> actual = underTest.insertCustomerIfEmailAvailable(
+                new Customer("Alex Again", "alex@gmail.com", 40)
+        );
+
+        assertThat(actual).isEmpty();
+        assertThat(underTest.selectAllCustomers()).hasSize(2);
+    }
+
+    @Test
+    void insertCustomerThrowsOnATakenEmail() {
+        assertThatThrownBy(() -> underTest.insertCustomer(new Customer("Alex Again", "alex@gmail.com", 40)))
+                .isInstanceOf(DuplicateKeyException.class);
+    }
+
+    @Test
+    void insertCustomersSkipsTakenEmails() {
+        List<Customer> actual = underTest.insertCustomers(List.of(
+                new Customer("Ana", "ana@gmail.com", 30),
+                new Customer("Alex Again", "alex@gmail.com", 40),
+                new Customer("Ana Again", "ana@gmail.com", 31)
+        ));
+
+        assertThat(actual).extracting(Customer::getEmail).containsExactly("ana@gmail.com");
+    }
+
+    @Test
+    void updateReplacesTheCustomerAndMovesItsEmail() {
+        Customer customer = underTest.selectCustomerById(1L).orElseThrow();
+        customer.setEmail("alex@outlook.com");
+
+        assertThat(underTest.updateCustomer(customer)).isEqualTo(CustomerUpdateOutcome.UPDATED);
+
+        customer.setVersion(1L);
+        assertThat(underTest.selectAllCustomers()).hasSize(2);
+        assertThat(underTest.selectCustomerById(1L)).contains(customer);
+        assertThat(underTest.existsCustomerWithEmail("alex@gmail.com")).isFalse();
+        assertThat(underTest.existsCustomerWithEmail("alex@outlook.com")).isTrue();
+    }
+
+    @Test
+    void updateThrowsWhenTheEmailBelongsToSomeoneElse() {
+        Customer customer = underTest.selectCustomerById(1L).orElseThrow();
+        customer.setEmail("jamila@gmail.com");
+
+        assertThatThrownBy(() -> underTest.updateCustomer(customer))
+                .isInstanceOf(DuplicateKeyException.class);
+        assertThat(underTest.selectCustomerById(1L).orElseThrow().getEmail()).isEqualTo("alex@gmail.com");
+    }
+
+    @Test
+    void updateWritesOnlyGivenFieldsThatDiffer() {
+        assertThat(underTest.updateCustomer(new Customer(1L, null, null, 30))).isEqualTo(CustomerUpdateOutcome.UPDATED);
+        assertThat(underTest.selectCustomerById(1L)).contains(new Customer(1L, "Alex", "alex@gmail.com", 30, 1L));
+
+        assertThat(underTest.updateCustomer(new Customer(1L, "Alex", null, 30))).isEqualTo(CustomerUpdateOutcome.UNCHANGED);
+        assertThat(underTest.updateCustomer(new Customer(404L, "Alex", null, null))).isEqualTo(CustomerUpdateOutcome.NOT_FOUND);
+    }
+
+    @Test
+    void writesWithAnotherVersionChangeNothing() {
+        assertThat(underTest.updateCustomer(new Customer(1L, "Alexander", null, null), 1L))
+                .isEqualTo(CustomerUpdateOutcome.VERSION_MISMATCH);
+        assertThat(underTest.deleteCustomerById(1L, 1L)).isFalse();
+        assertThat(underTest.selectCustomerById(1L).orElseThrow().getName()).isEqualTo("Alex");
+
+        assertThat(underTest.updateCustomer(new Customer(1L, "Alexander", null, null), 0L))
+                .isEqualTo(CustomerUpdateOutcome.UPDATED);
+        assertThat(underTest.deleteCustomerById(1L, 1L)).isTrue();
+    }
+
+    @Test
+    void returnedCustomersAreCopies() {
+        underTest.selectCustomerById(1L).orElseThrow().setName("Changed");
+
+        assertThat(underTest.selectCustomerById(1L).orElseThrow().getName()).isEqualTo("Alex");
+    }
+
+    @Test
+    void deleteFreesTheEmail() {
+        assertThat(underTest.deleteCustomerById(1L)).isTrue();
+        assertThat(underTest.deleteCustomerById(1L)).isFalse();
+
+        assertThat(underTest.selectCustomerById(1L)).isEmpty();
+        assertThat(underTest.existsCustomerWithEmail("alex@gmail.com")).isFalse();
+        assertThat(underTest.insertCustomerIfEmailAvailable(new Customer("Alex", "alex@gmail.com", 22))).isPresent();
+    }
+
+    @Test
+    void selectCustomersAfterIdPagesInIdOrder() {
+        for (int i = 0; i < 5; i++) {
+            underTest.insertCustomer(new Customer("Customer " + i, "customer" + i + "@gmail.com", 20 + i));
+        }
+
+        List<Customer> actual = underTest.selectCustomersAfterId(2L, 3);
+
+        assertThat(actual).extracting(Customer::getId).containsExactly(3L, 4L, 5L);
+    }
+
+    @Test
+    void concurrentRegistrationsOfOneEmailInsertExactlyOnce() throws Exception {
+        int threads = 8;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Callable<Optional<Customer>>> tasks = new ArrayList<>();
+            for (int i = 0; i < threads * 100; i++) {
+                String email = "racer" + (i % 100) + "@gmail.com";
+                tasks.add(() -> underTest.insertCustomerIfEmailAvailable(new Customer("Racer", email, 20)));
+            }
+
+            long inserted = 0;
+            for (Future<Optional<Customer>> future : executor.invokeAll(tasks)) {
+                if (future.get().isPresent()) {
+                    inserted++;
+                }
+            }
+
+            assertThat(inserted).isEqualTo(100);
+            assertThat(underTest.selectAllCustomers())
+                    .hasSize(102)
+                    .extracting(Customer::getId)
+                    .doesNotHaveDuplicates()
+                    .isSorted();
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void concurrentEmailSwapsNeverFreeTheStoredEmail() throws Exception {
+        List<String> emails = List.of("alex@outlook.com", "alex@gmail.com");
+        int threads = 4;
+        ExecutorService executor = Executors.newFixedThreadPool(threads + 1);
+        try {
+            List<Callable<Void>> tasks = new ArrayList<>();
+            for (int thread = 0; thread < threads; thread++) {
+                String email = emails.get(thread % 2);
+                tasks.add(() -> {
+                    for (int i = 0; i < 50_000; i++) {
+                        try {
+                            underTest.updateCustomer(new Customer(1L, null, email, null));
+                        } catch (DuplicateKeyException taken) {
+                            // The other customer got this email first.
+                        }
+                    }
+                    return null;
+                });
+            }
+            // Takes whichever email the index says is free, checks that customer 1 does not hold it too,
+            // and gives it back.
+            AtomicInteger sharedEmails = new AtomicInteger();
+            tasks.add(() -> {
+                for (int i = 0; i < 200_000; i++) {
+                    Optional<Customer> thief = underTest.insertCustomerIfEmailAvailable(
+                            new Customer("Thief", emails.get(i % 2), 30)
+                    );
+                    if (thief.isPresent()) {
+                        if (underTest.selectCustomerById(1L).orElseThrow().getEmail().equals(thief.get().getEmail())) {
+                            sharedEmails.incrementAndGet();
+                        }
+                        underTest.deleteCustomerById(thief.get().getId());
+                    }
+                }
+                return null;
+            });
+            for (Future<Void> future : executor.invokeAll(tasks)) {
+                future.get();
+            }
+            assertThat(sharedEmails).hasValue(0);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void selectCustomersByIdsSkipsMissingIds() {
+        Customer first = underTest.insertCustomer(new Customer("Ana", "ana@gmail.com", 30));
+        Customer second = underTest.insertCustomer(new Customer("Bo", "bo@gmail.com", 40));
+
+        List<Customer> actual = underTest.selectCustomersByIds(List.of(second.getId(), 999L, first.getId()));
+
+        assertThat(actual).containsExactlyInAnyOrder(first, second);
+    }
+
+    @Test
+    void searchCustomersRanksSubstringsAndTyposBySimilarity() {
+        Customer smith = underTest.insertCustomer(new Customer("Jamie Smith", "jamie@outlook.com", 30));
+        underTest.insertCustomer(new Customer("Bo", "bo@yahoo.com", 40));
+
+        // Both names start with "jami", so they tie and come in id order.
+        assertThat(underTest.searchCustomers("JAMI", 10)).extracting(Customer::getName)
+                .containsExactly("Jamila", "Jamie Smith");
+        assertThat(underTest.searchCustomers("smiht", 10)).isEmpty();
+        assertThat(underTest.searchCustomers("jamie smth", 10)).containsExactly(smith);
+        assertThat(underTest.searchCustomers("gmail", 1)).extracting(Customer::getName).containsExactly("Alex");
+    }
+
+    @Test
+    void searchCustomersFollowsUpdatesAndDeletes() {
+        Customer customer = underTest.selectCustomerById(1L).orElseThrow();
+        customer.setName("Alexandra");
+        customer.setEmail(null);
+        customer.setAge(null);
+
+        underTest.updateCustomer(customer);
+        underTest.deleteCustomerById(2L);
+
+        assertThat(underTest.searchCustomers("alexandra", 10)).extracting(Customer::getId).containsExactly(1L);
+        assertThat(underTest.searchCustomers("jamila", 10)).isEmpty();
+    }
+
+    @Test
+    void writesReturnTheCustomerAsItWas() {
+        assertThat(underTest.updateCustomerReturningPrevious(new Customer(1L, null, null, 30), null))
+                .isEqualTo(CustomerUpdateResult.updated(new Customer(1L, "Alex", "alex@gmail.com", 22, 0L)));
+        assertThat(underTest.updateCustomerReturningPrevious(new Customer(1L, null, null, 30), null))
+                .isEqualTo(CustomerUpdateResult.notUpdated(CustomerUpdateOutcome.UNCHANGED));
+
+        assertThat(underTest.deleteCustomer(1L, null)).contains(new Customer(1L, "Alex", "alex@gmail.com", 30, 1L));
+        assertThat(underTest.deleteCustomer(1L, null)).isEmpty();
+    }
+
+    @Test
+    void countCustomersByAge() {
+        underTest.insertCustomer(new Customer("Ana", "ana@gmail.com", 22));
+
+        assertThat(underTest.countCustomersByAge()).isEqualTo(Map.of(22, 2L, 25, 1L));
+    }
+}
@@ -0,0 +1,84 @@
+package com.springbootcicdplayground.customer;
+
+import com.springbootcicdplayground.exception.ResourceNotFound;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.aop.aspectj.annotation.AspectJProxyFactory;
+import org.springframework.dao.DuplicateKeyException;
+
+import java.time.Duration;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class CustomerMetricsAspectTest {
+
+    private SimpleMeterRegistry meterRegistry;
+    private CustomerMetricsAspect underTest;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        underTest = new CustomerMetricsAspect(meterRegistry);
+    }
+
+    @Test
+    void timesDaoCallsTaggedWithTheImplementationAndOutcome() {
+        CustomerDao customerDao = proxy(new CustomerListDataAccessService());
+
+        customerDao.selectCustomerById(1L);
+        customerDao.selectCustomerById(2L);
+        assertThatThrownBy(() -> customerDao.insertCustomer(new Customer("Alex", "alex@gmail.com", 22)))
+                .isInstanceOf(DuplicateKeyException.class);
+
+        Timer selects = meterRegistry.get(CustomerMetricsAspect.DAO_TIMER)
+                .tags("dao", "list", "method", "selectCustomerById", "outcome", "SUCCESS")
+                .timer();
+        Timer duplicates = meterRegistry.get(CustomerMetricsAspect.DAO_TIMER)
+                .tags("dao", "list", "method", "insertCustomer", "outcome", "DUPLICATE",
+                        "exception", "DuplicateKeyException")
+                .timer();
+        assertThat(selects.count()).isEqualTo(2);
+        assertThat(duplicates.count()).isEqualTo(1);
+    }
+
+    @Test
+    void timesServiceCallsTaggedWithTheOutcome() {
+        CustomerListDataAccessService customerDao = new CustomerListDataAccessService();
+        CustomerService customerService = proxy(new CustomerService(
+                customerDao,
+                new CustomerCache(100, Duration.ofMinutes(10)),
+                Optional.empty(),
+                new CustomerStatistics(customerDao)
+        ));
+
+        customerService.getCustomer(1L);
+        assertThatThrownBy(() -> customerService.getCustomer(404L))
+                .isInstanceOf(ResourceNotFound.class);
+
+        assertThat(meterRegistry.get(CustomerMetricsAspect.SERVICE_TIMER)
+                .tags("method", "getCustomer", "outcome", "SUCCESS")
+                .timer()
+                .count()).isEqualTo(1);
+        assertThat(meterRegistry.get(CustomerMetricsAspect.SERVICE_TIMER)
+                .tags("method", "getCustomer", "outcome", "NOT_FOUND", "exception", "ResourceNotFound")
+                .timer()
+                .count()).isEqualTo(1);
+    }
+
+    @Test
+    void outcomeFallsBackToErrorForUnexpectedExceptions() {
+        assertThat(CustomerMetricsAspect.outcome(IllegalStateException.class)).isEqualTo("ERROR");
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T> T proxy(T target) {
+        AspectJProxyFactory factory = new AspectJProxyFactory(target);
+        factory.setProxyTargetClass(true);
+        factory.addAspect(underTest);
+        return (T) factory.getProxy();
+    }
+}
@@ -0,0 +1,114 @@
+package com.springbootcicdplayground.customer;
+
+import com.google.protobuf.ByteString;
+import com.google.protobuf.CodedOutputStream;
+import com.google.protobuf.UnknownFieldSet;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.http.converter.HttpMessageNotReadableException;
+import org.springframework.mock.http.MockHttpInputMessage;
+import org.springframework.mock.http.MockHttpOutputMessage;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.lang.reflect.Type;
+import java.util.List;
+
+import static com.springbootcicdplayground.customer.CustomerProtobufHttpMessageConverter.APPLICATION_PROTOBUF;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class CustomerProtobufHttpMessageConverterTest {
+
+    private static final Type CUSTOMER_LIST = new ParameterizedTypeReference<List<Customer>>() {
+    }.getType();
+
+    private final CustomerProtobufHttpMessageConverter underTest = new CustomerProtobufHttpMessageConverter();
+
+    @Test
+    void supportsOnlyCustomerMessages() {
+        Type results = new ParameterizedTypeReference<List<CustomerRegistrationResult>>() {
+        }.getType();
+
+        assertThat(underTest.canWrite(CUSTOMER_LIST, List.class, APPLICATION_PROTOBUF)).isTrue();
+        assertThat(underTest.canWrite(Customer.class, Customer.class, APPLICATION_PROTOBUF)).isTrue();
+        assertThat(underTest.canRead(CustomerUpdateRequest.class, null, APPLICATION_PROTOBUF)).isTrue();
+        assertThat(underTest.canWrite(results, List.class, APPLICATION_PROTOBUF)).isFalse();
+        assertThat(underTest.canRead(results, null, APPLICATION_PROTOBUF)).isFalse();
+        assertThat(underTest.canWrite(CustomerCacheStats.class, CustomerCacheStats.class, APPLICATION_PROTOBUF))
+                .isFalse();
+    }
+
+    @Test
+    void writesCustomerListsAsTheSchemaDescribes() throws IOException {
+        List<Customer> customers = List.of(
+                new Customer(1L, "Zoë", "zoe@gmail.com", 30, 4L),
+                new Customer(2L, "Alex", "alex@gmail.com", 22)
+        );
+        MockHttpOutputMessage output = new MockHttpOutputMessage();
+
+        underTest.write(customers, CUSTOMER_LIST, APPLICATION_PROTOBUF, output);
+
+        assertThat(output.getHeaders().getContentType()).isEqualTo(APPLICATION_PROTOBUF);
+        List<ByteString> written = UnknownFieldSet.parseFrom(output.getBodyAsBytes())
+                .getField(1)
+                .getLengthDelimitedList();
+        assertThat(written).hasSize(2);
+        UnknownFieldSet first = UnknownFieldSet.parseFrom(written.get(0));
+        assertThat(first.getField(1).getVarintList()).containsExactly(1L);
+        assertThat(first.getField(2).getLengthDelimitedList()).containsExactly(ByteString.copyFromUtf8("Zoë"));
+        assertThat(first.getField(3).getLengthDelimitedList())
+                .containsExactly(ByteString.copyFromUtf8("zoe@gmail.com"));
+        assertThat(first.getField(4).getVarintList()).containsExactly(30L);
+        assertThat(first.asMap()).containsOnlyKeys(1, 2, 3, 4);
+
+        Object actual = underTest.read(CUSTOMER_LIST, null, new MockHttpInputMessage(output.getBodyAsBytes()));
+
+        assertThat(actual).isEqualTo(List.of(
+                new Customer(1L, "Zoë", "zoe@gmail.com", 30),
+                new Customer(2L, "Alex", "alex@gmail.com", 22)
+        ));
+    }
+
+    @Test
+    void roundTripsPagesAndRequests() throws IOException {
+        CustomerPage page = new CustomerPage(List.of(new Customer(1L, "Alex", "alex@gmail.com", 22)), "MQ");
+        CustomerUpdateRequest update = new CustomerUpdateRequest(null, "alex@outlook.com", null);
+        CustomerRegistrationRequest registration = new CustomerRegistrationRequest("Alex", "alex@gmail.com", 0);
+
+        assertThat(roundTrip(page, CustomerPage.class)).isEqualTo(page);
+        assertThat(roundTrip(update, CustomerUpdateRequest.class)).isEqualTo(update);
+        assertThat(roundTrip(registration, CustomerRegistrationRequest.class)).isEqualTo(registration);
+    }
+
+    @Test
+    void skipsUnknownFields() throws IOException {
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        CodedOutputStream output = CodedOutputStream.newInstance(body);
+        output.writeString(1, "Alex");
+        output.writeString(9, "added in a later schema");
+        output.writeInt32(3, 22);
+        output.flush();
+
+        Object actual = underTest.read(
+                CustomerRegistrationRequest.class, null, new MockHttpInputMessage(body.toByteArray())
+        );
+
+        assertThat(actual).isEqualTo(new CustomerRegistrationRequest("Alex", null, 22));
+    }
+
+    @Test
+    void rejectsMalformedBodies() {
+        byte[] truncated = {0x0a, 0x05, 'A', 'l'};
+
+        assertThatThrownBy(() -> underTest.read(
+                CustomerRegistrationRequest.class, null, new MockHttpInputMessage(truncated)
+        )).isInstanceOf(HttpMessageNotReadableException.class);
+    }
+
+    private Object roundTrip(Object message, Class<?> type) throws IOException {
+        MockHttpOutputMessage output = new MockHttpOutputMessage();
+        underTest.write(message, type, APPLICATION_PROTOBUF, output);
+        return underTest.read(type, null, new MockHttpInputMessage(output.getBodyAsBytes()));
+    }
+}
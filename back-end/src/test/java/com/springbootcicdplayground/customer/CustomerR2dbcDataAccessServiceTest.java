@@ -0,0 +1,125 @@
+package com.springbootcicdplayground.customer;
+
+import com.springbootcicdplayground.AbstractTestcontainers;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataIntegrityViolationException;
+
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class CustomerR2dbcDataAccessServiceTest extends AbstractTestcontainers {
+
+    private CustomerR2dbcDataAccessService underTest;
+
+    @BeforeEach
+    void setUp() {
+        underTest = new CustomerR2dbcDataAccessService(getDatabaseClient());
+    }
+
+    @Test
+    void insertedCustomerCanBeSelectedById() {
+        Customer inserted = underTest.insertCustomerIfEmailAvailable(newCustomer()).block();
+
+        assertThat(inserted).isNotNull();
+        assertThat(underTest.selectCustomerById(inserted.getId()).block()).isEqualTo(inserted);
+    }
+
+    @Test
+    void insertCustomerIfEmailAvailableIsEmptyWhenEmailTaken() {
+        Customer customer = newCustomer();
+        underTest.insertCustomerIfEmailAvailable(customer).block();
+
+        Customer duplicate = new Customer(FAKER.name().fullName(), customer.getEmail(), 30);
+
+        assertThat(underTest.insertCustomerIfEmailAvailable(duplicate).blockOptional()).isEmpty();
+    }
+
+    @Test
+    void insertCustomersSkipsTakenEmails() {
+        Customer taken = underTest.insertCustomerIfEmailAvailable(newCustomer()).block();
+        Customer fresh = newCustomer();
+
+        List<Customer> inserted = underTest.insertCustomers(List.of(
+                new Customer(fresh.getName(), fresh.getEmail(), fresh.getAge()),
+                new Customer(FAKER.name().fullName(), taken.getEmail(), 40)
+        )).collectList().block();
+
+        assertThat(inserted)
+                .singleElement()
+                .satisfies(customer -> assertThat(customer.getEmail()).isEqualTo(fresh.getEmail()));
+    }
+
+    @Test
+    void selectCustomersAfterIdPagesInIdOrder() {
+        for (int i = 0; i < 3; i++) {
+            underTest.insertCustomerIfEmailAvailable(newCustomer()).block();
+        }
+
+        List<Customer> firstPage = underTest.selectCustomersAfterId(0L, 2).collectList().block();
+        Long lastId = firstPage.get(firstPage.size() - 1).getId();
+        List<Customer> secondPage = underTest.selectCustomersAfterId(lastId, 2).collectList().block();
+
+        assertThat(firstPage).hasSize(2).extracting(Customer::getId).isSorted();
+        assertThat(secondPage).isNotEmpty().allSatisfy(customer -> assertThat(customer.getId()).isGreaterThan(lastId));
+    }
+
+    @Test
+    void selectAllCustomersStreamsEveryRow() {
+        Customer inserted = underTest.insertCustomerIfEmailAvailable(newCustomer()).block();
+
+        assertThat(underTest.selectAllCustomers().collectList().block()).contains(inserted);
+    }
+
+    @Test
+    void updateCustomerChangesOnlyGivenFields() {
+        Customer inserted = underTest.insertCustomerIfEmailAvailable(newCustomer()).block();
+
+        assertThat(underTest.updateCustomer(new Customer(inserted.getId(), "Renamed", null, null)).block())
+                .isEqualTo(CustomerUpdateOutcome.UPDATED);
+
+        assertThat(underTest.selectCustomerById(inserted.getId()).block())
+                .isEqualTo(new Customer(inserted.getId(), "Renamed", inserted.getEmail(), inserted.getAge(), 1L));
+    }
+
+    @Test
+    void updateCustomerReportsUnchangedAndMissingCustomers() {
+        Customer inserted = underTest.insertCustomerIfEmailAvailable(newCustomer()).block();
+
+        assertThat(underTest.updateCustomer(new Customer(inserted.getId(), inserted.getName(), null, 20)).block())
+                .isEqualTo(CustomerUpdateOutcome.UNCHANGED);
+        assertThat(underTest.updateCustomer(new Customer(-1L, "Nobody", null, null)).block())
+                .isEqualTo(CustomerUpdateOutcome.NOT_FOUND);
+    }
+
+    @Test
+    void updateCustomerToTakenEmailFailsWithIntegrityViolation() {
+        Customer first = underTest.insertCustomerIfEmailAvailable(newCustomer()).block();
+        Customer second = underTest.insertCustomerIfEmailAvailable(newCustomer()).block();
+
+        assertThatThrownBy(() -> underTest.updateCustomer(
+                new Customer(second.getId(), null, first.getEmail(), null)
+        ).block()).isInstanceOf(DataIntegrityViolationException.class);
+    }
+
+    @Test
+    void deleteCustomerById() {
+        Customer inserted = underTest.insertCustomerIfEmailAvailable(newCustomer()).block();
+
+        assertThat(underTest.deleteCustomerById(inserted.getId()).block()).isTrue();
+
+        assertThat(underTest.selectCustomerById(inserted.getId()).blockOptional()).isEmpty();
+        assertThat(underTest.deleteCustomerById(inserted.getId()).block()).isFalse();
+    }
+
+    private static Customer newCustomer() {
+        return new Customer(
+                FAKER.name().fullName(),
+                FAKER.internet().safeEmailAddress() + "-" + UUID.randomUUID(),
+                20
+        );
+    }
+}
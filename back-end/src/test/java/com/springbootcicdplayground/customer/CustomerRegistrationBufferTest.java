@@ -0,0 +1,124 @@
+package com.springbootcicdplayground.customer;
+
+import com.springbootcicdplayground.exception.DuplicateResourceException;
+import com.springbootcicdplayground.exception.ServiceUnavailableException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataAccessResourceFailureException;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class CustomerRegistrationBufferTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private CustomerRegistrationBuffer underTest;
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        underTest.close();
+    }
+
+    @Test
+    void concurrentRegistrationsShareOneCommit() {
+        underTest = buffer(new CustomerListDataAccessService(), 3, Duration.ofSeconds(5), 10);
+
+        List<CompletableFuture<Customer>> registrations = List.of(
+                underTest.register(new Customer("Ana", "ana@gmail.com", 30)),
+                underTest.register(new Customer("Bo", "bo@gmail.com", 40)),
+                underTest.register(new Customer("Cy", "cy@gmail.com", 50))
+        );
+
+        assertThat(registrations).map(registration -> registration.join().getId()).doesNotHaveDuplicates();
+        assertThat(meterRegistry.get("customer.registration.commits").counter().count()).isEqualTo(1);
+        assertThat(meterRegistry.get("customer.registration.batch.size").summary().totalAmount()).isEqualTo(3);
+    }
+
+    @Test
+    void partialBatchIsCommittedAfterTheDelay() {
+        underTest = buffer(new CustomerListDataAccessService(), 100, Duration.ofMillis(20), 10);
+
+        Customer actual = underTest.register(new Customer("Ana", "ana@gmail.com", 30)).join();
+
+        assertThat(actual.getId()).isNotNull();
+        assertThat(meterRegistry.get("customer.registration.batch.size").summary().count()).isEqualTo(1);
+    }
+
+    @Test
+    void takenEmailFailsOnlyItsOwnRegistration() {
+        underTest = buffer(new CustomerListDataAccessService(), 3, Duration.ofSeconds(5), 10);
+
+        CompletableFuture<Customer> taken = underTest.register(new Customer("Alex Again", "alex@gmail.com", 40));
+        CompletableFuture<Customer> first = underTest.register(new Customer("Ana", "ana@gmail.com", 30));
+        CompletableFuture<Customer> repeated = underTest.register(new Customer("Ana Again", "ana@gmail.com", 31));
+
+        assertThat(first.join().getName()).isEqualTo("Ana");
+        assertThatThrownBy(taken::join).hasCauseInstanceOf(DuplicateResourceException.class);
+        assertThatThrownBy(repeated::join).hasCauseInstanceOf(DuplicateResourceException.class);
+    }
+
+    @Test
+    void failedStatementFailsTheWholeBatch() {
+        CustomerDao customerDao = mock(CustomerDao.class);
+        when(customerDao.insertCustomers(any())).thenThrow(new DataAccessResourceFailureException("database down"));
+        underTest = buffer(customerDao, 2, Duration.ofSeconds(5), 10);
+
+        CompletableFuture<Customer> first = underTest.register(new Customer("Ana", "ana@gmail.com", 30));
+        CompletableFuture<Customer> second = underTest.register(new Customer("Bo", "bo@gmail.com", 40));
+
+        assertThatThrownBy(first::join).hasCauseInstanceOf(DataAccessResourceFailureException.class);
+        assertThatThrownBy(second::join).hasCauseInstanceOf(DataAccessResourceFailureException.class);
+        assertThat(meterRegistry.get("customer.registration.commits").counter().count()).isZero();
+    }
+
+    @Test
+    void fullQueueRejectsRegistrations() throws InterruptedException {
+        CountDownLatch inserting = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        CustomerDao customerDao = mock(CustomerDao.class);
+        when(customerDao.insertCustomers(any())).thenAnswer(invocation -> {
+            inserting.countDown();
+            release.await(5, TimeUnit.SECONDS);
+            return List.of();
+        });
+        underTest = buffer(customerDao, 1, Duration.ZERO, 1);
+
+        underTest.register(new Customer("Ana", "ana@gmail.com", 30));
+        assertThat(inserting.await(5, TimeUnit.SECONDS)).isTrue();
+        underTest.register(new Customer("Bo", "bo@gmail.com", 40));
+
+        assertThatThrownBy(() -> underTest.register(new Customer("Cy", "cy@gmail.com", 50)))
+                .isInstanceOf(ServiceUnavailableException.class);
+        assertThat(meterRegistry.get("customer.registration.rejected").counter().count()).isEqualTo(1);
+        release.countDown();
+    }
+
+    @Test
+    void closeCommitsWhatIsQueued() throws InterruptedException {
+        underTest = buffer(new CustomerListDataAccessService(), 100, Duration.ofSeconds(5), 10);
+        CompletableFuture<Customer> registration = underTest.register(new Customer("Ana", "ana@gmail.com", 30));
+
+        underTest.close();
+
+        assertThat(registration).isCompleted();
+        assertThatThrownBy(() -> underTest.register(new Customer("Bo", "bo@gmail.com", 40)))
+                .isInstanceOf(ServiceUnavailableException.class);
+    }
+
+    private CustomerRegistrationBuffer buffer(CustomerDao customerDao, int maxBatchSize,
+                                              Duration maxDelay, int capacity) {
+        return new CustomerRegistrationBuffer(
+                customerDao, meterRegistry, maxBatchSize, maxDelay, capacity, Duration.ofMillis(50)
+        );
+    }
+}
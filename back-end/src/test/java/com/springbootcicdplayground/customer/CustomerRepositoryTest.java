@@ -6,9 +6,12 @@ import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
 import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
 
+import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
+import java.util.stream.Collectors;
 
 import static org.assertj.core.api.Assertions.assertThat;
 
@@ -18,6 +21,8 @@ class CustomerRepositoryTest extends AbstractTestcontainers {
 
     @Autowired
     private CustomerRepository underTest;
+    @Autowired
+    private TestEntityManager entityManager;
 
     @BeforeEach
     void setUp() {
@@ -47,6 +52,80 @@ class CustomerRepositoryTest extends AbstractTestcontainers {
         assertThat(actual).isFalse();
     }
 
+    @Test
+    void findAllByIdIn() {
+        Customer first = underTest.save(new Customer(
+                FAKER.name().fullName(), FAKER.internet().safeEmailAddress() + "-" + UUID.randomUUID(), 20
+        ));
+        Customer second = underTest.save(new Customer(
+                FAKER.name().fullName(), FAKER.internet().safeEmailAddress() + "-" + UUID.randomUUID(), 30
+        ));
+
+        List<Customer> actual = underTest.findAllByIdIn(new Long[]{first.getId(), -1L, second.getId()});
+
+        assertThat(actual).extracting(Customer::getId).containsExactlyInAnyOrder(first.getId(), second.getId());
+    }
+
+    @Test
+    void search() {
+        String word = "zq" + UUID.randomUUID().toString().replace("-", "").chars()
+                .mapToObj(digit -> String.valueOf((char) ('g' + Character.digit(digit, 16))))
+                .collect(Collectors.joining()) + "xw";
+        Customer customer = underTest.save(new Customer("Ana " + word, word + "@example.com", 20));
+
+        List<Customer> actual = underTest.search(word.substring(2), "%" + word.substring(2) + "%", 10);
+
+        assertThat(actual).extracting(Customer::getId).containsExactly(customer.getId());
+    }
+
+    @Test
+    void insertIfEmailAvailable() {
+        String email = FAKER.internet().safeEmailAddress() + "-" + UUID.randomUUID();
+        long id = Math.abs(UUID.randomUUID().getMostSignificantBits() >>> 16);
+
+        int first = underTest.insertIfEmailAvailable(id, FAKER.name().fullName(), email, 20);
+        int second = underTest.insertIfEmailAvailable(id + 1, FAKER.name().fullName(), email, 21);
+
+        assertThat(first).isEqualTo(1);
+        assertThat(second).isZero();
+        assertThat(underTest.existsCustomerByEmail(email)).isTrue();
+    }
+
+    @Test
+    void countByAge() {
+        // Other tests share the table, so only the change is compared.
+        long before = countAged(977);
+        underTest.save(new Customer(FAKER.name().fullName(), FAKER.internet().safeEmailAddress() + "-" + UUID.randomUUID(), 977));
+        underTest.save(new Customer(FAKER.name().fullName(), FAKER.internet().safeEmailAddress() + "-" + UUID.randomUUID(), 977));
+
+        assertThat(countAged(977)).isEqualTo(before + 2);
+    }
+
+    private long countAged(int age) {
+        return underTest.countByAge().stream()
+                .filter(count -> count.getAge() == age)
+                .mapToLong(CustomerRepository.AgeCount::getCount)
+                .sum();
+    }
+
+    @Test
+    void writesReturnTheCustomerAsItWas() {
+        String email = FAKER.internet().safeEmailAddress() + "-" + UUID.randomUUID();
+        Long id = underTest.saveAndFlush(new Customer(FAKER.name().fullName(), email, 20)).getId();
+        // Otherwise the returned rows resolve to the managed entity rather than being read.
+        entityManager.clear();
+
+        assertThat(underTest.updateIfChanged(id, null, null, 21, null))
+                .hasValueSatisfying(previous -> assertThat(previous.getAge()).isEqualTo(20));
+        assertThat(underTest.updateIfChanged(id, null, null, 21, null)).isEmpty();
+        entityManager.clear();
+
+        assertThat(underTest.deleteCustomerById(id, 0L)).isEmpty();
+        assertThat(underTest.deleteCustomerById(id, 1L))
+                .hasValueSatisfying(deleted -> assertThat(deleted.getAge()).isEqualTo(21));
+        assertThat(underTest.existsCustomerByEmail(email)).isFalse();
+    }
+
     @Test
     void deleteById() {
         String email = FAKER.internet().safeEmailAddress() + "-" + UUID.randomUUID();
@@ -1,16 +1,26 @@
 package com.springbootcicdplayground.customer;
 
 import com.springbootcicdplayground.exception.DuplicateResourceException;
+import com.springbootcicdplayground.exception.PreconditionFailedException;
 import com.springbootcicdplayground.exception.RequestValidationException;
 import com.springbootcicdplayground.exception.ResourceNotFound;
+import com.springbootcicdplayground.exception.ServiceUnavailableException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DuplicateKeyException;
 
+import java.time.Duration;
+import java.util.List;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+import java.util.stream.LongStream;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
@@ -22,11 +32,13 @@ class CustomerServiceTest {
 
     @Mock
     private CustomerDao customerDao;
+    private CustomerCache customerCache;
     private CustomerService underTest;
 
     @BeforeEach
     void setUp() {
-        underTest = new CustomerService(customerDao);
+        customerCache = new CustomerCache(100, Duration.ofMinutes(10));
+        underTest = new CustomerService(customerDao, customerCache, Optional.empty(), new CustomerStatistics(customerDao));
     }
 
     @Test
@@ -36,6 +48,78 @@ class CustomerServiceTest {
         verify(customerDao).selectAllCustomers();
     }
 
+    @Test
+    void canGetFirstCustomerPage() {
+        List<Customer> customers = List.of(
+                new Customer(1L, "Test", "test01@gmail.com", 23),
+                new Customer(2L, "Alex", "test02@gmail.com", 19)
+        );
+        when(customerDao.selectCustomersAfterId(0L, 2)).thenReturn(customers);
+
+        CustomerPage actual = underTest.getCustomerPage(2, null);
+
+        assertThat(actual.customers()).isEqualTo(customers);
+        assertThat(CustomerService.decodeCursor(actual.nextCursor())).isEqualTo(2L);
+    }
+
+    @Test
+    void canGetCustomerPageAfterCursor() {
+        String cursor = CustomerService.encodeCursor(2L);
+        List<Customer> customers = List.of(
+                new Customer(3L, "Test", "test03@gmail.com", 23)
+        );
+        when(customerDao.selectCustomersAfterId(2L, 2)).thenReturn(customers);
+
+        CustomerPage actual = underTest.getCustomerPage(2, cursor);
+
+        assertThat(actual.customers()).isEqualTo(customers);
+        assertThat(actual.nextCursor()).isNull();
+    }
+
+    @Test
+    void willThrowWhenCustomerPageLimitIsOutOfRange() {
+        assertThatThrownBy(() -> underTest.getCustomerPage(0, null))
+                .isInstanceOf(RequestValidationException.class)
+                .hasMessage("Page limit must be between 1 and %s".formatted(CustomerService.MAX_PAGE_SIZE));
+
+        verify(customerDao, never()).selectCustomersAfterId(any(), anyInt());
+    }
+
+    @Test
+    void searchCustomersTrimsTheQuery() {
+        underTest.searchCustomers("  alex ", 20);
+
+        verify(customerDao).searchCustomers("alex", 20);
+    }
+
+    @Test
+    void willThrowWhenSearchIsOutOfRange() {
+        assertThatThrownBy(() -> underTest.searchCustomers(" al ", 20))
+                .isInstanceOf(RequestValidationException.class);
+        assertThatThrownBy(() -> underTest.searchCustomers("a".repeat(CustomerService.MAX_SEARCH_QUERY_LENGTH + 1), 20))
+                .isInstanceOf(RequestValidationException.class);
+        assertThatThrownBy(() -> underTest.searchCustomers("alex", CustomerService.MAX_SEARCH_LIMIT + 1))
+                .isInstanceOf(RequestValidationException.class);
+        verifyNoInteractions(customerDao);
+    }
+
+    @Test
+    void willThrowWhenCustomerPageCursorIsInvalid() {
+        assertThatThrownBy(() -> underTest.getCustomerPage(10, "not-a-cursor"))
+                .isInstanceOf(RequestValidationException.class)
+                .hasMessage("Invalid cursor [not-a-cursor]");
+    }
+
+    @Test
+    void exportCustomers() {
+        Consumer<Customer> action = customer -> {
+        };
+
+        underTest.exportCustomers(action);
+
+        verify(customerDao).streamAllCustomers(action);
+    }
+
     @Test
     void canGetCustomer() {
         Long id = 10L;
@@ -49,6 +133,142 @@ class CustomerServiceTest {
         assertThat(actual).isEqualTo(customer);
     }
 
+    @Test
+    void getCustomerIsServedFromCacheOnRepeatedReads() {
+        Long id = 10L;
+        Customer customer = new Customer(
+                id, "Test", "test01@gmail.com", 23
+        );
+        when(customerDao.selectCustomerById(id)).thenReturn(Optional.of(customer));
+
+        underTest.getCustomer(id);
+        Customer actual = underTest.getCustomer(id);
+
+        assertThat(actual).isEqualTo(customer);
+        verify(customerDao, times(1)).selectCustomerById(id);
+        assertThat(underTest.getCacheStats().hitCount()).isEqualTo(1);
+        assertThat(underTest.getCacheStats().missCount()).isEqualTo(1);
+    }
+
+    @Test
+    void getCustomersReadsOnlyUncachedIdsAndReportsMissingOnes() {
+        Customer alex = new Customer(1L, "Alex", "alex@gmail.com", 22);
+        Customer jamila = new Customer(2L, "Jamila", "jamila@gmail.com", 19);
+        when(customerDao.selectCustomerById(1L)).thenReturn(Optional.of(alex));
+        when(customerDao.selectCustomersByIds(Set.of(2L, 3L))).thenReturn(List.of(jamila));
+        underTest.getCustomer(1L);
+
+        CustomerLookupResult actual = underTest.getCustomers(List.of(3L, 2L, 1L, 2L));
+
+        assertThat(actual.customers()).containsExactly(jamila, alex);
+        assertThat(actual.missingIds()).containsExactly(3L);
+        verify(customerDao).selectCustomersByIds(Set.of(2L, 3L));
+    }
+
+    @Test
+    void willThrowWhenCustomerLookupSizeIsOutOfRange() {
+        List<Long> tooMany = LongStream.rangeClosed(1, CustomerService.MAX_LOOKUP_SIZE + 1).boxed().toList();
+
+        assertThatThrownBy(() -> underTest.getCustomers(List.of()))
+                .isInstanceOf(RequestValidationException.class);
+        assertThatThrownBy(() -> underTest.getCustomers(tooMany))
+                .isInstanceOf(RequestValidationException.class);
+        verifyNoInteractions(customerDao);
+    }
+
+    @Test
+    void updateCustomerInvalidatesCachedEntry() {
+        Long id = 10L;
+        when(customerDao.selectCustomerById(id))
+                .thenReturn(Optional.of(new Customer(id, "Test", "test01@gmail.com", 23)))
+                .thenReturn(Optional.of(new Customer(id, "Updated", "test01@gmail.com", 23)));
+        when(customerDao.updateCustomerReturningPrevious(any(), isNull()))
+                .thenReturn(CustomerUpdateResult.updated(new Customer(id, "Test", "test01@gmail.com", 23)));
+        underTest.getCustomer(id);
+
+        underTest.updateCustomer(id, new CustomerUpdateRequest("Updated", null, null));
+
+        assertThat(underTest.getCustomer(id).getName()).isEqualTo("Updated");
+    }
+
+    @Test
+    void deleteCustomerInvalidatesCachedEntry() {
+        Long id = 10L;
+        Customer customer = new Customer(
+                id, "Test", "test01@gmail.com", 23
+        );
+        when(customerDao.selectCustomerById(id)).thenReturn(Optional.of(customer)).thenReturn(Optional.empty());
+        when(customerDao.deleteCustomer(id, null)).thenReturn(Optional.of(customer));
+        underTest.getCustomer(id);
+
+        underTest.deleteCustomer(id);
+
+        assertThatThrownBy(() -> underTest.getCustomer(id))
+                .isInstanceOf(ResourceNotFound.class);
+    }
+
+    @Test
+    void addCustomerCachesSavedCustomer() {
+        CustomerRegistrationRequest request = new CustomerRegistrationRequest("Alex", "test01@gmail.com", 19);
+        Customer saved = new Customer(10L, "Alex", "test01@gmail.com", 19);
+        when(customerDao.insertCustomerIfEmailAvailable(any())).thenReturn(Optional.of(saved));
+
+        underTest.addCustomer(request);
+
+        assertThat(underTest.getCustomer(10L)).isEqualTo(saved);
+        verify(customerDao, never()).selectCustomerById(10L);
+    }
+
+    @Test
+    void addCustomerGoesThroughTheRegistrationBufferWhenPresent() throws InterruptedException {
+        try (CustomerRegistrationBuffer buffer = new CustomerRegistrationBuffer(
+                new CustomerListDataAccessService(), new SimpleMeterRegistry(), 10, Duration.ZERO, 10, Duration.ofSeconds(1)
+        )) {
+            underTest = new CustomerService(
+                    customerDao, customerCache, Optional.of(buffer), new CustomerStatistics(customerDao)
+            );
+
+            Customer saved = underTest.addCustomer(new CustomerRegistrationRequest("Ana", "ana@gmail.com", 30));
+
+            assertThat(underTest.getCustomer(saved.getId())).isEqualTo(saved);
+            assertThatThrownBy(() -> underTest.addCustomer(new CustomerRegistrationRequest("Alex", "alex@gmail.com", 30)))
+                    .isInstanceOf(DuplicateResourceException.class)
+                    .hasMessage("Email already taken!");
+            verifyNoInteractions(customerDao);
+        }
+    }
+
+    @Test
+    void addCustomerAnswersUnavailableWhenTheBufferShutsDownBeforeTheBatchCommits() {
+        CustomerRegistrationBuffer buffer = mock(CustomerRegistrationBuffer.class);
+        when(buffer.register(any())).thenReturn(CompletableFuture.failedFuture(
+                new ServiceUnavailableException("Registrations are shutting down")
+        ));
+        underTest = new CustomerService(customerDao, customerCache, Optional.of(buffer), new CustomerStatistics(customerDao));
+
+        assertThatThrownBy(() -> underTest.addCustomer(new CustomerRegistrationRequest("Ana", "ana@gmail.com", 30)))
+                .isInstanceOf(ServiceUnavailableException.class)
+                .hasMessage("Registrations are shutting down");
+    }
+
+    @Test
+    void writesKeepTheStatisticsUpToDate() {
+        CustomerListDataAccessService listDao = new CustomerListDataAccessService();
+        underTest = new CustomerService(listDao, customerCache, Optional.empty(), new CustomerStatistics(listDao));
+        // Alex is 22 and Jamila 25.
+        assertThat(underTest.getStats().count()).isEqualTo(2);
+
+        underTest.addCustomer(new CustomerRegistrationRequest("Ana", "ana@gmail.com", 70));
+        underTest.updateCustomer(1L, new CustomerUpdateRequest(null, null, 40));
+        underTest.deleteCustomer(2L);
+
+        CustomerStats actual = underTest.getStats();
+        assertThat(actual.count()).isEqualTo(2);
+        assertThat(actual.minAge()).isEqualTo(40);
+        assertThat(actual.maxAge()).isEqualTo(70);
+        assertThat(actual.meanAge()).isEqualTo(55.0);
+    }
+
     @Test
     void willThrowWhenGetCustomerReturnsEmptyOptional() {
         Long id = 10L;
@@ -65,7 +285,7 @@ class CustomerServiceTest {
 
         String email = "test01@gmail.com";
 
-        when(customerDao.existsCustomerWithEmail(email)).thenReturn(false);
+        when(customerDao.insertCustomerIfEmailAvailable(any())).thenReturn(Optional.of(new Customer(1L, "Alex", email, 19)));
 
         CustomerRegistrationRequest request = new CustomerRegistrationRequest("Alex", email, 19);
 
@@ -73,7 +293,8 @@ class CustomerServiceTest {
 
         ArgumentCaptor<Customer> customerArgumentCaptor = ArgumentCaptor.forClass(Customer.class);
 
-        verify(customerDao).insertCustomer(customerArgumentCaptor.capture());
+        verify(customerDao).insertCustomerIfEmailAvailable(customerArgumentCaptor.capture());
+        verify(customerDao, never()).existsCustomerWithEmail(any());
 
         Customer capturedCustomer = customerArgumentCaptor.getValue();
 
@@ -87,7 +308,7 @@ class CustomerServiceTest {
     void willThrowWhenEmailExistsWhileAddingCustomer() {
         String email = "test01@gmail.com";
 
-        when(customerDao.existsCustomerWithEmail(email)).thenReturn(true);
+        when(customerDao.insertCustomerIfEmailAvailable(any())).thenReturn(Optional.empty());
 
         CustomerRegistrationRequest request = new CustomerRegistrationRequest("Alex", email, 19);
 
@@ -95,56 +316,69 @@ class CustomerServiceTest {
                 .isInstanceOf(DuplicateResourceException.class)
                 .hasMessage("Email already taken!");
 
-        verify(customerDao, never()).insertCustomer(any());
+        verify(customerDao, never()).existsCustomerWithEmail(any());
+    }
+
+    @Test
+    void addCustomersReportsCreatedAndDuplicateRows() {
+        CustomerRegistrationRequest alex = new CustomerRegistrationRequest("Alex", "alex@gmail.com", 19);
+        CustomerRegistrationRequest taken = new CustomerRegistrationRequest("Jamila", "taken@gmail.com", 25);
+        CustomerRegistrationRequest repeated = new CustomerRegistrationRequest("Alex Again", "alex@gmail.com", 20);
+        when(customerDao.insertCustomers(any())).thenReturn(
+                List.of(new Customer(1L, "Alex", "alex@gmail.com", 19))
+        );
+
+        List<CustomerRegistrationResult> actual = underTest.addCustomers(List.of(alex, taken, repeated));
+
+        assertThat(actual).containsExactly(
+                new CustomerRegistrationResult("alex@gmail.com", 1L, CustomerRegistrationResult.Status.CREATED, null),
+                CustomerRegistrationResult.duplicate("taken@gmail.com"),
+                CustomerRegistrationResult.duplicate("alex@gmail.com")
+        );
     }
 
     @Test
     void canDeleteCustomer() {
         Long id = 10L;
-        Customer customer = new Customer(
-                id, "Test", "test01@gmail.com", 23
-        );
-        when(customerDao.selectCustomerById(id)).thenReturn(Optional.of(customer));
+        when(customerDao.deleteCustomer(id, null)).thenReturn(Optional.of(new Customer(id, "Test", "test01@gmail.com", 23)));
 
         underTest.deleteCustomer(id);
 
-        verify(customerDao).deleteCustomerById(id);
+        verify(customerDao).deleteCustomer(id, null);
+        verify(customerDao, never()).selectCustomerById(id);
     }
 
     @Test
     void willThrowWhileDeleteCustomerGetInvalidId() {
         Long id = 10L;
 
-        when(customerDao.selectCustomerById(id)).thenReturn(Optional.empty());
+        when(customerDao.deleteCustomer(id, null)).thenReturn(Optional.empty());
 
         assertThatThrownBy(() -> underTest.deleteCustomer(id))
                 .isInstanceOf(ResourceNotFound.class)
                 .hasMessage("Customer with id [%s] not found".formatted(id));
-
-        verify(customerDao, never()).deleteCustomerById(id);
     }
 
     @Test
     void canUpdateAllCustomerProperties() {
         Long id = 10L;
-        Customer customer = new Customer(
-                id, "Test", "test01@gmail.com", 23
-        );
-        when(customerDao.selectCustomerById(id)).thenReturn(Optional.of(customer));
+        when(customerDao.updateCustomerReturningPrevious(any(), isNull()))
+                .thenReturn(CustomerUpdateResult.updated(new Customer(id, "Test", "test01@gmail.com", 23)));
 
         String updatedEmail = "updated@gmail.com";
 
         CustomerUpdateRequest customerUpdateRequest = new CustomerUpdateRequest("Alex Test", updatedEmail, 23);
 
-        when(customerDao.existsCustomerWithEmail(updatedEmail)).thenReturn(false);
 
         underTest.updateCustomer(id, customerUpdateRequest);
 
         ArgumentCaptor<Customer> customerArgumentCaptor = ArgumentCaptor.forClass(Customer.class);
 
-        verify(customerDao).updateCustomer(customerArgumentCaptor.capture());
+        verify(customerDao).updateCustomerReturningPrevious(customerArgumentCaptor.capture(), isNull());
+        verify(customerDao, never()).selectCustomerById(id);
 
         Customer capturedCustomer = customerArgumentCaptor.getValue();
+        assertThat(capturedCustomer.getId()).isEqualTo(id);
         assertThat(capturedCustomer.getName()).isEqualTo(customerUpdateRequest.name());
         assertThat(capturedCustomer.getEmail()).isEqualTo(customerUpdateRequest.email());
         assertThat(capturedCustomer.getAge()).isEqualTo(customerUpdateRequest.age());
@@ -153,10 +387,8 @@ class CustomerServiceTest {
     @Test
     void canUpdateOnlyCustomerName() {
         Long id = 10L;
-        Customer customer = new Customer(
-                id, "Test", "test01@gmail.com", 23
-        );
-        when(customerDao.selectCustomerById(id)).thenReturn(Optional.of(customer));
+        when(customerDao.updateCustomerReturningPrevious(any(), isNull()))
+                .thenReturn(CustomerUpdateResult.updated(new Customer(id, "Test", "test01@gmail.com", 23)));
 
         CustomerUpdateRequest customerUpdateRequest = new CustomerUpdateRequest("Alex Test", null, null);
 
@@ -164,21 +396,19 @@ class CustomerServiceTest {
 
         ArgumentCaptor<Customer> customerArgumentCaptor = ArgumentCaptor.forClass(Customer.class);
 
-        verify(customerDao).updateCustomer(customerArgumentCaptor.capture());
+        verify(customerDao).updateCustomerReturningPrevious(customerArgumentCaptor.capture(), isNull());
 
         Customer capturedCustomer = customerArgumentCaptor.getValue();
         assertThat(capturedCustomer.getName()).isEqualTo(customerUpdateRequest.name());
-        assertThat(capturedCustomer.getEmail()).isEqualTo(customer.getEmail());
-        assertThat(capturedCustomer.getAge()).isEqualTo(customer.getAge());
+        assertThat(capturedCustomer.getEmail()).isNull();
+        assertThat(capturedCustomer.getAge()).isNull();
     }
 
     @Test
     void canUpdateOnlyCustomerAge() {
         Long id = 10L;
-        Customer customer = new Customer(
-                id, "Test", "test01@gmail.com", 23
-        );
-        when(customerDao.selectCustomerById(id)).thenReturn(Optional.of(customer));
+        when(customerDao.updateCustomerReturningPrevious(any(), isNull()))
+                .thenReturn(CustomerUpdateResult.updated(new Customer(id, "Test", "test01@gmail.com", 23)));
 
         CustomerUpdateRequest customerUpdateRequest = new CustomerUpdateRequest(null, null, 25);
 
@@ -186,74 +416,103 @@ class CustomerServiceTest {
 
         ArgumentCaptor<Customer> customerArgumentCaptor = ArgumentCaptor.forClass(Customer.class);
 
-        verify(customerDao).updateCustomer(customerArgumentCaptor.capture());
+        verify(customerDao).updateCustomerReturningPrevious(customerArgumentCaptor.capture(), isNull());
 
         Customer capturedCustomer = customerArgumentCaptor.getValue();
-        assertThat(capturedCustomer.getName()).isEqualTo(customer.getName());
-        assertThat(capturedCustomer.getEmail()).isEqualTo(customer.getEmail());
+        assertThat(capturedCustomer.getName()).isNull();
+        assertThat(capturedCustomer.getEmail()).isNull();
         assertThat(capturedCustomer.getAge()).isEqualTo(customerUpdateRequest.age());
     }
 
     @Test
     void canUpdateOnlyCustomerEmail() {
         Long id = 10L;
-        Customer customer = new Customer(
-                id, "Test", "test01@gmail.com", 23
-        );
-        when(customerDao.selectCustomerById(id)).thenReturn(Optional.of(customer));
+        when(customerDao.updateCustomerReturningPrevious(any(), isNull()))
+                .thenReturn(CustomerUpdateResult.updated(new Customer(id, "Test", "test01@gmail.com", 23)));
 
         String updatedEmail = "updated@gmail.com";
         CustomerUpdateRequest customerUpdateRequest = new CustomerUpdateRequest(null, updatedEmail, null);
-        when(customerDao.existsCustomerWithEmail(updatedEmail)).thenReturn(false);
 
         underTest.updateCustomer(id, customerUpdateRequest);
 
         ArgumentCaptor<Customer> customerArgumentCaptor = ArgumentCaptor.forClass(Customer.class);
-        verify(customerDao).updateCustomer(customerArgumentCaptor.capture());
+        verify(customerDao).updateCustomerReturningPrevious(customerArgumentCaptor.capture(), isNull());
 
         Customer capturedCustomer = customerArgumentCaptor.getValue();
-        assertThat(capturedCustomer.getName()).isEqualTo(customer.getName());
+        assertThat(capturedCustomer.getName()).isNull();
         assertThat(capturedCustomer.getEmail()).isEqualTo(customerUpdateRequest.email());
-        assertThat(capturedCustomer.getAge()).isEqualTo(customer.getAge());
+        assertThat(capturedCustomer.getAge()).isNull();
     }
 
     @Test
     void willThrowWhenEmailExistsWhileUpdatingCustomerEmail() {
         Long id = 10L;
-        Customer customer = new Customer(
-                id, "Test", "test01@gmail.com", 23
-        );
-        when(customerDao.selectCustomerById(id)).thenReturn(Optional.of(customer));
 
         String updatedEmail = "updated@gmail.com";
         CustomerUpdateRequest customerUpdateRequest = new CustomerUpdateRequest(null, updatedEmail, null);
-        when(customerDao.existsCustomerWithEmail(updatedEmail)).thenReturn(true);
+        doThrow(new DuplicateKeyException("customer_email_unique"))
+                .when(customerDao).updateCustomerReturningPrevious(any(), isNull());
 
         assertThatThrownBy(() -> underTest.updateCustomer(id, customerUpdateRequest))
                 .isInstanceOf(DuplicateResourceException.class)
                 .hasMessage("Email already taken");
 
-        verify(customerDao, never()).updateCustomer(any());
+        verify(customerDao, never()).existsCustomerWithEmail(any());
     }
 
     @Test
     void willThrowWhenCustomerUpdateHasNoChanges() {
         Long id = 10L;
-        Customer customer = new Customer(
-                id, "Test", "test01@gmail.com", 23
-        );
-        when(customerDao.selectCustomerById(id)).thenReturn(Optional.of(customer));
+        when(customerDao.updateCustomerReturningPrevious(any(), isNull()))
+                .thenReturn(CustomerUpdateResult.notUpdated(CustomerUpdateOutcome.UNCHANGED));
 
         CustomerUpdateRequest customerUpdateRequest = new CustomerUpdateRequest(null, null, null);
 
         assertThatThrownBy(() -> underTest.updateCustomer(id, customerUpdateRequest))
                 .isInstanceOf(RequestValidationException.class)
                 .hasMessage("No data changes found");
+    }
 
-        verify(customerDao, never()).updateCustomer(any());
+    @Test
+    void willThrowWhenUpdatedCustomerDoesNotExist() {
+        Long id = 10L;
+        when(customerDao.updateCustomerReturningPrevious(any(), isNull()))
+                .thenReturn(CustomerUpdateResult.notUpdated(CustomerUpdateOutcome.NOT_FOUND));
+
+        assertThatThrownBy(() -> underTest.updateCustomer(id, new CustomerUpdateRequest("Alex", null, null)))
+                .isInstanceOf(ResourceNotFound.class)
+                .hasMessage("Customer with id [%s] not found!".formatted(id));
     }
 
+    @Test
+    void willThrowWhenUpdatedCustomerHasAnotherVersion() {
+        Long id = 10L;
+        when(customerDao.updateCustomerReturningPrevious(any(), eq(3L)))
+                .thenReturn(CustomerUpdateResult.notUpdated(CustomerUpdateOutcome.VERSION_MISMATCH));
 
+        assertThatThrownBy(() -> underTest.updateCustomer(id, new CustomerUpdateRequest("Alex", null, null), 3L))
+                .isInstanceOf(PreconditionFailedException.class)
+                .hasMessage("Customer with id [%s] has been modified".formatted(id));
+    }
 
+    @Test
+    void willThrowWhenDeletedCustomerHasAnotherVersion() {
+        Long id = 10L;
+        when(customerDao.deleteCustomer(id, 3L)).thenReturn(Optional.empty());
+        when(customerDao.selectCustomerById(id)).thenReturn(Optional.of(new Customer(id, "Test", "test01@gmail.com", 23, 4L)));
+
+        assertThatThrownBy(() -> underTest.deleteCustomer(id, 3L))
+                .isInstanceOf(PreconditionFailedException.class)
+                .hasMessage("Customer with id [%s] has been modified".formatted(id));
+    }
+
+    @Test
+    void willThrowWhenConditionallyDeletedCustomerDoesNotExist() {
+        Long id = 10L;
+        when(customerDao.deleteCustomer(id, 3L)).thenReturn(Optional.empty());
+        when(customerDao.selectCustomerById(id)).thenReturn(Optional.empty());
 
-}
\ No newline at end of file
+        assertThatThrownBy(() -> underTest.deleteCustomer(id, 3L))
+                .isInstanceOf(ResourceNotFound.class);
+    }
+}
@@ -0,0 +1,181 @@
+package com.springbootcicdplayground.customer;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class CustomerStatisticsTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final CustomerDao customerDao = mock(CustomerDao.class);
+
+    @Test
+    void firstUseLoadsTheCountsAndBucketsThem() {
+        CustomerListDataAccessService listDao = new CustomerListDataAccessService();
+        listDao.insertCustomer(new Customer("Ana", "ana@gmail.com", 10));
+        listDao.insertCustomer(new Customer("Bo", "bo@gmail.com", 18));
+        listDao.insertCustomer(new Customer("Cy", "cy@gmail.com", 30));
+        listDao.insertCustomer(new Customer("Di", "di@gmail.com", 70));
+
+        CustomerStats actual = new CustomerStatistics(listDao).stats();
+
+        // The list store starts with customers aged 22 and 25.
+        assertThat(actual.count()).isEqualTo(6);
+        assertThat(actual.minAge()).isEqualTo(10);
+        assertThat(actual.maxAge()).isEqualTo(70);
+        assertThat(actual.meanAge()).isEqualTo(175 / 6.0);
+        assertThat(actual.ageHistogram()).containsExactly(
+                new CustomerStats.AgeBucket(null, 18, 1),
+                new CustomerStats.AgeBucket(18, 25, 2),
+                new CustomerStats.AgeBucket(25, 35, 2),
+                new CustomerStats.AgeBucket(35, 45, 0),
+                new CustomerStats.AgeBucket(45, 55, 0),
+                new CustomerStats.AgeBucket(55, 65, 0),
+                new CustomerStats.AgeBucket(65, null, 1)
+        );
+    }
+
+    @Test
+    void noCustomersHaveNoAges() {
+        when(customerDao.countCustomersByAge()).thenReturn(Map.of());
+
+        CustomerStats actual = statistics(List.of(30)).stats();
+
+        assertThat(actual).isEqualTo(new CustomerStats(0, null, null, null, List.of(
+                new CustomerStats.AgeBucket(null, 30, 0),
+                new CustomerStats.AgeBucket(30, null, 0)
+        )));
+    }
+
+    @Test
+    void writesMoveTheCounters() {
+        when(customerDao.countCustomersByAge()).thenReturn(Map.of(30, 2L));
+        CustomerStatistics underTest = statistics(List.of(40));
+        underTest.stats();
+
+        try (CustomerStatistics.Write write = underTest.beginWrite()) {
+            write.removed(30);
+            write.added(50);
+        }
+
+        CustomerStats actual = underTest.stats();
+        assertThat(actual.count()).isEqualTo(2);
+        assertThat(actual.minAge()).isEqualTo(30);
+        assertThat(actual.maxAge()).isEqualTo(50);
+        assertThat(actual.ageHistogram()).extracting(CustomerStats.AgeBucket::count).containsExactly(1L, 1L);
+    }
+
+    @Test
+    void concurrentWritesLoseNoIncrements() throws Exception {
+        when(customerDao.countCustomersByAge()).thenReturn(Map.of());
+        CustomerStatistics underTest = statistics(List.of(18));
+        underTest.stats();
+
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<?>> writers = new ArrayList<>();
+            for (int thread = 0; thread < 8; thread++) {
+                int age = 20 + thread % 2;
+                writers.add(executor.submit(() -> {
+                    for (int i = 0; i < 10_000; i++) {
+                        try (CustomerStatistics.Write write = underTest.beginWrite()) {
+                            write.added(age);
+                        }
+                    }
+                }));
+            }
+            for (Future<?> writer : writers) {
+                writer.get(10, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertThat(underTest.stats().count()).isEqualTo(80_000);
+        assertThat(underTest.stats().meanAge()).isEqualTo(20.5);
+    }
+
+    @Test
+    void reconcileAddsTheDifferenceToTheDatabase() {
+        when(customerDao.countCustomersByAge()).thenReturn(Map.of(30, 2L)).thenReturn(Map.of(30, 1L, 40, 3L));
+        CustomerStatistics underTest = statistics(List.of(35));
+        underTest.stats();
+
+        underTest.reconcile();
+
+        assertThat(underTest.stats().ageHistogram()).extracting(CustomerStats.AgeBucket::count).containsExactly(1L, 3L);
+        // The first load corrects the empty counters too.
+        assertThat(reconciliations("corrected")).isEqualTo(2);
+    }
+
+    @Test
+    void reconcileIsSkippedWhenAWriteStartsDuringTheQuery() {
+        CustomerStatistics underTest = statistics(List.of(35));
+        when(customerDao.countCustomersByAge()).thenReturn(Map.of(30, 1L)).thenAnswer(invocation -> {
+            try (CustomerStatistics.Write write = underTest.beginWrite()) {
+                write.added(40);
+            }
+            return Map.of(30, 1L, 40, 1L);
+        });
+        underTest.stats();
+
+        underTest.reconcile();
+
+        // The write may or may not be in the query's result, so the counters are left as they are.
+        assertThat(underTest.stats().count()).isEqualTo(2);
+        assertThat(reconciliations("skipped")).isEqualTo(1);
+    }
+
+    @Test
+    void reconcileHoldsWritesBackAfterTooManySkips() throws Exception {
+        when(customerDao.countCustomersByAge()).thenReturn(Map.of(30, 1L));
+        CustomerStatistics underTest = statistics(List.of(35));
+        underTest.stats();
+
+        CompletableFuture<Void> reconciliation;
+        try (CustomerStatistics.Write write = underTest.beginWrite()) {
+            for (int i = 0; i < CustomerStatistics.MAX_SKIPPED_RECONCILIATIONS; i++) {
+                underTest.reconcile();
+            }
+            assertThat(reconciliations("skipped")).isEqualTo(CustomerStatistics.MAX_SKIPPED_RECONCILIATIONS);
+
+            reconciliation = CompletableFuture.runAsync(underTest::reconcile);
+            Thread.sleep(100);
+            assertThat(reconciliation).isNotDone();
+            write.added(30);
+        }
+
+        reconciliation.get(5, TimeUnit.SECONDS);
+        // Corrected once by the first load and once after the write.
+        assertThat(underTest.stats().count()).isEqualTo(1);
+        assertThat(reconciliations("corrected")).isEqualTo(2);
+    }
+
+    @Test
+    void willThrowWhenAgeBucketsAreNotAscending() {
+        assertThatThrownBy(() -> statistics(List.of(30, 18)))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private CustomerStatistics statistics(List<Integer> ageBuckets) {
+        return new CustomerStatistics(customerDao, meterRegistry, ageBuckets, Duration.ZERO);
+    }
+
+    private double reconciliations(String result) {
+        return meterRegistry.get("customer.stats.reconciliations").tag("result", result).counter().count();
+    }
+}
@@ -0,0 +1,65 @@
+package com.springbootcicdplayground.customer;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CustomerTrigramIndexTest {
+
+    @Test
+    void takesTrigramsLikePgTrgm() {
+        // SELECT show_trgm('Alex@Gmail.com')
+        assertThat(CustomerTrigramIndex.trigrams("Alex@Gmail.com")).containsExactlyInAnyOrder(
+                "  a", "  c", "  g", " al", " co", " gm", "ail", "ale", "com", "ex ", "gma", "il ", "lex", "mai", "om "
+        );
+    }
+
+    @Test
+    void candidatesContainTheQueryOrEnoughOfItsTrigrams() {
+        Map<Long, Customer> stored = new HashMap<>();
+        CustomerTrigramIndex underTest = new CustomerTrigramIndex(stored::get);
+        List.of(
+                new Customer(1L, "Jamila Smith", "jamila@gmail.com", 25),
+                new Customer(2L, "Max Power", "max.power@yahoo.com", 40),
+                new Customer(3L, "Ana", "ana@outlook.com", 30)
+        ).forEach(customer -> {
+            stored.put(customer.getId(), customer);
+            underTest.add(customer);
+        });
+
+        assertThat(underTest.candidates("ila sm")).containsExactly(1L);
+        assertThat(underTest.candidates("x.po")).containsExactly(2L);
+        assertThat(underTest.candidates("jamla")).containsExactly(1L);
+        assertThat(underTest.candidates("outlok")).containsExactly(3L);
+        assertThat(underTest.candidates("zzz")).isEmpty();
+    }
+
+    @Test
+    void escapesLikeWildcards() {
+        assertThat(CustomerTrigramIndex.containsPattern("100%_a\\b")).isEqualTo("%100\\%\\_a\\\\b%");
+    }
+
+    @Test
+    void indexListsCustomersUntilTheirTrigramsAreRemoved() {
+        Customer alex = new Customer(1L, "Alex", "alex@gmail.com", 22);
+        Customer renamed = new Customer(1L, "Bea", "alex@gmail.com", 22);
+        Map<Long, Customer> stored = new HashMap<>(Map.of(1L, renamed));
+        CustomerTrigramIndex underTest = new CustomerTrigramIndex(stored::get);
+        underTest.add(alex);
+
+        underTest.add(renamed);
+        underTest.remove(alex, renamed);
+
+        assertThat(underTest.candidates("bea")).containsExactly(1L);
+        assertThat(underTest.candidates("gmail")).containsExactly(1L);
+
+        stored.remove(1L);
+        underTest.remove(renamed, null);
+
+        assertThat(underTest.candidates("gmail")).isEmpty();
+    }
+}
@@ -0,0 +1,189 @@
+package com.springbootcicdplayground.customer;
+
+import com.springbootcicdplayground.exception.DuplicateResourceException;
+import com.springbootcicdplayground.exception.RequestValidationException;
+import com.springbootcicdplayground.exception.ResourceNotFound;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DuplicateKeyException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ReactiveCustomerServiceTest {
+
+    @Mock
+    private ReactiveCustomerDao customerDao;
+    private ReactiveCustomerService underTest;
+
+    @BeforeEach
+    void setUp() {
+        underTest = new ReactiveCustomerService(customerDao, new CustomerCache(100, Duration.ofMinutes(10)));
+    }
+
+    @Test
+    void getCustomerIsServedFromCacheOnRepeatedReads() {
+        Customer customer = new Customer(1L, "Alex", "alex@gmail.com", 22);
+        when(customerDao.selectCustomerById(1L)).thenReturn(Mono.just(customer));
+
+        assertThat(underTest.getCustomer(1L).block()).isEqualTo(customer);
+        assertThat(underTest.getCustomer(1L).block()).isEqualTo(customer);
+
+        verify(customerDao, times(1)).selectCustomerById(1L);
+    }
+
+    @Test
+    void willSignalNotFoundWhenCustomerIsMissing() {
+        when(customerDao.selectCustomerById(404L)).thenReturn(Mono.empty());
+
+        assertThatThrownBy(() -> underTest.getCustomer(404L).block())
+                .isInstanceOf(ResourceNotFound.class)
+                .hasMessage("Customer with id [404] not found!");
+    }
+
+    @Test
+    void willSignalInvalidPageLimitWithoutQuerying() {
+        assertThatThrownBy(() -> underTest.getCustomerPage(0, null).block())
+                .isInstanceOf(RequestValidationException.class)
+                .hasMessage("Page limit must be between 1 and %s".formatted(CustomerService.MAX_PAGE_SIZE));
+
+        verify(customerDao, never()).selectCustomersAfterId(any(), anyInt());
+    }
+
+    @Test
+    void getCustomerPageReturnsCursorOfLastRow() {
+        List<Customer> customers = List.of(
+                new Customer(1L, "Test", "test01@gmail.com", 23),
+                new Customer(2L, "Alex", "test02@gmail.com", 19)
+        );
+        when(customerDao.selectCustomersAfterId(0L, 2)).thenReturn(Flux.fromIterable(customers));
+
+        CustomerPage actual = underTest.getCustomerPage(2, null).block();
+
+        assertThat(actual.customers()).isEqualTo(customers);
+        assertThat(CustomerService.decodeCursor(actual.nextCursor())).isEqualTo(2L);
+    }
+
+    @Test
+    void willSignalDuplicateWhenEmailTakenWhileAddingCustomer() {
+        when(customerDao.insertCustomerIfEmailAvailable(any())).thenReturn(Mono.empty());
+
+        assertThatThrownBy(() -> underTest.addCustomer(
+                new CustomerRegistrationRequest("Alex", "alex@gmail.com", 22)
+        ).block())
+                .isInstanceOf(DuplicateResourceException.class)
+                .hasMessage("Email already taken!");
+    }
+
+    @Test
+    void addCustomerSignalsInvalidRequestsInsteadOfThrowing() {
+        Mono<Customer> actual = underTest.addCustomer(null);
+
+        assertThatThrownBy(actual::block).isInstanceOf(NullPointerException.class);
+        verify(customerDao, never()).insertCustomerIfEmailAvailable(any());
+    }
+
+    @Test
+    void addCustomersReportsCreatedAndDuplicateRows() {
+        when(customerDao.insertCustomers(any())).thenReturn(Flux.just(new Customer(1L, "Alex", "alex@gmail.com", 22)));
+
+        List<CustomerRegistrationResult> results = underTest.addCustomers(List.of(
+                new CustomerRegistrationRequest("Alex", "alex@gmail.com", 22),
+                new CustomerRegistrationRequest("Jamila", "taken@gmail.com", 25)
+        )).collectList().block();
+
+        assertThat(results).containsExactly(
+                CustomerRegistrationResult.created(new Customer(1L, "Alex", "alex@gmail.com", 22)),
+                CustomerRegistrationResult.duplicate("taken@gmail.com")
+        );
+    }
+
+    @Test
+    void willSignalNotFoundWhenDeletingMissingCustomer() {
+        when(customerDao.deleteCustomerById(404L)).thenReturn(Mono.just(false));
+
+        assertThatThrownBy(() -> underTest.deleteCustomer(404L).block())
+                .isInstanceOf(ResourceNotFound.class)
+                .hasMessage("Customer with id [404] not found");
+
+        verify(customerDao, never()).selectCustomerById(any());
+    }
+
+    @Test
+    void updateCustomerWritesChangedFieldsAndInvalidatesCache() {
+        when(customerDao.selectCustomerById(1L))
+                .thenReturn(Mono.just(new Customer(1L, "Alex", "alex@gmail.com", 22)))
+                .thenReturn(Mono.just(new Customer(1L, "Alexander", "alex@gmail.com", 22)));
+        when(customerDao.updateCustomer(any())).thenReturn(Mono.just(CustomerUpdateOutcome.UPDATED));
+        underTest.getCustomer(1L).block();
+
+        underTest.updateCustomer(1L, new CustomerUpdateRequest("Alexander", null, null)).block();
+
+        ArgumentCaptor<Customer> updated = ArgumentCaptor.forClass(Customer.class);
+        verify(customerDao).updateCustomer(updated.capture());
+        assertThat(updated.getValue().getName()).isEqualTo("Alexander");
+        assertThat(updated.getValue().getEmail()).isNull();
+        assertThat(underTest.getCustomer(1L).block().getName()).isEqualTo("Alexander");
+    }
+
+    @Test
+    void readsRightAfterAWriteCompletesSeeFreshData() {
+        when(customerDao.selectCustomerById(1L))
+                .thenReturn(Mono.just(new Customer(1L, "Alex", "alex@gmail.com", 22)))
+                .thenReturn(Mono.just(new Customer(1L, "Alexander", "alex@gmail.com", 22)))
+                .thenReturn(Mono.empty());
+        when(customerDao.updateCustomer(any())).thenReturn(Mono.just(CustomerUpdateOutcome.UPDATED));
+        when(customerDao.deleteCustomerById(1L)).thenReturn(Mono.just(true));
+        underTest.getCustomer(1L).block();
+
+        // Each read subscribes from the write's completion signal, as the next request of a client could.
+        Customer updated = underTest.updateCustomer(1L, new CustomerUpdateRequest("Alexander", null, null))
+                .then(Mono.defer(() -> underTest.getCustomer(1L)))
+                .block();
+
+        assertThat(updated.getName()).isEqualTo("Alexander");
+        assertThatThrownBy(() -> underTest.deleteCustomer(1L)
+                .then(Mono.defer(() -> underTest.getCustomer(1L)))
+                .block())
+                .isInstanceOf(ResourceNotFound.class);
+    }
+
+    @Test
+    void willSignalNoChangesWhenUpdateMatchesCustomer() {
+        when(customerDao.updateCustomer(any())).thenReturn(Mono.just(CustomerUpdateOutcome.UNCHANGED));
+
+        assertThatThrownBy(() -> underTest.updateCustomer(1L, new CustomerUpdateRequest("Alex", null, 22)).block())
+                .isInstanceOf(RequestValidationException.class)
+                .hasMessage("No data changes found");
+    }
+
+    @Test
+    void willSignalNotFoundWhenUpdatingMissingCustomer() {
+        when(customerDao.updateCustomer(any())).thenReturn(Mono.just(CustomerUpdateOutcome.NOT_FOUND));
+
+        assertThatThrownBy(() -> underTest.updateCustomer(404L, new CustomerUpdateRequest("Alex", null, null)).block())
+                .isInstanceOf(ResourceNotFound.class)
+                .hasMessage("Customer with id [404] not found!");
+    }
+
+    @Test
+    void willSignalDuplicateWhenUpdatedEmailIsTaken() {
+        when(customerDao.updateCustomer(any())).thenReturn(Mono.error(new DuplicateKeyException("customer_email_unique")));
+
+        assertThatThrownBy(() -> underTest.updateCustomer(1L, new CustomerUpdateRequest(null, "taken@gmail.com", null)).block())
+                .isInstanceOf(DuplicateResourceException.class)
+                .hasMessage("Email already taken");
+    }
+}
@@ -1,20 +1,29 @@
 package com.springbootcicdplayground.journey;
 
 import com.springbootcicdplayground.customer.Customer;
+import com.springbootcicdplayground.customer.CustomerLookupRequest;
+import com.springbootcicdplayground.customer.CustomerLookupResult;
 import com.springbootcicdplayground.customer.CustomerRegistrationRequest;
+import com.springbootcicdplayground.customer.CustomerStats;
 import com.springbootcicdplayground.customer.CustomerUpdateRequest;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.dataformat.cbor.databind.CBORMapper;
+import com.fasterxml.jackson.dataformat.smile.databind.SmileMapper;
 import com.github.javafaker.Faker;
 import com.github.javafaker.Name;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.reactive.server.WebTestClient;
 import reactor.core.publisher.Mono;
 
+import java.io.IOException;
 import java.util.List;
 import java.util.UUID;
+import java.util.stream.Collectors;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.springframework.boot.test.context.SpringBootTest.WebEnvironment.RANDOM_PORT;
@@ -201,4 +210,283 @@ public class CustomerIntegrationTest {
 
         assertThat(actual).isEqualTo(expectedCustomer);
     }
+
+    @Test
+    void canUpdateACustomerConditionally() {
+        Faker faker = new Faker();
+        Name fakerName = faker.name();
+        String email = fakerName.lastName() + "-" + UUID.randomUUID() + "@amigosecode.com";
+
+        CustomerRegistrationRequest customerRegistrationRequest =
+                new CustomerRegistrationRequest(fakerName.fullName(), email, 25);
+
+        webTestClient.post()
+                .uri(CUSTOMER_URI)
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(Mono.just(customerRegistrationRequest), CustomerRegistrationRequest.class)
+                .exchange()
+                .expectStatus()
+                .isCreated();
+
+        var id = webTestClient.get()
+                .uri(CUSTOMER_URI)
+                .accept(MediaType.APPLICATION_JSON)
+                .exchange()
+                .expectBodyList(new ParameterizedTypeReference<Customer>() {
+                })
+                .returnResult()
+                .getResponseBody()
+                .stream()
+                .filter(customer -> customer.getEmail().equals(email))
+                .map(Customer::getId)
+                .findFirst()
+                .orElseThrow();
+
+        //an unchanged customer is not sent again
+        webTestClient.get()
+                .uri(CUSTOMER_URI + "/{id}", id)
+                .exchange()
+                .expectStatus()
+                .isOk()
+                .expectHeader()
+                .valueEquals(HttpHeaders.ETAG, "\"0\"");
+
+        webTestClient.get()
+                .uri(CUSTOMER_URI + "/{id}", id)
+                .header(HttpHeaders.IF_NONE_MATCH, "\"0\"")
+                .exchange()
+                .expectStatus()
+                .isNotModified()
+                .expectBody()
+                .isEmpty();
+
+        //writes against the current version succeed and bump it
+        webTestClient.put()
+                .uri(CUSTOMER_URI + "/{id}", id)
+                .header(HttpHeaders.IF_MATCH, "\"0\"")
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(Mono.just(new CustomerUpdateRequest("Updated Name", null, null)), CustomerUpdateRequest.class)
+                .exchange()
+                .expectStatus()
+                .isOk();
+
+        webTestClient.get()
+                .uri(CUSTOMER_URI + "/{id}", id)
+                .header(HttpHeaders.IF_NONE_MATCH, "\"0\"")
+                .exchange()
+                .expectStatus()
+                .isOk()
+                .expectHeader()
+                .valueEquals(HttpHeaders.ETAG, "\"1\"");
+
+        //writes against a stale version fail
+        webTestClient.put()
+                .uri(CUSTOMER_URI + "/{id}", id)
+                .header(HttpHeaders.IF_MATCH, "\"0\"")
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(Mono.just(new CustomerUpdateRequest(null, null, 30)), CustomerUpdateRequest.class)
+                .exchange()
+                .expectStatus()
+                .isEqualTo(412);
+
+        webTestClient.delete()
+                .uri(CUSTOMER_URI + "/{id}", id)
+                .header(HttpHeaders.IF_MATCH, "\"0\"")
+                .exchange()
+                .expectStatus()
+                .isEqualTo(412);
+
+        webTestClient.delete()
+                .uri(CUSTOMER_URI + "/{id}", id)
+                .header(HttpHeaders.IF_MATCH, "\"1\"")
+                .exchange()
+                .expectStatus()
+                .isOk();
+    }
+
+    @Test
+    void canLookUpManyCustomersById() {
+        Faker faker = new Faker();
+        List<String> emails = List.of(
+                faker.name().lastName() + "-" + UUID.randomUUID() + "@amigosecode.com",
+                faker.name().lastName() + "-" + UUID.randomUUID() + "@amigosecode.com"
+        );
+
+        for (String email : emails) {
+            webTestClient.post()
+                    .uri(CUSTOMER_URI)
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .body(Mono.just(new CustomerRegistrationRequest(faker.name().fullName(), email, 30)),
+                            CustomerRegistrationRequest.class)
+                    .exchange()
+                    .expectStatus()
+                    .isCreated();
+        }
+
+        List<Long> ids = webTestClient.get()
+                .uri(CUSTOMER_URI)
+                .accept(MediaType.APPLICATION_JSON)
+                .exchange()
+                .expectBodyList(new ParameterizedTypeReference<Customer>() {
+                })
+                .returnResult()
+                .getResponseBody()
+                .stream()
+                .filter(customer -> emails.contains(customer.getEmail()))
+                .map(Customer::getId)
+                .toList();
+        assertThat(ids).hasSize(2);
+
+        //missing ids are reported next to the customers found
+        CustomerLookupResult actual = webTestClient.get()
+                .uri(CUSTOMER_URI + "?ids={first},-1,{second}", ids.get(1), ids.get(0))
+                .accept(MediaType.APPLICATION_JSON)
+                .exchange()
+                .expectStatus()
+                .isOk()
+                .expectBody(CustomerLookupResult.class)
+                .returnResult()
+                .getResponseBody();
+
+        assertThat(actual.customers()).extracting(Customer::getId).containsExactly(ids.get(1), ids.get(0));
+        assertThat(actual.missingIds()).containsExactly(-1L);
+
+        //long lists of ids go in the body instead
+        webTestClient.post()
+                .uri(CUSTOMER_URI + "/lookup")
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(Mono.just(new CustomerLookupRequest(ids)), CustomerLookupRequest.class)
+                .exchange()
+                .expectStatus()
+                .isOk()
+                .expectBody(CustomerLookupResult.class)
+                .value(result -> assertThat(result.customers()).extracting(Customer::getEmail)
+                        .containsExactlyElementsOf(emails));
+    }
+
+    @Test
+    void canSearchCustomersByNameAndEmail() {
+        String word = "zq" + UUID.randomUUID().toString().replace("-", "").chars()
+                .mapToObj(digit -> String.valueOf((char) ('g' + Character.digit(digit, 16))))
+                .collect(Collectors.joining()) + "xw";
+        String email = word + "@amigosecode.com";
+
+        webTestClient.post()
+                .uri(CUSTOMER_URI)
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(Mono.just(new CustomerRegistrationRequest("Ana " + word, email, 30)),
+                        CustomerRegistrationRequest.class)
+                .exchange()
+                .expectStatus()
+                .isCreated();
+
+        //a substring in any case and a typo find the same customer
+        for (String query : List.of(word.substring(2).toUpperCase(), word.substring(0, 5) + word.substring(6))) {
+            webTestClient.get()
+                    .uri(CUSTOMER_URI + "/search?q={query}", query)
+                    .accept(MediaType.APPLICATION_JSON)
+                    .exchange()
+                    .expectStatus()
+                    .isOk()
+                    .expectBodyList(Customer.class)
+                    .value(customers -> assertThat(customers).extracting(Customer::getEmail).containsExactly(email));
+        }
+
+        webTestClient.get()
+                .uri(CUSTOMER_URI + "/search?q=ab")
+                .accept(MediaType.APPLICATION_JSON)
+                .exchange()
+                .expectStatus()
+                .isBadRequest();
+    }
+
+    @Test
+    void canGetCustomerStatistics() {
+        CustomerStats before = getStats();
+
+        webTestClient.post()
+                .uri(CUSTOMER_URI)
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(Mono.just(new CustomerRegistrationRequest(
+                                "Ana", UUID.randomUUID() + "@amigosecode.com", 979)),
+                        CustomerRegistrationRequest.class)
+                .exchange()
+                .expectStatus()
+                .isCreated();
+
+        //the new customer is counted right away, in the open-ended last bucket
+        CustomerStats after = getStats();
+        assertThat(after.count()).isEqualTo(before.count() + 1);
+        assertThat(after.maxAge()).isGreaterThanOrEqualTo(979);
+        assertThat(after.ageHistogram().get(after.ageHistogram().size() - 1).count())
+                .isEqualTo(before.ageHistogram().get(before.ageHistogram().size() - 1).count() + 1);
+    }
+
+    private CustomerStats getStats() {
+        return webTestClient.get()
+                .uri(CUSTOMER_URI + "/stats")
+                .accept(MediaType.APPLICATION_JSON)
+                .exchange()
+                .expectStatus()
+                .isOk()
+                .expectBody(CustomerStats.class)
+                .returnResult()
+                .getResponseBody();
+    }
+
+    @Test
+    void canExchangeCustomersInBinaryFormats() throws IOException {
+        Faker faker = new Faker();
+        Name fakerName = faker.name();
+        String email = fakerName.lastName() + "-" + UUID.randomUUID() + "@amigosecode.com";
+        MediaType smile = MediaType.parseMediaType("application/x-jackson-smile");
+
+        //register in Smile
+        webTestClient.post()
+                .uri(CUSTOMER_URI)
+                .contentType(smile)
+                .bodyValue(new SmileMapper().writeValueAsBytes(
+                        new CustomerRegistrationRequest(fakerName.fullName(), email, 25)
+                ))
+                .exchange()
+                .expectStatus()
+                .isCreated();
+
+        //list in CBOR
+        byte[] cbor = webTestClient.get()
+                .uri(CUSTOMER_URI)
+                .accept(MediaType.parseMediaType("application/cbor"))
+                .exchange()
+                .expectStatus()
+                .isOk()
+                .expectHeader()
+                .contentType("application/cbor")
+                .expectBody(byte[].class)
+                .returnResult()
+                .getResponseBody();
+
+        List<Customer> allCustomers = new CBORMapper().readValue(cbor, new TypeReference<>() {
+        });
+        assertThat(allCustomers).extracting(Customer::getEmail).contains(email);
+
+        //list in Protobuf
+        webTestClient.get()
+                .uri(CUSTOMER_URI)
+                .accept(MediaType.parseMediaType("application/x-protobuf"))
+                .exchange()
+                .expectStatus()
+                .isOk()
+                .expectHeader()
+                .contentType("application/x-protobuf");
+
+        //JSON stays the default
+        webTestClient.get()
+                .uri(CUSTOMER_URI)
+                .accept(MediaType.ALL)
+                .exchange()
+                .expectStatus()
+                .isOk()
+                .expectHeader()
+                .contentType(MediaType.APPLICATION_JSON);
+    }
 }